@@ -0,0 +1,91 @@
+package com.example.proxyapi.benchmark;
+
+import com.example.proxyapi.vector.VectorCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * Тела запросов и ответов для бенчмарков — той же формы, что у OpenAI, с фиксированным зерном.
+ */
+final class BenchmarkPayloads {
+
+    private static final String SENTENCE = "The quick brown fox jumps over the lazy dog. ";
+
+    private BenchmarkPayloads() {
+    }
+
+    /**
+     * @return ObjectMapper с настройками Spring Boot и модулем Blackbird, как в приложении
+     */
+    static ObjectMapper mapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .modulesToInstall(new BlackbirdModule())
+                .build();
+    }
+
+    /**
+     * @param messages Число сообщений по ~450 символов
+     * @return Тело запроса клиента к /chat/completions
+     */
+    static byte[] chatRequest(int messages) {
+        StringBuilder json = new StringBuilder("{\"model\":\"gpt-4o\",\"temperature\":0.7,\"maxTokens\":256,\"messages\":[");
+        for (int i = 0; i < messages; i++) {
+            json.append(i > 0 ? "," : "")
+                    .append("{\"role\":\"").append(i % 2 == 0 ? "user" : "assistant")
+                    .append("\",\"content\":\"").append(SENTENCE.repeat(10)).append("\"}");
+        }
+        return utf8(json.append("]}"));
+    }
+
+    /**
+     * @param choices Число вариантов ответа по ~900 символов
+     * @return Тело ответа ProxyAPI на /chat/completions
+     */
+    static byte[] chatResponse(int choices) {
+        StringBuilder json = new StringBuilder("{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion\",\"created\":1700000000,"
+                + "\"model\":\"gpt-4o\",\"choices\":[");
+        for (int i = 0; i < choices; i++) {
+            json.append(i > 0 ? "," : "")
+                    .append("{\"index\":").append(i).append(",\"finish_reason\":\"stop\",\"logprobs\":null,")
+                    .append("\"message\":{\"role\":\"assistant\",\"content\":\"").append(SENTENCE.repeat(20)).append("\"}}");
+        }
+        return utf8(json.append("],\"usage\":{\"prompt_tokens\":120,\"completion_tokens\":200,\"total_tokens\":320}}"));
+    }
+
+    /**
+     * @param dimensions Размерность векторов
+     * @param inputs     Число векторов
+     * @param base64     Векторы строками base64 (как просит прокси) или массивами чисел
+     * @return Тело ответа ProxyAPI на /embeddings
+     */
+    static byte[] embeddingsResponse(int dimensions, int inputs, boolean base64) {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder json = new StringBuilder("{\"object\":\"list\",\"model\":\"text-embedding-3-large\",\"data\":[");
+        for (int i = 0; i < inputs; i++) {
+            float[] vector = new float[dimensions];
+            for (int d = 0; d < dimensions; d++) {
+                vector[d] = (float) (random.nextDouble() * 0.2 - 0.1);
+            }
+            json.append(i > 0 ? "," : "").append("{\"object\":\"embedding\",\"index\":").append(i).append(",\"embedding\":");
+            if (base64) {
+                json.append('"').append(VectorCodec.encodeBase64(vector)).append('"');
+            } else {
+                json.append('[');
+                for (int d = 0; d < dimensions; d++) {
+                    json.append(d > 0 ? "," : "").append(vector[d]);
+                }
+                json.append(']');
+            }
+            json.append('}');
+        }
+        return utf8(json.append("],\"usage\":{\"prompt_tokens\":8,\"total_tokens\":8}}"));
+    }
+
+    private static byte[] utf8(CharSequence json) {
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
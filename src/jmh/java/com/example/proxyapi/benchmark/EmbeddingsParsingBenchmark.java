@@ -0,0 +1,45 @@
+package com.example.proxyapi.benchmark;
+
+import com.example.proxyapi.dto.openai.EmbeddingsResponseDTO;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор ответа ProxyAPI на /embeddings в {@link EmbeddingsResponseDTO} (векторы сразу в {@code float[]})
+ * для размерностей text-embedding-3-small и -large, с векторами base64 (так их запрашивает прокси)
+ * и массивами чисел.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmbeddingsParsingBenchmark {
+
+    @Param({"1536", "3072"})
+    private int dimensions;
+
+    @Param({"1", "64"})
+    private int inputs;
+
+    @Param({"base64", "float"})
+    private String encoding;
+
+    private ObjectReader reader;
+    private byte[] responseJson;
+
+    @Setup
+    public void setUp() {
+        reader = BenchmarkPayloads.mapper().readerFor(EmbeddingsResponseDTO.class);
+        responseJson = BenchmarkPayloads.embeddingsResponse(dimensions, inputs, encoding.equals("base64"));
+    }
+
+    @Benchmark
+    public EmbeddingsResponseDTO parse() throws IOException {
+        return reader.readValue(responseJson);
+    }
+}
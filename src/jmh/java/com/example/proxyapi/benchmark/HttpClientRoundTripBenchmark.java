@@ -0,0 +1,114 @@
+package com.example.proxyapi.benchmark;
+
+import com.example.proxyapi.config.HttpClientProperties;
+import com.example.proxyapi.dto.openai.ChatCompletionRequestDTO;
+import com.example.proxyapi.dto.openai.ChatCompletionResponseDTO;
+import com.example.proxyapi.dto.openai.EmbeddingsResponseDTO;
+import com.example.proxyapi.dto.openai.MessageDTO;
+import com.example.proxyapi.utils.ApiCredential;
+import com.example.proxyapi.utils.ProxyApiEndpoint;
+import com.example.proxyapi.utils.ProxyApiHttpClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный путь запроса через {@link ProxyApiHttpClient}: сериализация DTO, отправка, получение
+ * и разбор ответа — против заглушки ProxyAPI на loopback в том же процессе. Заглушка отдаёт
+ * заранее подготовленные тела, так что измеряется сторона клиента и локальный стек TCP.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// Без TCP_NODELAY на заглушке ответ ждёт отложенного ACK (~40 мс) и мерить становится нечего
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@State(Scope.Benchmark)
+public class HttpClientRoundTripBenchmark {
+
+    private static final ApiCredential CREDENTIAL = () -> "benchmark-key";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ProxyApiHttpClient client;
+    private String baseUrl;
+    private ObjectWriter chatRequestWriter;
+    private ObjectReader chatResponseReader;
+    private ObjectReader embeddingsResponseReader;
+    private ChatCompletionRequestDTO chatRequest;
+    private byte[] embeddingsRequestJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] chatResponse = BenchmarkPayloads.chatResponse(1);
+        byte[] embeddingsResponse = BenchmarkPayloads.embeddingsResponse(1536, 1, true);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 128);
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.createContext(ProxyApiEndpoint.CHAT_COMPLETIONS.path(), exchange -> respond(exchange, chatResponse));
+        server.createContext(ProxyApiEndpoint.EMBEDDINGS.path(), exchange -> respond(exchange, embeddingsResponse));
+        server.start();
+        baseUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+
+        HttpClientProperties properties = new HttpClientProperties();
+        // Заглушка JDK понимает только HTTP/1.1
+        properties.setVersion(HttpClient.Version.HTTP_1_1);
+        client = new ProxyApiHttpClient(properties);
+
+        ObjectMapper mapper = BenchmarkPayloads.mapper();
+        chatRequestWriter = mapper.writerFor(ChatCompletionRequestDTO.class);
+        chatResponseReader = mapper.readerFor(ChatCompletionResponseDTO.class);
+        embeddingsResponseReader = mapper.readerFor(EmbeddingsResponseDTO.class);
+        chatRequest = new ChatCompletionRequestDTO("gpt-4o",
+                List.of(new MessageDTO("user", "Say this is a test!")), 256, null, 0.7, null);
+        embeddingsRequestJson = mapper.writeValueAsBytes(
+                Map.of("model", "text-embedding-3-small", "input", "hello", "encoding_format", "base64"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.destroy();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public ChatCompletionResponseDTO chatCompletion() throws IOException {
+        byte[] body = chatRequestWriter.writeValueAsBytes(chatRequest);
+        byte[] response = client.sendPostAsync(baseUrl, ProxyApiEndpoint.CHAT_COMPLETIONS, body, CREDENTIAL).join();
+        return chatResponseReader.readValue(response);
+    }
+
+    @Benchmark
+    public EmbeddingsResponseDTO embeddings() throws IOException {
+        byte[] response = client.sendPostAsync(baseUrl, ProxyApiEndpoint.EMBEDDINGS, embeddingsRequestJson, CREDENTIAL).join();
+        return embeddingsResponseReader.readValue(response);
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        try (InputStream request = exchange.getRequestBody()) {
+            request.transferTo(OutputStream.nullOutputStream());
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream response = exchange.getResponseBody()) {
+            response.write(body);
+        }
+        exchange.close();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.proxyapi.benchmark;
+
+import com.example.proxyapi.dto.openai.ChatCompletionRequestDTO;
+import com.example.proxyapi.dto.openai.ChatCompletionRequestInputDTO;
+import com.example.proxyapi.dto.openai.ChatCompletionResponseDTO;
+import com.example.proxyapi.utils.ChatRequestRewriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON chat-completion на стороне прокси: маппинг и сериализация DTO, как в {@code OpenAiService},
+ * разбор ответа ProxyAPI и переписывание запроса в режиме passthrough.
+ * <p>
+ * {@code dtoRoundTrip} — всё, что делает обычный путь с одним запросом: Spring MVC разбирает тело
+ * клиента, сервис строит и сериализует внутренний DTO, разбирает ответ, Spring сериализует его
+ * клиенту. {@code passthroughRoundTrip} — то же в режиме passthrough.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({"1", "20"})
+    private int messages;
+
+    private ObjectReader inputReader;
+    private ObjectWriter requestWriter;
+    private ObjectReader responseReader;
+    private ObjectWriter responseWriter;
+    private ChatRequestRewriter rewriter;
+    private byte[] requestJson;
+    private byte[] responseJson;
+    private ChatCompletionRequestInputDTO input;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = BenchmarkPayloads.mapper();
+        inputReader = mapper.readerFor(ChatCompletionRequestInputDTO.class);
+        requestWriter = mapper.writerFor(ChatCompletionRequestDTO.class);
+        responseReader = mapper.readerFor(ChatCompletionResponseDTO.class);
+        responseWriter = mapper.writerFor(ChatCompletionResponseDTO.class);
+        rewriter = new ChatRequestRewriter(Set.of("o1", "o1-mini"));
+        requestJson = BenchmarkPayloads.chatRequest(messages);
+        responseJson = BenchmarkPayloads.chatResponse(1);
+        input = inputReader.readValue(requestJson);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerializeRequest() throws IOException {
+        return requestWriter.writeValueAsBytes(toRequest(input));
+    }
+
+    @Benchmark
+    public ChatCompletionResponseDTO parseResponse() throws IOException {
+        return responseReader.readValue(responseJson);
+    }
+
+    @Benchmark
+    public ChatRequestRewriter.Rewritten rewriteRequest() {
+        return rewriter.rewrite(requestJson);
+    }
+
+    @Benchmark
+    public byte[] dtoRoundTrip() throws IOException {
+        ChatCompletionRequestInputDTO parsed = inputReader.readValue(requestJson);
+        byte[] upstreamRequest = requestWriter.writeValueAsBytes(toRequest(parsed));
+        ChatCompletionResponseDTO response = responseReader.readValue(responseJson);
+        return upstreamRequest.length > 0 ? responseWriter.writeValueAsBytes(response) : null;
+    }
+
+    @Benchmark
+    public byte[] passthroughRoundTrip() {
+        // Ответ пересылается как есть — разбирать и сериализовать нечего
+        return rewriter.rewrite(requestJson).bodyLength() > 0 ? responseJson : null;
+    }
+
+    /**
+     * Маппинг как в {@code OpenAiService.toChatCompletionRequest} для модели без особенностей.
+     */
+    private static ChatCompletionRequestDTO toRequest(ChatCompletionRequestInputDTO input) {
+        ChatCompletionRequestDTO request = new ChatCompletionRequestDTO();
+        request.setModel(input.getModel());
+        request.setMessages(input.getMessages());
+        request.setMaxTokens(input.getMaxTokens());
+        request.setTemperature(input.getTemperature());
+        return request;
+    }
+}
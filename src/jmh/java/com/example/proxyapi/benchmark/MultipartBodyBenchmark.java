@@ -0,0 +1,82 @@
+package com.example.proxyapi.benchmark;
+
+import com.example.proxyapi.utils.FilePart;
+import com.example.proxyapi.utils.MultipartBodyPublisher;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тело multipart/form-data запроса на транскрипцию, как его собирает
+ * {@code ProxyApiHttpClient.sendMultipartPostAsync}: поля формы и файл, который читается из
+ * потока по мере отправки. Тело вычитывается целиком, как это сделал бы HttpClient.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MultipartBodyBenchmark {
+
+    @Param({"65536", "1048576", "16777216"})
+    private int fileSize;
+
+    private byte[] file;
+
+    @Setup
+    public void setUp() {
+        file = new byte[fileSize];
+        for (int i = 0; i < file.length; i++) {
+            file[i] = (byte) (i * 31);
+        }
+    }
+
+    @Benchmark
+    public long buildAndDrain() {
+        MultipartBodyPublisher multipart = new MultipartBodyPublisher()
+                .fields(Map.of("model", "whisper-1", "response_format", "json"))
+                .files(List.of(new FilePart("file", "audio.mp3", () -> new ByteArrayInputStream(file),
+                        file.length, "audio/mpeg")));
+        HttpRequest.BodyPublisher body = multipart.build();
+        CountingSubscriber subscriber = new CountingSubscriber();
+        body.subscribe(subscriber);
+        return subscriber.total.join();
+    }
+
+    /**
+     * Подписчик, который только считает байты тела.
+     */
+    private static final class CountingSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+        private final CompletableFuture<Long> total = new CompletableFuture<>();
+        private long count;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            count += item.remaining();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            total.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            total.complete(count);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.proxyapi.admission;
+
+import com.example.proxyapi.config.AdmissionProperties;
+import com.example.proxyapi.exception.RateLimitExceededException;
+import com.example.proxyapi.utils.ProxyApiEndpoint;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Контроль допуска входящих запросов перед обращением к ProxyAPI.
+ * <p>
+ * Для каждого эндпоинта и каждого клиента ведутся вёдра токенов: по числу запросов
+ * в секунду и по оценочному числу токенов в минуту. Если лимит исчерпан, запрос ждёт
+ * своей очереди — без блокировки потока, через отложенное завершение future. Очередь
+ * ограничена и по длине, и по времени ожидания: при переполнении запрос сразу получает
+ * 429 с {@code Retry-After}. Так всплеск нагрузки не превращается в 429 от ProxyAPI
+ * и длинные очереди в Tomcat, а задержка допущенных запросов остаётся предсказуемой.
+ * <p>
+ * Клиент определяется по IP-адресу, а заголовку {@code api.admission.caller-header}
+ * доверяется, только если он настроен. Число отслеживаемых клиентов ограничено
+ * {@code api.admission.max-callers}: новые клиенты сверх него делят одно ведро, поэтому
+ * смена идентификатора не даёт ни обойти лимит, ни раздуть память.
+ */
+@Slf4j
+@Component
+public class AdmissionGate {
+
+    private static final String ANONYMOUS = "anonymous";
+    private static final String OVERFLOW = "overflow";
+
+    private final AdmissionProperties properties;
+    private final Map<ProxyApiEndpoint, Buckets> routeBuckets = new EnumMap<>(ProxyApiEndpoint.class);
+    private final Map<String, Buckets> callerBuckets = new HashMap<>();
+    private int queued;
+
+    public AdmissionGate(AdmissionProperties properties) {
+        this.properties = properties;
+        long now = System.nanoTime();
+        properties.getRoutes().forEach((endpoint, limit) -> routeBuckets.put(endpoint, Buckets.of(limit, now)));
+    }
+
+    /**
+     * Допустить запрос текущего клиента к эндпоинту.
+     *
+     * @param endpoint        Эндпоинт ProxyAPI
+     * @param estimatedTokens Оценка числа токенов запроса (0 — не учитывать)
+     * @return Future, завершающийся, когда запрос допущен, или с {@link RateLimitExceededException}
+     */
+    public CompletableFuture<Void> admit(ProxyApiEndpoint endpoint, long estimatedTokens) {
+        if (!properties.isEnabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String caller = currentCaller();
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            List<Buckets> applicable = new ArrayList<>(2);
+            Buckets route = routeBuckets.get(endpoint);
+            if (route != null) {
+                applicable.add(route);
+            }
+            Buckets perCaller = callerBuckets(caller, now);
+            if (perCaller != null) {
+                applicable.add(perCaller);
+            }
+
+            waitNanos = 0;
+            for (Buckets buckets : applicable) {
+                waitNanos = Math.max(waitNanos, buckets.waitNanos(estimatedTokens, now));
+            }
+            if (waitNanos > 0 && (queued >= properties.getMaxQueueSize()
+                    || waitNanos > properties.getMaxQueueDelay().toNanos())) {
+                log.warn("Request to {} from {} rejected: rate limit exceeded, queue {}/{}",
+                        endpoint.path(), caller, queued, properties.getMaxQueueSize());
+                return CompletableFuture.failedFuture(new RateLimitExceededException(
+                        "Превышен лимит запросов к " + endpoint.path(), Duration.ofNanos(waitNanos)));
+            }
+            for (Buckets buckets : applicable) {
+                buckets.reserve(estimatedTokens, now);
+            }
+            if (waitNanos == 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            queued++;
+        }
+
+        log.debug("Request to {} from {} queued for {} ms", endpoint.path(), caller, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        CompletableFuture<Void> admitted = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            synchronized (this) {
+                queued--;
+            }
+            admitted.complete(null);
+        });
+        return admitted;
+    }
+
+    /**
+     * Удалить вёдра клиентов, которые давно не отправляли запросов.
+     */
+    @Scheduled(fixedDelay = 60, timeUnit = TimeUnit.SECONDS)
+    public synchronized void evictIdleCallers() {
+        long now = System.nanoTime();
+        callerBuckets.values().removeIf(buckets -> buckets.isIdle(now));
+    }
+
+    private Buckets callerBuckets(String caller, long now) {
+        AdmissionProperties.Limit limit = properties.getPerCaller();
+        if (limit.getRequestsPerSecond() <= 0 && limit.getTokensPerMinute() <= 0) {
+            return null;
+        }
+        Buckets buckets = callerBuckets.get(caller);
+        if (buckets == null) {
+            // Простаивающие клиенты удаляются раз в минуту; до этого новые делят общее ведро
+            String key = callerBuckets.size() < properties.getMaxCallers() ? caller : OVERFLOW;
+            buckets = callerBuckets.computeIfAbsent(key, k -> Buckets.of(limit, now));
+        }
+        return buckets;
+    }
+
+    /**
+     * Клиент текущего запроса: значение заголовка {@code api.admission.caller-header},
+     * если он настроен и передан, иначе IP-адрес.
+     */
+    private String currentCaller() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return ANONYMOUS;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        String header = properties.getCallerHeader();
+        String caller = header != null && !header.isBlank() ? request.getHeader(header) : null;
+        return caller != null && !caller.isBlank() ? caller : request.getRemoteAddr();
+    }
+
+    /**
+     * Вёдра одного лимита: запросы в секунду и токены в минуту (любое может отсутствовать).
+     */
+    private record Buckets(TokenBucket requests, TokenBucket tokens) {
+
+        static Buckets of(AdmissionProperties.Limit limit, long now) {
+            TokenBucket requests = null;
+            if (limit.getRequestsPerSecond() > 0) {
+                double burst = limit.getBurst() != null ? limit.getBurst() : limit.getRequestsPerSecond();
+                requests = new TokenBucket(burst, limit.getRequestsPerSecond(), now);
+            }
+            TokenBucket tokens = null;
+            if (limit.getTokensPerMinute() > 0) {
+                tokens = new TokenBucket(limit.getTokensPerMinute(), limit.getTokensPerMinute() / 60d, now);
+            }
+            return new Buckets(requests, tokens);
+        }
+
+        long waitNanos(long estimatedTokens, long now) {
+            long wait = requests != null ? requests.waitNanos(1, now) : 0;
+            if (tokens != null && estimatedTokens > 0) {
+                wait = Math.max(wait, tokens.waitNanos(estimatedTokens, now));
+            }
+            return wait;
+        }
+
+        void reserve(long estimatedTokens, long now) {
+            if (requests != null) {
+                requests.reserve(1, now);
+            }
+            if (tokens != null && estimatedTokens > 0) {
+                tokens.reserve(estimatedTokens, now);
+            }
+        }
+
+        boolean isIdle(long now) {
+            return (requests == null || requests.isFull(now)) && (tokens == null || tokens.isFull(now));
+        }
+    }
+}
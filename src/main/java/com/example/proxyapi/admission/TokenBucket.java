@@ -0,0 +1,57 @@
+package com.example.proxyapi.admission;
+
+/**
+ * Ведро токенов с резервированием.
+ * <p>
+ * Резерв может увести баланс в минус: так запросы, ожидающие в очереди, заранее
+ * занимают свою долю, и каждый следующий ждёт дольше предыдущего. Не потокобезопасен —
+ * синхронизацию обеспечивает {@link AdmissionGate}.
+ */
+class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param capacity        Ёмкость ведра (допустимый всплеск)
+     * @param tokensPerSecond Скорость пополнения
+     */
+    TokenBucket(double capacity, double tokensPerSecond, long now) {
+        this.capacity = Math.max(1, capacity);
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.tokens = this.capacity;
+        this.lastRefillNanos = now;
+    }
+
+    /**
+     * @return Сколько наносекунд ждать, пока в ведре наберётся {@code amount} токенов
+     */
+    long waitNanos(double amount, long now) {
+        refill(now);
+        double deficit = Math.min(amount, capacity) - tokens;
+        return deficit <= 0 ? 0 : (long) Math.ceil(deficit / tokensPerNano);
+    }
+
+    /**
+     * Забрать {@code amount} токенов, даже если баланс станет отрицательным.
+     */
+    void reserve(double amount, long now) {
+        refill(now);
+        tokens -= Math.min(amount, capacity);
+    }
+
+    /**
+     * @return true, если ведро полно — клиент давно не отправлял запросов
+     */
+    boolean isFull(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
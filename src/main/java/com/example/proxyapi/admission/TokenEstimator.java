@@ -0,0 +1,77 @@
+package com.example.proxyapi.admission;
+
+import com.example.proxyapi.dto.openai.AudioSpeechRequestDTO;
+import com.example.proxyapi.dto.openai.ChatCompletionRequestInputDTO;
+import com.example.proxyapi.dto.openai.EmbeddingsRequestDTO;
+import com.example.proxyapi.dto.openai.MessageDTO;
+import com.example.proxyapi.utils.ChatRequestRewriter;
+
+import java.util.List;
+
+/**
+ * Грубая оценка числа токенов запроса для лимита токенов в минуту:
+ * около четырёх символов текста на токен плюс ожидаемый объём ответа.
+ */
+public final class TokenEstimator {
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    /**
+     * Сколько токенов ответа ожидать, если max_tokens не указан.
+     */
+    private static final int DEFAULT_COMPLETION_TOKENS = 256;
+
+    private TokenEstimator() {
+    }
+
+    public static long estimate(ChatCompletionRequestInputDTO request) {
+        long chars = 0;
+        if (request.getMessages() != null) {
+            for (MessageDTO message : request.getMessages()) {
+                chars += message.getContent() != null ? message.getContent().length() : 0;
+            }
+        }
+        return estimateChat(chars, request.getMaxTokens());
+    }
+
+    /**
+     * @param request Тело chat-completion, переписанное без разбора в DTO
+     */
+    public static long estimate(ChatRequestRewriter.Rewritten request) {
+        return estimateChat(request.contentChars(), request.maxTokens());
+    }
+
+    public static long estimate(EmbeddingsRequestDTO request) {
+        if (request.getInput() == null) {
+            return 0;
+        }
+        long total = 0;
+        for (Object item : request.getInput().items()) {
+            total += estimateInput(item);
+        }
+        return total;
+    }
+
+    /**
+     * @param item Элемент входа embeddings: текст или список токенов (их число известно точно)
+     * @return Оценка числа токенов элемента
+     */
+    public static long estimateInput(Object item) {
+        if (item instanceof List<?> tokens) {
+            return tokens.size();
+        }
+        return tokens(item != null ? item.toString().length() : 0);
+    }
+
+    public static long estimate(AudioSpeechRequestDTO request) {
+        return tokens(request.getInput() != null ? request.getInput().length() : 0);
+    }
+
+    private static long estimateChat(long contentChars, Integer maxTokens) {
+        return tokens(contentChars) + (maxTokens != null ? maxTokens : DEFAULT_COMPLETION_TOKENS);
+    }
+
+    private static long tokens(long chars) {
+        return (chars + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.proxyapi.cache;
+
+import java.util.Locale;
+
+/**
+ * Как запрос клиента разрешает использовать кеш ответов (по заголовку {@code Cache-Control}).
+ */
+public enum CacheDirective {
+
+    /**
+     * Ответ можно взять из кеша и сохранить в кеш.
+     */
+    USE,
+
+    /**
+     * Кеш не читается, но свежий ответ сохраняется ({@code no-cache}, {@code max-age=0}).
+     */
+    REFRESH,
+
+    /**
+     * Кеш не используется вовсе ({@code no-store}).
+     */
+    BYPASS;
+
+    /**
+     * @param cacheControl Значение заголовка {@code Cache-Control} или null
+     */
+    public static CacheDirective fromCacheControl(String cacheControl) {
+        if (cacheControl == null) {
+            return USE;
+        }
+        CacheDirective directive = USE;
+        for (String token : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+            String value = token.trim();
+            if (value.equals("no-store")) {
+                return BYPASS;
+            }
+            if (value.equals("no-cache") || value.equals("max-age=0")) {
+                directive = REFRESH;
+            }
+        }
+        return directive;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.proxyapi.cache;
+
+/**
+ * Ответ вместе с тем, как он был получен относительно кеша.
+ *
+ * @param value  Ответ
+ * @param status {@code HIT}, {@code SEMANTIC-HIT}, {@code MISS} или {@code BYPASS}; null, если кеш выключен
+ */
+public record CacheResult<T>(T value, String status) {
+
+    public static final String HIT = "HIT";
+    public static final String SEMANTIC_HIT = "SEMANTIC-HIT";
+    public static final String MISS = "MISS";
+    public static final String BYPASS = "BYPASS";
+}
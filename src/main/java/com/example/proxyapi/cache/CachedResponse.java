@@ -0,0 +1,10 @@
+package com.example.proxyapi.cache;
+
+/**
+ * Закешированный ответ ProxyAPI вместе с его ETag.
+ *
+ * @param body Тело ответа (JSON в UTF-8) — отдаётся клиенту без перекодирования
+ * @param etag Сильный ETag тела (в кавычках, как в заголовке)
+ */
+public record CachedResponse(byte[] body, String etag) {
+}
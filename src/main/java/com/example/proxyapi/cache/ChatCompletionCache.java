@@ -0,0 +1,85 @@
+package com.example.proxyapi.cache;
+
+import com.example.proxyapi.config.ChatCacheProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Кеш ответов chat-completion по точному совпадению запроса.
+ * <p>
+ * Ключ — SHA-256 от JSON внутреннего {@code ChatCompletionRequestDTO}: он сериализуется
+ * в фиксированном порядке полей, поэтому одинаковые запросы дают одинаковый JSON.
+ * Хранится тело ответа ProxyAPI; объём ограничен {@code api.chat-cache.max-size},
+ * срок жизни задаётся по моделям. Решение о том, какие запросы кешировать
+ * (детерминированные), принимает вызывающий код.
+ * <p>
+ * Метрики: {@code proxyapi.chat.cache.gets} (тег {@code result=hit|miss}),
+ * {@code proxyapi.chat.cache.evictions}, {@code proxyapi.chat.cache.size},
+ * {@code proxyapi.chat.cache.weight}.
+ */
+@Component
+public class ChatCompletionCache {
+
+    /**
+     * Оценка служебных расходов на запись: ключ, узел LinkedHashMap, заголовок массива.
+     */
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    private final ChatCacheProperties properties;
+    private final LruCache<HashKey, byte[]> cache;
+
+    public ChatCompletionCache(ChatCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.cache = new LruCache<>(properties.getMaxSize().toBytes(),
+                value -> ENTRY_OVERHEAD_BYTES + value.length);
+
+        FunctionCounter.builder("proxyapi.chat.cache.gets", cache, LruCache::hitCount)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("proxyapi.chat.cache.gets", cache, LruCache::missCount)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("proxyapi.chat.cache.evictions", cache, LruCache::evictionCount)
+                .register(meterRegistry);
+        Gauge.builder("proxyapi.chat.cache.size", cache, LruCache::size)
+                .register(meterRegistry);
+        Gauge.builder("proxyapi.chat.cache.weight", cache, LruCache::weight)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * @return Кешируются ли ответы модели
+     */
+    public boolean isCacheable(String model) {
+        return properties.isEnabled() && !properties.ttlFor(model).isZero();
+    }
+
+    /**
+     * @param requestJson JSON запроса, отправляемый в ProxyAPI (UTF-8)
+     * @return Тело закешированного ответа (UTF-8) или null
+     */
+    public byte[] get(byte[] requestJson) {
+        return cache.get(HashKey.of(requestJson));
+    }
+
+    /**
+     * @param model        Модель запроса (определяет срок жизни)
+     * @param requestJson  JSON запроса, отправляемый в ProxyAPI (UTF-8)
+     * @param responseJson Тело ответа ProxyAPI (UTF-8)
+     */
+    public void put(String model, byte[] requestJson, byte[] responseJson) {
+        Duration ttl = properties.ttlFor(model);
+        if (!ttl.isZero()) {
+            cache.put(HashKey.of(requestJson), responseJson, ttl);
+        }
+    }
+}
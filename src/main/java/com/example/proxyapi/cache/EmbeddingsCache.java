@@ -0,0 +1,221 @@
+package com.example.proxyapi.cache;
+
+import com.example.proxyapi.config.EmbeddingsCacheProperties;
+import com.example.proxyapi.config.EmbeddingsStoreProperties;
+import com.example.proxyapi.dto.openai.EmbeddingsResponseDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Кеш embeddings по содержимому: ключ — модель и SHA-256 входного текста (или массива токенов).
+ * <p>
+ * Вектор хранится упакованным {@code float[]} (4 байта на измерение) вместо
+ * {@code List<Double>} (около 24 байт на измерение), а ключ — двумя long из хеша,
+ * поэтому объём памяти предсказуем: примерно {@code 4 * dimensions + 128} байт на запись.
+ * Размер кеша ограничен {@code api.embeddings-cache.max-size}, вытесняются давно
+ * не использованные записи.
+ * <p>
+ * Метрики: {@code proxyapi.embeddings.cache.gets} (тег {@code result=hit|miss}),
+ * {@code proxyapi.embeddings.cache.evictions}, {@code proxyapi.embeddings.cache.size},
+ * {@code proxyapi.embeddings.cache.weight}.
+ * <p>
+ * Если включено {@code api.embeddings-store}, за кешем в памяти стоит
+ * {@link MappedEmbeddingsStore} на диске: промахи кеша ищутся в нём, найденное поднимается
+ * в память, новые векторы пишутся в оба уровня. Хранилище переживает перезапуск, поэтому
+ * после старта попадания идут сразу. Метрики: {@code proxyapi.embeddings.store.gets}
+ * (тег {@code result=hit|miss}), {@code proxyapi.embeddings.store.size},
+ * {@code proxyapi.embeddings.store.bytes}.
+ */
+@Slf4j
+@Component
+public class EmbeddingsCache {
+
+    /**
+     * Оценка служебных расходов на запись: ключ, узел LinkedHashMap, заголовки объектов.
+     */
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    private final EmbeddingsCacheProperties properties;
+    private final LruCache<HashKey, CachedEmbedding> cache;
+    private final MappedEmbeddingsStore store;
+    private final Counter storeHits;
+    private final Counter storeMisses;
+
+    public EmbeddingsCache(EmbeddingsCacheProperties properties,
+                           EmbeddingsStoreProperties storeProperties,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.store = openStore(storeProperties);
+        this.cache = new LruCache<>(properties.getMaxSize().toBytes(),
+                value -> ENTRY_OVERHEAD_BYTES + 4L * value.vector().length);
+
+        FunctionCounter.builder("proxyapi.embeddings.cache.gets", cache, LruCache::hitCount)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("proxyapi.embeddings.cache.gets", cache, LruCache::missCount)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("proxyapi.embeddings.cache.evictions", cache, LruCache::evictionCount)
+                .register(meterRegistry);
+        Gauge.builder("proxyapi.embeddings.cache.size", cache, LruCache::size)
+                .register(meterRegistry);
+        Gauge.builder("proxyapi.embeddings.cache.weight", cache, LruCache::weight)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        this.storeHits = Counter.builder("proxyapi.embeddings.store.gets").tag("result", "hit").register(meterRegistry);
+        this.storeMisses = Counter.builder("proxyapi.embeddings.store.gets").tag("result", "miss").register(meterRegistry);
+        if (store != null) {
+            Gauge.builder("proxyapi.embeddings.store.size", store, MappedEmbeddingsStore::size)
+                    .register(meterRegistry);
+            Gauge.builder("proxyapi.embeddings.store.bytes", store, MappedEmbeddingsStore::bytes)
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled() || store != null;
+    }
+
+    /**
+     * Найти ответ в кеше.
+     *
+     * @param model Модель
+     * @param input Элемент входа: текст или список токенов
+     * @return Ответ на один элемент, собранный из кеша, или null
+     */
+    public EmbeddingsResponseDTO get(String model, Object input) {
+        HashKey key = key(model, input);
+        CachedEmbedding cached = properties.isEnabled() ? cache.get(key) : null;
+        if (cached == null) {
+            cached = loadFromStore(key);
+        }
+        if (cached == null) {
+            return null;
+        }
+        EmbeddingsResponseDTO.EmbeddingData data = new EmbeddingsResponseDTO.EmbeddingData();
+        data.setObject("embedding");
+        data.setIndex(0);
+        // Векторы не изменяются после сохранения, поэтому отдаются без копирования
+        data.setEmbedding(cached.vector());
+
+        EmbeddingsResponseDTO.Usage usage = new EmbeddingsResponseDTO.Usage();
+        usage.setPromptTokens(cached.promptTokens());
+        usage.setTotalTokens(cached.promptTokens());
+
+        EmbeddingsResponseDTO response = new EmbeddingsResponseDTO();
+        response.setObject("list");
+        response.setModel(cached.model());
+        response.setData(List.of(data));
+        response.setUsage(usage);
+        return response;
+    }
+
+    /**
+     * Сохранить ответ ProxyAPI в кеш.
+     *
+     * @param model    Модель
+     * @param input    Элемент входа: текст или список токенов
+     * @param response Ответ ProxyAPI на этот элемент
+     */
+    public void put(String model, Object input, EmbeddingsResponseDTO response) {
+        if (response.getData() == null || response.getData().size() != 1
+                || response.getData().get(0).getEmbedding() == null) {
+            return;
+        }
+        int promptTokens = response.getUsage() != null && response.getUsage().getPromptTokens() != null
+                ? response.getUsage().getPromptTokens() : 0;
+        float[] vector = response.getData().get(0).getEmbedding();
+        HashKey key = key(model, input);
+        if (properties.isEnabled()) {
+            cache.put(key, new CachedEmbedding(response.getModel(), vector, promptTokens), properties.getTtl());
+        }
+        if (store != null) {
+            store.put(key.high(), key.low(), response.getModel(), vector, promptTokens);
+        }
+    }
+
+    /**
+     * Сбросить хранилище на диск и сохранить его индекс.
+     */
+    @Scheduled(initialDelayString = "${api.embeddings-store.checkpoint-interval:30s}",
+            fixedDelayString = "${api.embeddings-store.checkpoint-interval:30s}")
+    public void checkpoint() {
+        if (store == null) {
+            return;
+        }
+        try {
+            store.checkpoint();
+        } catch (IOException e) {
+            log.warn("Embeddings store checkpoint failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (store == null) {
+            return;
+        }
+        try {
+            store.close();
+        } catch (IOException e) {
+            log.warn("Failed to close embeddings store: {}", e.getMessage());
+        }
+    }
+
+    private static HashKey key(String model, Object input) {
+        // Токены — отдельной частью ключа, чтобы не совпасть с текстом "[1, 2, 3]"
+        return input instanceof String text ? HashKey.of(model, text) : HashKey.of(model, "tokens", String.valueOf(input));
+    }
+
+    private CachedEmbedding loadFromStore(HashKey key) {
+        if (store == null) {
+            return null;
+        }
+        MappedEmbeddingsStore.StoredEmbedding stored = store.get(key.high(), key.low());
+        if (stored == null) {
+            storeMisses.increment();
+            return null;
+        }
+        storeHits.increment();
+        float[] vector = new float[stored.vector().remaining()];
+        stored.vector().get(vector);
+        CachedEmbedding cached = new CachedEmbedding(stored.model(), vector, stored.promptTokens());
+        if (properties.isEnabled()) {
+            cache.put(key, cached, properties.getTtl());
+        }
+        return cached;
+    }
+
+    private static MappedEmbeddingsStore openStore(EmbeddingsStoreProperties properties) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        try {
+            return new MappedEmbeddingsStore(properties.getDirectory(),
+                    properties.getSegmentSize().toBytes(), properties.getMaxSize().toBytes());
+        } catch (IOException | RuntimeException e) {
+            // Прокси остаётся работоспособным и без хранилища
+            log.error("Failed to open embeddings store in {}, continuing without it", properties.getDirectory(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @param model        Модель из ответа ProxyAPI (может содержать версию)
+     * @param vector       Вектор
+     * @param promptTokens Токены входного текста
+     */
+    private record CachedEmbedding(String model, float[] vector, int promptTokens) {
+    }
+}
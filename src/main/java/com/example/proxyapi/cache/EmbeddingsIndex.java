@@ -0,0 +1,148 @@
+package com.example.proxyapi.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Компактный хеш-индекс «128-битный ключ -> смещение записи» для {@link MappedEmbeddingsStore}.
+ * <p>
+ * Открытая адресация с линейным пробированием в трёх массивах {@code long}: 24 байта
+ * на ячейку без объектов на запись. Смещение хранится со сдвигом на 1, чтобы 0 означал
+ * пустую ячейку. Не потокобезопасен.
+ */
+class EmbeddingsIndex {
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private long[] highs;
+    private long[] lows;
+    private long[] offsets;
+    private int size;
+
+    EmbeddingsIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    private EmbeddingsIndex(int capacity) {
+        highs = new long[capacity];
+        lows = new long[capacity];
+        offsets = new long[capacity];
+    }
+
+    /**
+     * @return Смещение записи или -1
+     */
+    long get(long high, long low) {
+        int mask = offsets.length - 1;
+        for (int slot = slot(high, low, mask); ; slot = (slot + 1) & mask) {
+            long stored = offsets[slot];
+            if (stored == 0) {
+                return -1;
+            }
+            if (highs[slot] == high && lows[slot] == low) {
+                return stored - 1;
+            }
+        }
+    }
+
+    void put(long high, long low, long offset) {
+        if ((size + 1) * 2L > offsets.length) {
+            resize(offsets.length * 2);
+        }
+        int mask = offsets.length - 1;
+        for (int slot = slot(high, low, mask); ; slot = (slot + 1) & mask) {
+            if (offsets[slot] == 0) {
+                highs[slot] = high;
+                lows[slot] = low;
+                offsets[slot] = offset + 1;
+                size++;
+                return;
+            }
+            if (highs[slot] == high && lows[slot] == low) {
+                offsets[slot] = offset + 1;
+                return;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Копия индекса (для записи контрольной точки без удержания блокировки)
+     */
+    EmbeddingsIndex copy() {
+        EmbeddingsIndex copy = new EmbeddingsIndex(0);
+        copy.highs = highs.clone();
+        copy.lows = lows.clone();
+        copy.offsets = offsets.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(offsets.length);
+        out.writeInt(size);
+        for (int i = 0; i < offsets.length; i++) {
+            if (offsets[i] != 0) {
+                out.writeInt(i);
+                out.writeLong(highs[i]);
+                out.writeLong(lows[i]);
+                out.writeLong(offsets[i]);
+            }
+        }
+    }
+
+    /**
+     * Прочитать индекс, записанный {@link #writeTo}.
+     *
+     * @param maxEntries Сколько записей может быть в данных, которые покрывает индекс;
+     *                   индекс заметно большей ёмкости считается повреждённым и не выделяется
+     */
+    static EmbeddingsIndex readFrom(DataInputStream in, long maxEntries) throws IOException {
+        int capacity = in.readInt();
+        int size = in.readInt();
+        if (Integer.bitCount(capacity) != 1 || size < 0 || size * 2L > capacity) {
+            throw new IOException("Corrupted index header");
+        }
+        // Ёмкость — степень двойки не меньше 2 * size, после удвоения — меньше 4 * (size + 1)
+        if (size > maxEntries || capacity > Math.max(MIN_CAPACITY, 4 * (maxEntries + 1))) {
+            throw new IOException("Index of " + size + " entries (capacity " + capacity
+                    + ") does not fit the data file");
+        }
+        EmbeddingsIndex index = new EmbeddingsIndex(capacity);
+        for (int i = 0; i < size; i++) {
+            int slot = in.readInt();
+            if (slot < 0 || slot >= capacity) {
+                throw new IOException("Corrupted index slot");
+            }
+            index.highs[slot] = in.readLong();
+            index.lows[slot] = in.readLong();
+            index.offsets[slot] = in.readLong();
+        }
+        index.size = size;
+        return index;
+    }
+
+    private void resize(int capacity) {
+        long[] oldHighs = highs;
+        long[] oldLows = lows;
+        long[] oldOffsets = offsets;
+        highs = new long[capacity];
+        lows = new long[capacity];
+        offsets = new long[capacity];
+        size = 0;
+        for (int i = 0; i < oldOffsets.length; i++) {
+            if (oldOffsets[i] != 0) {
+                put(oldHighs[i], oldLows[i], oldOffsets[i] - 1);
+            }
+        }
+    }
+
+    private static int slot(long high, long low, int mask) {
+        // Ключ — уже криптографический хеш, достаточно взять его биты
+        return (int) (low ^ (low >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.proxyapi.cache;
+
+import com.example.proxyapi.utils.Hashes;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Ключ кеша по содержимому — первые 128 бит SHA-256 от частей ключа.
+ * Два long вместо строки: компактно и быстро сравнивается.
+ */
+record HashKey(long high, long low) {
+
+    static HashKey of(String... parts) {
+        return fromHash(Hashes.sha256Bytes(parts));
+    }
+
+    /**
+     * @param body Сериализованное тело (UTF-8)
+     */
+    static HashKey of(byte[] body) {
+        return fromHash(Hashes.sha256Bytes(body));
+    }
+
+    private static HashKey fromHash(byte[] hash) {
+        ByteBuffer buffer = ByteBuffer.wrap(hash);
+        return new HashKey(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.proxyapi.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * LRU-кеш, ограниченный суммарным весом записей (обычно — оценкой их размера в байтах).
+ * <p>
+ * Записи распределены по сегментам по хешу ключа; у каждого сегмента своя блокировка,
+ * свой порядок доступа и своя доля общего лимита веса. Так одновременные обращения
+ * к разным ключам редко конкурируют за одну блокировку. При переполнении сегмента
+ * вытесняются давно не использованные записи этого сегмента.
+ * <p>
+ * Запись может иметь срок жизни; просроченная запись считается отсутствующей и
+ * удаляется при обращении к ней или при вытеснении.
+ *
+ * @param <K> Тип ключа
+ * @param <V> Тип значения
+ */
+public class LruCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final ToLongFunction<V> weigher;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxWeight Максимальный суммарный вес записей
+     * @param weigher   Вес записи (вместе с ключом и служебными объектами)
+     */
+    @SuppressWarnings("unchecked")
+    public LruCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.weigher = weigher;
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(Math.max(1, maxWeight / SEGMENTS));
+        }
+    }
+
+    /**
+     * @return Значение или null, если записи нет или она просрочена
+     */
+    public V get(K key) {
+        V value = segmentFor(key).get(key, System.nanoTime());
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Добавить запись без срока жизни.
+     */
+    public void put(K key, V value) {
+        put(key, value, Duration.ZERO);
+    }
+
+    /**
+     * Добавить запись.
+     *
+     * @param ttl Срок жизни записи; {@link Duration#ZERO} — без срока
+     */
+    public void put(K key, V value, Duration ttl) {
+        long now = System.nanoTime();
+        long expiresAt = ttl.isZero() || ttl.isNegative() ? 0 : now + ttl.toNanos();
+        evictions.add(segmentFor(key).put(key, new Node<>(value, weigher.applyAsLong(value), expiresAt), now));
+    }
+
+    public void invalidate(K key) {
+        segmentFor(key).remove(key);
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long weight() {
+        long weight = 0;
+        for (Segment<K, V> segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (SEGMENTS - 1)];
+    }
+
+    private record Node<V>(V value, long weight, long expiresAtNanos) {
+
+        boolean isExpired(long now) {
+            return expiresAtNanos != 0 && expiresAtNanos - now <= 0;
+        }
+    }
+
+    private static final class Segment<K, V> {
+
+        private final long maxWeight;
+        private final LinkedHashMap<K, Node<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+        private long weight;
+
+        Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        synchronized V get(K key, long now) {
+            Node<V> node = map.get(key);
+            if (node == null) {
+                return null;
+            }
+            if (node.isExpired(now)) {
+                map.remove(key);
+                weight -= node.weight();
+                return null;
+            }
+            return node.value();
+        }
+
+        /**
+         * @return Сколько записей вытеснено
+         */
+        synchronized int put(K key, Node<V> node, long now) {
+            if (node.weight() > maxWeight) {
+                // Запись больше всего сегмента — не кешируем
+                return 0;
+            }
+            Node<V> previous = map.put(key, node);
+            if (previous != null) {
+                weight -= previous.weight();
+            }
+            weight += node.weight();
+
+            int evicted = 0;
+            Iterator<Map.Entry<K, Node<V>>> eldest = map.entrySet().iterator();
+            while (weight > maxWeight && eldest.hasNext()) {
+                Map.Entry<K, Node<V>> entry = eldest.next();
+                if (entry.getKey().equals(key)) {
+                    continue;
+                }
+                weight -= entry.getValue().weight();
+                eldest.remove();
+                if (!entry.getValue().isExpired(now)) {
+                    evicted++;
+                }
+            }
+            return evicted;
+        }
+
+        synchronized void remove(K key) {
+            Node<V> node = map.remove(key);
+            if (node != null) {
+                weight -= node.weight();
+            }
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+
+        synchronized long weight() {
+            return weight;
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package com.example.proxyapi.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Постоянное хранилище embeddings: файл только для дозаписи, отображённый в память,
+ * и хеш-индекс «ключ -> смещение».
+ * <p>
+ * Файл {@code embeddings.dat} начинается с заголовка ({@value #FILE_HEADER_BYTES} байт)
+ * и делится на фрагменты по {@code segmentSize} байт, каждый отображается отдельным
+ * {@link MappedByteBuffer}; запись не пересекает границу фрагмента. Формат записи
+ * (little-endian, выровнена по 8 байт):
+ * <pre>
+ * int magic | int crc32c | long keyHigh | long keyLow | int dimensions | int promptTokens
+ * | short modelLength | model (UTF-8) | выравнивание до 4 | float32[dimensions]
+ * </pre>
+ * Магическое число пишется последним, а CRC покрывает всё, кроме первых 8 байт, поэтому
+ * недописанная при сбое запись при восстановлении отбрасывается вместе со всем, что
+ * после неё.
+ * <p>
+ * Индекс периодически сохраняется в {@code embeddings.idx} вместе со смещением конца
+ * данных, которые он покрывает, и идентификатором файла данных из его заголовка (индекс
+ * от другого файла не загружается); перед этим записанные фрагменты сбрасываются на диск.
+ * При запуске загружается сохранённый индекс и дочитываются только записи после него,
+ * поэтому старт не зависит от размера файла.
+ * <p>
+ * Чтение не копирует вектор: {@link #get} возвращает {@link FloatBuffer} поверх отображения;
+ * перед этим проверяется, что по смещению из индекса лежит запись с тем же ключом.
+ */
+@Slf4j
+public class MappedEmbeddingsStore implements Closeable {
+
+    private static final int FILE_MAGIC = 0x454D4253; // "EMBS"
+    private static final int INDEX_MAGIC = 0x454D4249; // "EMBI"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_BYTES = 64;
+
+    private static final int RECORD_MAGIC = 0x454D4231; // "EMB1"
+    private static final int PADDING_MAGIC = 0x50414421; // "PAD!": остаток фрагмента пуст
+    private static final int RECORD_HEADER_BYTES = 34;
+    private static final int MAX_DIMENSIONS = 1 << 16;
+    private static final int MIN_RECORD_BYTES = align(vectorOffset(0) + 4, 8);
+
+    private final Path dataFile;
+    private final Path indexFile;
+    private final FileChannel channel;
+    private final long segmentSize;
+    private final long maxSize;
+    private long storeId;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private EmbeddingsIndex index;
+    private long writeOffset;
+    private long checkpointOffset;
+    private boolean full;
+
+    /**
+     * Открыть хранилище, при необходимости создав файлы и восстановив индекс.
+     *
+     * @param directory   Каталог с файлами
+     * @param segmentSize Размер фрагмента для нового файла
+     * @param maxSize     Максимальный размер файла с векторами
+     */
+    public MappedEmbeddingsStore(Path directory, long segmentSize, long maxSize) throws IOException {
+        Files.createDirectories(directory);
+        this.dataFile = directory.resolve("embeddings.dat");
+        this.indexFile = directory.resolve("embeddings.idx");
+        this.maxSize = maxSize;
+        this.channel = FileChannel.open(dataFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.segmentSize = openDataFile(segmentSize);
+            recover();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Найти вектор.
+     *
+     * @return Запись, вектор которой читается прямо из отображения, или null
+     */
+    public StoredEmbedding get(long high, long low) {
+        lock.readLock().lock();
+        try {
+            long offset = index.get(high, low);
+            if (offset < 0 || offset >= writeOffset) {
+                return null;
+            }
+            ByteBuffer segment = segments.get((int) (offset / segmentSize));
+            int position = (int) (offset % segmentSize);
+            if (segment.getInt(position) != RECORD_MAGIC
+                    || segment.getLong(position + 8) != high || segment.getLong(position + 16) != low) {
+                return null;
+            }
+            int dimensions = segment.getInt(position + 24);
+            int promptTokens = segment.getInt(position + 28);
+            int modelLength = segment.getShort(position + 32);
+            String model = new String(bytes(segment, position + RECORD_HEADER_BYTES, modelLength), StandardCharsets.UTF_8);
+            FloatBuffer vector = segment
+                    .slice(position + vectorOffset(modelLength), 4 * dimensions)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer()
+                    .asReadOnlyBuffer();
+            return new StoredEmbedding(model, vector, promptTokens);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Дописать вектор, если такого ключа ещё нет. Запись становится видна сразу,
+     * на диск сбрасывается при следующем {@link #checkpoint()}.
+     */
+    public void put(long high, long low, String model, float[] vector, int promptTokens) {
+        byte[] modelBytes = model == null ? new byte[0] : model.getBytes(StandardCharsets.UTF_8);
+        if (vector.length == 0 || vector.length > MAX_DIMENSIONS || modelBytes.length > Short.MAX_VALUE) {
+            return;
+        }
+        int vectorOffset = vectorOffset(modelBytes.length);
+        int recordSize = align(vectorOffset + 4 * vector.length, 8);
+        if (recordSize > segmentSize - FILE_HEADER_BYTES) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (index.get(high, low) >= 0) {
+                return;
+            }
+            long offset = writeOffset;
+            if (offset % segmentSize + recordSize > segmentSize) {
+                // Запись не помещается в остаток фрагмента — переходим к следующему
+                if (segmentSize - offset % segmentSize >= 4) {
+                    segmentAt(offset).putInt((int) (offset % segmentSize), PADDING_MAGIC);
+                }
+                offset = (offset / segmentSize + 1) * segmentSize;
+            }
+            if (offset + recordSize > maxSize) {
+                if (!full) {
+                    full = true;
+                    log.warn("Embeddings store {} reached its max size, new vectors are kept in memory only", dataFile);
+                }
+                return;
+            }
+
+            ByteBuffer segment = segmentAt(offset);
+            int position = (int) (offset % segmentSize);
+            ByteBuffer record = segment.slice(position, recordSize).order(ByteOrder.LITTLE_ENDIAN);
+            record.putLong(8, high)
+                    .putLong(16, low)
+                    .putInt(24, vector.length)
+                    .putInt(28, promptTokens)
+                    .putShort(32, (short) modelBytes.length)
+                    .put(RECORD_HEADER_BYTES, modelBytes);
+            record.slice(vectorOffset, 4 * vector.length)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer()
+                    .put(vector);
+            record.putInt(4, crc(record, recordSize));
+            record.putInt(0, RECORD_MAGIC);
+
+            index.put(high, low, offset);
+            writeOffset = offset + recordSize;
+        } catch (IOException e) {
+            log.warn("Failed to append to embeddings store {}: {}", dataFile, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сбросить дописанные векторы на диск и сохранить индекс, если с прошлого раза
+     * что-то изменилось.
+     */
+    public synchronized void checkpoint() throws IOException {
+        EmbeddingsIndex snapshot;
+        long dataOffset;
+        List<MappedByteBuffer> dirty;
+        lock.readLock().lock();
+        try {
+            if (writeOffset == checkpointOffset) {
+                return;
+            }
+            snapshot = index.copy();
+            dataOffset = writeOffset;
+            int from = (int) (checkpointOffset / segmentSize);
+            int to = (int) Math.min(segments.size() - 1, (dataOffset - 1) / segmentSize);
+            dirty = List.copyOf(segments.subList(from, to + 1));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Сначала данные, потом индекс: сохранённый индекс не должен ссылаться на несброшенные записи
+        for (MappedByteBuffer segment : dirty) {
+            segment.force();
+        }
+        Path temporary = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)), new CRC32C());
+        try (DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(segmentSize);
+            out.writeLong(storeId);
+            out.writeLong(dataOffset);
+            snapshot.writeTo(out);
+            out.writeLong(checked.getChecksum().getValue());
+        }
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        lock.writeLock().lock();
+        try {
+            checkpointOffset = dataOffset;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Embeddings store checkpoint: {} vectors, {} bytes", snapshot.size(), dataOffset);
+    }
+
+    /**
+     * @return Число векторов в хранилище
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Объём записанных данных, байт
+     */
+    public long bytes() {
+        lock.readLock().lock();
+        try {
+            return writeOffset;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            checkpoint();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Прочитать или записать заголовок файла.
+     *
+     * @return Размер фрагмента файла
+     */
+    private long openDataFile(long requestedSegmentSize) throws IOException {
+        if (channel.size() == 0) {
+            storeId = newStoreId();
+            segments.add(map(0, requestedSegmentSize));
+            segments.get(0)
+                    .putInt(4, VERSION)
+                    .putLong(8, requestedSegmentSize)
+                    .putLong(16, storeId)
+                    .putInt(0, FILE_MAGIC);
+            writeOffset = FILE_HEADER_BYTES;
+            return requestedSegmentSize;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        if (header.getInt(0) != FILE_MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not an embeddings store file: " + dataFile);
+        }
+        long existingSegmentSize = header.getLong(8);
+        if (existingSegmentSize != requestedSegmentSize) {
+            log.info("Embeddings store {} uses segment size {} bytes from its header", dataFile, existingSegmentSize);
+        }
+        long segmentCount = (channel.size() + existingSegmentSize - 1) / existingSegmentSize;
+        for (long i = 0; i < segmentCount; i++) {
+            segments.add(map(i * existingSegmentSize, existingSegmentSize));
+        }
+        storeId = header.getLong(16);
+        writeOffset = FILE_HEADER_BYTES;
+        return existingSegmentSize;
+    }
+
+    /**
+     * Загрузить сохранённый индекс и дочитать записи после него.
+     */
+    private void recover() {
+        long start = System.nanoTime();
+        index = loadCheckpoint();
+        long offset = index == null ? FILE_HEADER_BYTES : checkpointOffset;
+        if (index == null) {
+            index = new EmbeddingsIndex();
+            checkpointOffset = FILE_HEADER_BYTES;
+        }
+        int replayed = 0;
+        while (offset < (long) segments.size() * segmentSize) {
+            ByteBuffer segment = segments.get((int) (offset / segmentSize));
+            int position = (int) (offset % segmentSize);
+            int magic = segmentSize - position >= 4 ? segment.getInt(position) : PADDING_MAGIC;
+            if (magic == PADDING_MAGIC) {
+                offset = (offset / segmentSize + 1) * segmentSize;
+                continue;
+            }
+            int recordSize = magic == RECORD_MAGIC ? validRecordSize(segment, position) : -1;
+            if (recordSize < 0) {
+                break;
+            }
+            index.put(segment.getLong(position + 8), segment.getLong(position + 16), offset);
+            offset += recordSize;
+            replayed++;
+        }
+        writeOffset = offset;
+        log.info("Embeddings store {} opened: {} vectors ({} replayed after checkpoint), {} bytes, {} ms",
+                dataFile, index.size(), replayed, writeOffset, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private EmbeddingsIndex loadCheckpoint() {
+        CheckedInputStream checked;
+        try {
+            checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(indexFile)), new CRC32C());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to read embeddings index {}: {}", indexFile, e.getMessage());
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != VERSION || in.readLong() != segmentSize) {
+                throw new IOException("Incompatible index header");
+            }
+            if (in.readLong() != storeId) {
+                throw new IOException("Index belongs to another data file");
+            }
+            long dataOffset = in.readLong();
+            if (dataOffset < FILE_HEADER_BYTES || dataOffset > (long) segments.size() * segmentSize) {
+                throw new IOException("Index points past the end of the data file");
+            }
+            // Размер индекса проверяется до выделения массивов: CRC сходится только после чтения
+            EmbeddingsIndex loaded = EmbeddingsIndex.readFrom(in, dataOffset / MIN_RECORD_BYTES);
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Checksum mismatch");
+            }
+            checkpointOffset = dataOffset;
+            return loaded;
+        } catch (IOException e) {
+            log.warn("Ignoring embeddings index {}, rebuilding from data file: {}", indexFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return Размер записи, если она целая, иначе -1
+     */
+    private int validRecordSize(ByteBuffer segment, int position) {
+        if (segmentSize - position < RECORD_HEADER_BYTES) {
+            return -1;
+        }
+        int dimensions = segment.getInt(position + 24);
+        int modelLength = segment.getShort(position + 32);
+        if (dimensions <= 0 || dimensions > MAX_DIMENSIONS || modelLength < 0) {
+            return -1;
+        }
+        int recordSize = align(vectorOffset(modelLength) + 4 * dimensions, 8);
+        if (recordSize > segmentSize - position) {
+            return -1;
+        }
+        ByteBuffer record = segment.slice(position, recordSize).order(ByteOrder.LITTLE_ENDIAN);
+        return record.getInt(4) == crc(record, recordSize) ? recordSize : -1;
+    }
+
+    private MappedByteBuffer segmentAt(long offset) throws IOException {
+        int number = (int) (offset / segmentSize);
+        while (segments.size() <= number) {
+            segments.add(map(segments.size() * segmentSize, segmentSize));
+        }
+        return segments.get(number);
+    }
+
+    private MappedByteBuffer map(long position, long size) throws IOException {
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        return segment;
+    }
+
+    private static long newStoreId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    private static int crc(ByteBuffer record, int recordSize) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.slice(8, recordSize - 8));
+        return (int) crc.getValue();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer, int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return bytes;
+    }
+
+    private static int vectorOffset(int modelLength) {
+        return align(RECORD_HEADER_BYTES + modelLength, 4);
+    }
+
+    private static int align(int value, int alignment) {
+        return (value + alignment - 1) & -alignment;
+    }
+
+    /**
+     * @param model        Модель из ответа ProxyAPI
+     * @param vector       Вектор, читаемый прямо из отображённого файла (только для чтения)
+     * @param promptTokens Токены входного текста
+     */
+    public record StoredEmbedding(String model, FloatBuffer vector, int promptTokens) {
+    }
+}
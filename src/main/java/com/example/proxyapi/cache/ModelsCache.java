@@ -0,0 +1,96 @@
+package com.example.proxyapi.cache;
+
+import com.example.proxyapi.config.ModelsCacheProperties;
+import com.example.proxyapi.utils.Hashes;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Кеш списка моделей.
+ * <p>
+ * Свежий ответ (моложе TTL) отдаётся из памяти. Устаревший, но не старше
+ * {@code stale-while-revalidate}, тоже отдаётся сразу, а новый загружается в фоне.
+ * Если ответ ещё старше, клиент ждёт загрузки; при её ошибке отдаётся последний
+ * успешно полученный ответ. Одновременно выполняется не больше одной загрузки.
+ */
+@Slf4j
+public class ModelsCache {
+
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final Supplier<CompletableFuture<byte[]>> loader;
+
+    private volatile Entry entry;
+    private final AtomicReference<CompletableFuture<CachedResponse>> loading = new AtomicReference<>();
+
+    /**
+     * @param properties Настройки кеша
+     * @param loader     Загрузка списка моделей из ProxyAPI
+     */
+    public ModelsCache(ModelsCacheProperties properties, Supplier<CompletableFuture<byte[]>> loader) {
+        this.ttlNanos = properties.isEnabled() ? properties.getTtl().toNanos() : 0;
+        this.staleNanos = properties.isEnabled() ? properties.getStaleWhileRevalidate().toNanos() : 0;
+        this.loader = loader;
+    }
+
+    /**
+     * @return Future со списком моделей и его ETag
+     */
+    public CompletableFuture<CachedResponse> get() {
+        Entry current = entry;
+        if (current != null) {
+            long age = System.nanoTime() - current.loadedAtNanos();
+            if (age < ttlNanos) {
+                return CompletableFuture.completedFuture(current.response());
+            }
+            if (age < ttlNanos + staleNanos) {
+                refresh();
+                return CompletableFuture.completedFuture(current.response());
+            }
+            return refresh().exceptionally(e -> {
+                log.warn("Models refresh failed, serving the last good response: {}", e.getMessage());
+                return current.response();
+            });
+        }
+        return refresh();
+    }
+
+    /**
+     * Запустить загрузку или присоединиться к уже идущей.
+     */
+    private CompletableFuture<CachedResponse> refresh() {
+        CompletableFuture<CachedResponse> created = new CompletableFuture<>();
+        CompletableFuture<CachedResponse> existing = loading.compareAndExchange(null, created);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<byte[]> load;
+        try {
+            load = loader.get();
+        } catch (RuntimeException e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+        load.whenComplete((body, error) -> {
+            if (error == null) {
+                CachedResponse response = new CachedResponse(body, etag(body));
+                entry = new Entry(response, System.nanoTime());
+                loading.set(null);
+                created.complete(response);
+            } else {
+                loading.set(null);
+                created.completeExceptionally(error);
+            }
+        });
+        return created;
+    }
+
+    private static String etag(byte[] body) {
+        return "\"" + Hashes.sha256(body).substring(0, 32) + "\"";
+    }
+
+    private record Entry(CachedResponse response, long loadedAtNanos) {
+    }
+}
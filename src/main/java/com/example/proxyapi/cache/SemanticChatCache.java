@@ -0,0 +1,260 @@
+package com.example.proxyapi.cache;
+
+import com.example.proxyapi.config.SemanticCacheProperties;
+import com.example.proxyapi.dto.openai.ChatCompletionRequestDTO;
+import com.example.proxyapi.dto.openai.MessageDTO;
+import com.example.proxyapi.vector.HnswIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Семантический кеш chat-completion: ответ на вопрос отдаётся и на перефразированный вопрос.
+ * <p>
+ * Вектор последнего сообщения пользователя ищется в локальном индексе HNSW
+ * ({@link HnswIndex}) среди ранее заданных вопросов; если косинусная близость к ближайшему
+ * не ниже порога, отдаётся сохранённый ответ. Вопросы разделены по пространствам:
+ * модель, параметры генерации и все предыдущие сообщения (системный промпт и история
+ * диалога) должны совпадать точно, иначе ответ другого контекста был бы неверен.
+ * <p>
+ * Удаления из HNSW нет, поэтому объём ограничен поколениями: когда текущий индекс
+ * пространства заполнен, он становится предыдущим, а самый старый отбрасывается.
+ * Индекс поколения начинается с 16 записей и растёт по мере добавления. Сверх общего
+ * лимита записей или пространств отбрасываются давно не использованные пространства.
+ * <p>
+ * Метрики: {@code proxyapi.chat.semantic-cache.gets} (тег {@code result=hit|miss}),
+ * {@code proxyapi.chat.semantic-cache.similarity} (близость ближайшего вопроса — для
+ * подбора порога), {@code proxyapi.chat.semantic-cache.entries}.
+ */
+@Slf4j
+@Component
+public class SemanticChatCache {
+
+    private static final String USER_ROLE = "user";
+
+    private final SemanticCacheProperties properties;
+    private final Map<HashKey, Namespace> namespaces = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicInteger entryCount = new AtomicInteger();
+    private final Counter hits;
+    private final Counter misses;
+    private final DistributionSummary similarity;
+
+    public SemanticChatCache(SemanticCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.hits = Counter.builder("proxyapi.chat.semantic-cache.gets").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("proxyapi.chat.semantic-cache.gets").tag("result", "miss").register(meterRegistry);
+        this.similarity = DistributionSummary.builder("proxyapi.chat.semantic-cache.similarity")
+                .serviceLevelObjectives(0.8, 0.85, 0.9, 0.95, 0.98)
+                .register(meterRegistry);
+        Gauge.builder("proxyapi.chat.semantic-cache.entries", entryCount, AtomicInteger::get)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * @return Можно ли искать ответ на запрос в кеше: последнее сообщение — непустой вопрос пользователя
+     */
+    public boolean isApplicable(ChatCompletionRequestDTO request) {
+        if (!properties.isEnabled() || request.getMessages() == null || request.getMessages().isEmpty()) {
+            return false;
+        }
+        if (properties.isDeterministicOnly()
+                && (request.getTemperature() == null || request.getTemperature() != 0.0)) {
+            return false;
+        }
+        MessageDTO last = request.getMessages().get(request.getMessages().size() - 1);
+        return USER_ROLE.equals(last.getRole()) && last.getContent() != null && !last.getContent().isBlank();
+    }
+
+    /**
+     * @return Текст, который нужно векторизовать для запроса
+     */
+    public String question(ChatCompletionRequestDTO request) {
+        List<MessageDTO> messages = request.getMessages();
+        return messages.get(messages.size() - 1).getContent();
+    }
+
+    public String embeddingModel() {
+        return properties.getEmbeddingModel();
+    }
+
+    /**
+     * Найти ответ на близкий вопрос.
+     *
+     * @param request  Запрос
+     * @param question Вектор вопроса
+     * @return Тело сохранённого ответа ProxyAPI (UTF-8) или null
+     */
+    public byte[] get(ChatCompletionRequestDTO request, float[] question) {
+        Namespace namespace;
+        synchronized (namespaces) {
+            namespace = namespaces.get(namespaceKey(request));
+        }
+        Entry entry = namespace == null ? null : namespace.closest(question, properties.thresholdFor(request.getModel()));
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.responseJson();
+    }
+
+    /**
+     * Сохранить ответ на вопрос.
+     *
+     * @param request      Запрос
+     * @param question     Вектор вопроса
+     * @param responseJson Тело ответа ProxyAPI (UTF-8)
+     */
+    public void put(ChatCompletionRequestDTO request, float[] question, byte[] responseJson) {
+        HashKey key = namespaceKey(request);
+        Namespace namespace;
+        synchronized (namespaces) {
+            namespace = namespaces.computeIfAbsent(key, k -> new Namespace());
+        }
+        try {
+            namespace.add(question, new Entry(responseJson, System.nanoTime() + properties.getTtl().toNanos()));
+        } catch (IllegalArgumentException e) {
+            // Размерность векторов сменилась вместе с моделью embeddings
+            log.warn("Semantic cache entry rejected: {}", e.getMessage());
+            return;
+        }
+        if (entryCount.get() > properties.getMaxEntries() || namespaceCount() > properties.getMaxNamespaces()) {
+            evictNamespaces(namespace);
+        }
+    }
+
+    private int namespaceCount() {
+        synchronized (namespaces) {
+            return namespaces.size();
+        }
+    }
+
+    private void evictNamespaces(Namespace keep) {
+        synchronized (namespaces) {
+            Iterator<Namespace> iterator = namespaces.values().iterator();
+            while ((entryCount.get() > properties.getMaxEntries() || namespaces.size() > properties.getMaxNamespaces())
+                    && iterator.hasNext()) {
+                Namespace eldest = iterator.next();
+                if (eldest != keep) {
+                    iterator.remove();
+                    entryCount.addAndGet(-eldest.size());
+                }
+            }
+        }
+    }
+
+    /**
+     * Ключ пространства: модель, параметры генерации и все сообщения, кроме последнего.
+     */
+    private static HashKey namespaceKey(ChatCompletionRequestDTO request) {
+        List<MessageDTO> messages = request.getMessages();
+        String[] parts = new String[4 + 2 * (messages.size() - 1)];
+        parts[0] = request.getModel();
+        parts[1] = String.valueOf(request.getTemperature());
+        parts[2] = String.valueOf(request.getMaxTokens());
+        parts[3] = String.valueOf(request.getMaxCompletionTokens());
+        for (int i = 0; i < messages.size() - 1; i++) {
+            parts[4 + 2 * i] = messages.get(i).getRole();
+            parts[5 + 2 * i] = messages.get(i).getContent();
+        }
+        return HashKey.of(parts);
+    }
+
+    /**
+     * @param responseJson   Тело ответа ProxyAPI (UTF-8)
+     * @param expiresAtNanos Когда ответ устаревает (по {@link System#nanoTime()})
+     */
+    private record Entry(byte[] responseJson, long expiresAtNanos) {
+    }
+
+    /**
+     * Вопросы одного пространства: текущее и предыдущее поколения индекса.
+     */
+    private final class Namespace {
+
+        private volatile Generation current;
+        private volatile Generation previous;
+
+        Entry closest(float[] question, double threshold) {
+            float bestScore = Float.NEGATIVE_INFINITY;
+            Entry best = null;
+            for (Generation generation : new Generation[]{current, previous}) {
+                if (generation == null) {
+                    continue;
+                }
+                List<HnswIndex.SearchHit> found = generation.index.search(question, 1, properties.getHnswEfSearch());
+                if (!found.isEmpty() && found.get(0).score() > bestScore) {
+                    bestScore = found.get(0).score();
+                    best = generation.entries[found.get(0).id()];
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            similarity.record(bestScore);
+            return bestScore >= threshold && System.nanoTime() - best.expiresAtNanos() < 0 ? best : null;
+        }
+
+        synchronized void add(float[] question, Entry entry) {
+            int capacity = Math.max(1, properties.getMaxEntriesPerNamespace());
+            if (current == null || current.index.size() >= capacity) {
+                if (previous != null) {
+                    entryCount.addAndGet(-previous.index.size());
+                }
+                previous = current;
+                current = new Generation(question.length);
+            }
+            // Единственный писатель: номер узла заранее известен, ответ публикуется раньше узла
+            int node = current.index.size();
+            current.ensureCapacity(node + 1, capacity);
+            current.entries[node] = entry;
+            current.index.add(question);
+            entryCount.incrementAndGet();
+        }
+
+        int size() {
+            Generation c = current;
+            Generation p = previous;
+            return (c == null ? 0 : c.index.size()) + (p == null ? 0 : p.index.size());
+        }
+    }
+
+    private final class Generation {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        final HnswIndex index;
+        volatile Entry[] entries;
+
+        Generation(int dimensions) {
+            this.index = new HnswIndex(dimensions, properties.getHnswM(), properties.getHnswEfConstruction(),
+                    INITIAL_CAPACITY);
+            this.entries = new Entry[INITIAL_CAPACITY];
+        }
+
+        /**
+         * Вырастить массив ответов вдвое (не больше {@code max}). Новый массив публикуется
+         * раньше узла индекса, поэтому поиск, нашедший узел, видит и его ответ.
+         */
+        void ensureCapacity(int size, int max) {
+            Entry[] current = entries;
+            if (size > current.length) {
+                entries = Arrays.copyOf(current, Math.min(Math.max(size, current.length * 2), Math.max(size, max)));
+            }
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.proxyapi.cache;
+
+import com.example.proxyapi.config.SpeechCacheProperties;
+import com.example.proxyapi.dto.openai.AudioSpeechRequestDTO;
+import com.example.proxyapi.utils.Hashes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Дисковый кеш синтезированной речи.
+ * <p>
+ * Файл называется SHA-256 от модели, голоса, текста и формата, поэтому одинаковые
+ * запросы находят один и тот же файл, а его имя служит сильным ETag. Аудио пишется
+ * в кеш по ходу пересылки клиенту ({@link #tee}) во временный файл и попадает в кеш
+ * атомарным переименованием только целиком. Суммарный размер ограничен
+ * {@code api.speech-cache.max-size}, удаляются давно не использованные файлы; после
+ * перезапуска порядок восстанавливается по времени изменения файлов.
+ * <p>
+ * Найденный файл открывается сразу, до записи заголовков ответа: открытый файл можно
+ * дочитать и после удаления. Вытесненные файлы удаляются не сразу, а через
+ * {@link #EVICTED_FILE_GRACE} — чтобы Tomcat успел открыть файл, отдаваемый через sendfile
+ * по имени. Если файла всё же нет, запрос считается промахом и идёт в ProxyAPI.
+ * <p>
+ * Метрики: {@code proxyapi.speech.cache.gets} (тег {@code result=hit|miss}),
+ * {@code proxyapi.speech.cache.size}.
+ */
+@Slf4j
+@Component
+public class SpeechCache {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Duration EVICTED_FILE_GRACE = Duration.ofSeconds(30);
+
+    private final SpeechCacheProperties properties;
+    private final long maxSize;
+    private final Map<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSize;
+    private final Counter hits;
+    private final Counter misses;
+
+    public SpeechCache(SpeechCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.maxSize = properties.getMaxSize().toBytes();
+        this.hits = Counter.builder("proxyapi.speech.cache.gets").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("proxyapi.speech.cache.gets").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("proxyapi.speech.cache.size", this, SpeechCache::totalSize)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        if (properties.isEnabled()) {
+            load();
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Найти синтезированное ранее аудио и открыть его файл.
+     *
+     * @return Открытый файл аудио (закрывает вызывающий) или null
+     */
+    public CachedAudio get(AudioSpeechRequestDTO request) {
+        String name = fileName(request);
+        Long size;
+        synchronized (this) {
+            size = files.get(name);
+        }
+        if (size == null) {
+            misses.increment();
+            return null;
+        }
+        Path file = properties.getDirectory().resolve(name);
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            if (channel.size() == size) {
+                hits.increment();
+                return new CachedAudio(file, channel, size, "\"" + name + "\"");
+            }
+            log.warn("Speech cache file {} has unexpected size, dropping it", file);
+        } catch (IOException e) {
+            log.warn("Speech cache file {} is not readable, dropping it: {}", file, e.toString());
+        }
+        if (channel != null) {
+            closeQuietly(channel);
+        }
+        forget(name, size);
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Обернуть поток аудио от ProxyAPI так, чтобы прочитанное сохранялось в кеш.
+     * Файл попадает в кеш, только если поток дочитан до конца; если чтение прервано
+     * (клиент отключился, ошибка ProxyAPI), временный файл удаляется при закрытии.
+     *
+     * @param request Запрос синтеза
+     * @param audio   Поток аудио от ProxyAPI
+     * @return Поток с теми же данными
+     */
+    public InputStream tee(AudioSpeechRequestDTO request, InputStream audio) {
+        try {
+            Path directory = properties.getDirectory();
+            Files.createDirectories(directory);
+            String name = fileName(request);
+            Path temporary = Files.createTempFile(directory, name, TEMP_SUFFIX);
+            return new TeeInputStream(audio, name, temporary);
+        } catch (IOException e) {
+            log.warn("Speech cache is not writable, serving without caching: {}", e.getMessage());
+            return audio;
+        }
+    }
+
+    private synchronized long totalSize() {
+        return totalSize;
+    }
+
+    private void commit(String name, Path temporary, long size) throws IOException {
+        Path target = properties.getDirectory().resolve(name);
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this) {
+            Long previous = files.put(name, size);
+            totalSize += size - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<String, Long>> eldest = files.entrySet().iterator();
+            while (totalSize > maxSize && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(name)) {
+                    continue;
+                }
+                eldest.remove();
+                totalSize -= entry.getValue();
+                deleteEvicted(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Убрать запись, файл которой пропал или повреждён, если она не заменена новой.
+     */
+    private synchronized void forget(String name, long size) {
+        Long current = files.get(name);
+        if (current != null && current == size) {
+            files.remove(name);
+            totalSize -= size;
+        }
+    }
+
+    /**
+     * Удалить вытесненный файл через {@link #EVICTED_FILE_GRACE}, если за это время
+     * то же аудио не попало в кеш снова.
+     */
+    private void deleteEvicted(String name) {
+        Path file = properties.getDirectory().resolve(name);
+        CompletableFuture.delayedExecutor(EVICTED_FILE_GRACE.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            synchronized (this) {
+                if (!files.containsKey(name)) {
+                    deleteQuietly(file);
+                }
+            }
+        });
+    }
+
+    /**
+     * Зарегистрировать файлы, оставшиеся с прошлого запуска, от старых к новым.
+     */
+    private void load() {
+        Path directory = properties.getDirectory();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.map(path -> {
+                        try {
+                            return Map.entry(path, Files.readAttributes(path, BasicFileAttributes.class));
+                        } catch (IOException e) {
+                            return null;
+                        }
+                    })
+                    .filter(entry -> entry != null && entry.getValue().isRegularFile())
+                    .sorted(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()))
+                    .forEach(entry -> {
+                        String name = entry.getKey().getFileName().toString();
+                        if (name.endsWith(TEMP_SUFFIX)) {
+                            deleteQuietly(entry.getKey());
+                        } else {
+                            files.put(name, entry.getValue().size());
+                            totalSize += entry.getValue().size();
+                        }
+                    });
+            log.info("Speech cache {}: {} files, {} bytes", directory, files.size(), totalSize);
+        } catch (IOException e) {
+            log.warn("Failed to scan speech cache {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static String fileName(AudioSpeechRequestDTO request) {
+        return Hashes.sha256(request.getModel(), request.getVoice(), request.getInput(), request.getFormat());
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Failed to close speech cache file: {}", e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("Failed to delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * @param file    Файл аудио
+     * @param channel Файл, открытый на чтение
+     * @param size    Размер, байт
+     * @param etag    Сильный ETag (в кавычках, как в заголовке)
+     */
+    public record CachedAudio(Path file, FileChannel channel, long size, String etag) implements Closeable {
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Поток, копирующий прочитанное во временный файл кеша.
+     */
+    private final class TeeInputStream extends FilterInputStream {
+
+        private final String name;
+        private final Path temporary;
+        private FileChannel channel;
+        private long written;
+        private boolean done;
+
+        TeeInputStream(InputStream in, String name, Path temporary) throws IOException {
+            super(in);
+            this.name = name;
+            this.temporary = temporary;
+            this.channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (channel == null) {
+                return read;
+            }
+            if (read == -1) {
+                finish();
+            } else if (written + read > maxSize) {
+                // Файл больше всего кеша — не сохраняем
+                abandon();
+            } else {
+                ByteBuffer chunk = ByteBuffer.wrap(b, off, read);
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+                written += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                abandon();
+            }
+        }
+
+        private void finish() {
+            try {
+                channel.close();
+                channel = null;
+                commit(name, temporary, written);
+                done = true;
+            } catch (IOException e) {
+                log.warn("Failed to store speech in cache: {}", e.getMessage());
+                abandon();
+            }
+        }
+
+        private void abandon() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close {}: {}", temporary, e.getMessage());
+                }
+                channel = null;
+            }
+            if (!done) {
+                deleteQuietly(temporary);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.proxyapi.config;
+
+import com.example.proxyapi.utils.ProxyApiEndpoint;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Настройки допуска входящих запросов (префикс {@code api.admission}).
+ * <p>
+ * Лимиты со значением 0 не ограничивают.
+ */
+@Data
+@ConfigurationProperties(prefix = "api.admission")
+public class AdmissionProperties {
+
+    /**
+     * Включён ли контроль допуска.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Заголовок с идентификатором клиента; если не задан, клиент определяется по IP-адресу.
+     * Значение заголовка задаёт сам клиент: меняя его, он получает новые вёдра и обходит
+     * свой лимит. Задавайте заголовок, только если его выставляет доверенный шлюз перед
+     * прокси, а значение от клиента отбрасывается.
+     */
+    private String callerHeader;
+
+    /**
+     * Сколько клиентов отслеживается одновременно. Клиенты сверх этого числа делят одно
+     * общее ведро с лимитами {@link #perCaller} до очистки простаивающих.
+     */
+    private int maxCallers = 10_000;
+
+    /**
+     * Сколько запросов может одновременно ждать допуска.
+     */
+    private int maxQueueSize = 100;
+
+    /**
+     * Максимальное время ожидания допуска; если ждать дольше, запрос сразу отклоняется с 429.
+     */
+    private Duration maxQueueDelay = Duration.ofSeconds(2);
+
+    /**
+     * Лимиты по эндпоинтам, например {@code api.admission.routes.chat-completions.requests-per-second=20}.
+     */
+    private Map<ProxyApiEndpoint, Limit> routes = new EnumMap<>(ProxyApiEndpoint.class);
+
+    /**
+     * Лимиты одного клиента (по всем эндпоинтам вместе).
+     */
+    private Limit perCaller = new Limit();
+
+    @Data
+    public static class Limit {
+        /**
+         * Запросов в секунду.
+         */
+        private double requestsPerSecond;
+
+        /**
+         * Сколько запросов можно принять разом сверх равномерного темпа;
+         * по умолчанию — секундный объём {@link #requestsPerSecond}.
+         */
+        private Integer burst;
+
+        /**
+         * Оценочных токенов в минуту.
+         */
+        private long tokensPerMinute;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.proxyapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Настройки кеша ответов chat-completion (префикс {@code api.chat-cache}).
+ */
+@Data
+@ConfigurationProperties(prefix = "api.chat-cache")
+public class ChatCacheProperties {
+
+    /**
+     * Включён ли кеш. Кешируются только детерминированные запросы (temperature=0).
+     */
+    private boolean enabled = false;
+
+    /**
+     * Объём памяти под закешированные ответы.
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Срок жизни ответа по умолчанию.
+     */
+    private Duration ttl = Duration.ofHours(1);
+
+    /**
+     * Срок жизни ответа для отдельных моделей; 0 — не кешировать ответы модели.
+     */
+    private Map<String, Duration> modelTtls = new HashMap<>();
+
+    /**
+     * @return Срок жизни ответа модели
+     */
+    public Duration ttlFor(String model) {
+        return modelTtls.getOrDefault(model, ttl);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.proxyapi.config;
+
+import com.example.proxyapi.utils.ProxyApiEndpoint;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Настройки circuit breaker'ов эндпоинтов ProxyAPI (префикс {@code api.circuit-breaker}).
+ */
+@Data
+@ConfigurationProperties(prefix = "api.circuit-breaker")
+public class CircuitBreakerProperties {
+
+    /**
+     * Включены ли circuit breaker'ы.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Размер скользящего окна — сколько последних вызовов учитывается.
+     */
+    private int slidingWindowSize = 50;
+
+    /**
+     * Минимальное число вызовов в окне, после которого считается доля ошибок.
+     */
+    private int minimumNumberOfCalls = 10;
+
+    /**
+     * Доля ошибок (в процентах), при которой breaker размыкается.
+     */
+    private float failureRateThreshold = 50;
+
+    /**
+     * Вызов дольше этого времени считается медленным.
+     */
+    private Duration slowCallDurationThreshold = Duration.ofSeconds(60);
+
+    /**
+     * Доля медленных вызовов (в процентах), при которой breaker размыкается.
+     */
+    private float slowCallRateThreshold = 80;
+
+    /**
+     * Сколько breaker остаётся разомкнутым перед пробными вызовами.
+     */
+    private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+
+    /**
+     * Число пробных вызовов в полуоткрытом состоянии.
+     */
+    private int permittedCallsInHalfOpenState = 3;
+
+    /**
+     * Максимум одновременных вызовов эндпоинта (0 — без ограничения).
+     * Не даёт одному деградировавшему эндпоинту занять все соединения.
+     */
+    private int maxConcurrentCalls = 0;
+
+    /**
+     * Переопределения для отдельных эндпоинтов, например
+     * {@code api.circuit-breaker.endpoints.image-generations.slow-call-duration-threshold=90s}.
+     */
+    private Map<ProxyApiEndpoint, EndpointPolicy> endpoints = new EnumMap<>(ProxyApiEndpoint.class);
+
+    /**
+     * Итоговые настройки для эндпоинта: переопределения поверх общих значений.
+     *
+     * @param endpoint Эндпоинт ProxyAPI
+     * @return Настройки breaker'а эндпоинта
+     */
+    public EndpointPolicy resolve(ProxyApiEndpoint endpoint) {
+        EndpointPolicy override = endpoints.getOrDefault(endpoint, new EndpointPolicy());
+        EndpointPolicy policy = new EndpointPolicy();
+        policy.setSlidingWindowSize(override.getSlidingWindowSize() != null ? override.getSlidingWindowSize() : slidingWindowSize);
+        policy.setMinimumNumberOfCalls(override.getMinimumNumberOfCalls() != null ? override.getMinimumNumberOfCalls() : minimumNumberOfCalls);
+        policy.setFailureRateThreshold(override.getFailureRateThreshold() != null ? override.getFailureRateThreshold() : failureRateThreshold);
+        policy.setSlowCallDurationThreshold(override.getSlowCallDurationThreshold() != null ? override.getSlowCallDurationThreshold() : slowCallDurationThreshold);
+        policy.setSlowCallRateThreshold(override.getSlowCallRateThreshold() != null ? override.getSlowCallRateThreshold() : slowCallRateThreshold);
+        policy.setWaitDurationInOpenState(override.getWaitDurationInOpenState() != null ? override.getWaitDurationInOpenState() : waitDurationInOpenState);
+        policy.setPermittedCallsInHalfOpenState(override.getPermittedCallsInHalfOpenState() != null ? override.getPermittedCallsInHalfOpenState() : permittedCallsInHalfOpenState);
+        policy.setMaxConcurrentCalls(override.getMaxConcurrentCalls() != null ? override.getMaxConcurrentCalls() : maxConcurrentCalls);
+        return policy;
+    }
+
+    /**
+     * Настройки breaker'а эндпоинта; незаданные поля берутся из общих.
+     */
+    @Data
+    public static class EndpointPolicy {
+        private Integer slidingWindowSize;
+        private Integer minimumNumberOfCalls;
+        private Float failureRateThreshold;
+        private Duration slowCallDurationThreshold;
+        private Float slowCallRateThreshold;
+        private Duration waitDurationInOpenState;
+        private Integer permittedCallsInHalfOpenState;
+        private Integer maxConcurrentCalls;
+    }
+}
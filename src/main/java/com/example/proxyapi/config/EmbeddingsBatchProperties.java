@@ -0,0 +1,45 @@
+package com.example.proxyapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки пакетных запросов embeddings (префикс {@code api.embeddings-batch}): объединение
+ * одновременных одиночных запросов и деление массивов текстов на запросы к ProxyAPI.
+ */
+@Data
+@ConfigurationProperties(prefix = "api.embeddings-batch")
+public class EmbeddingsBatchProperties {
+
+    /**
+     * Включено ли объединение.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Максимум текстов в одном запросе к ProxyAPI (OpenAI принимает до 2048).
+     */
+    private int maxBatchSize = 64;
+
+    /**
+     * Сколько первый запрос ждёт остальных, прежде чем пакет уйдёт неполным.
+     */
+    private Duration maxDelay = Duration.ofMillis(5);
+
+    /**
+     * Максимум текстов в одном запросе, на которые делится массив из запроса клиента (лимит OpenAI — 2048).
+     */
+    private int maxInputsPerRequest = 2048;
+
+    /**
+     * Максимум токенов (по оценке) в одном таком запросе (лимит OpenAI — 300 000).
+     */
+    private long maxTokensPerRequest = 300_000;
+
+    /**
+     * Сколько частей одного массива выполняется одновременно.
+     */
+    private int parallelism = 4;
+}
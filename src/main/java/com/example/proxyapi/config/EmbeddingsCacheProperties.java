@@ -0,0 +1,31 @@
+package com.example.proxyapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Настройки кеша embeddings (префикс {@code api.embeddings-cache}).
+ */
+@Data
+@ConfigurationProperties(prefix = "api.embeddings-cache")
+public class EmbeddingsCacheProperties {
+
+    /**
+     * Включён ли кеш.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Объём памяти под векторы (оценка по размеру float[] и служебных объектов).
+     * Вектор 1536 измерений занимает около 6 КБ.
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(256);
+
+    /**
+     * Срок жизни записи; 0 — без срока (embedding текста для модели не меняется).
+     */
+    private Duration ttl = Duration.ZERO;
+}
@@ -0,0 +1,43 @@
+package com.example.proxyapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Настройки постоянного хранилища embeddings на диске (префикс {@code api.embeddings-store}).
+ */
+@Data
+@ConfigurationProperties(prefix = "api.embeddings-store")
+public class EmbeddingsStoreProperties {
+
+    /**
+     * Включено ли хранилище.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Каталог с файлами хранилища ({@code embeddings.dat} и {@code embeddings.idx}).
+     */
+    private Path directory = Path.of("data");
+
+    /**
+     * Максимальный размер файла с векторами; после его достижения новые векторы
+     * на диск не пишутся (кеш в памяти продолжает работать).
+     */
+    private DataSize maxSize = DataSize.ofGigabytes(4);
+
+    /**
+     * Размер одного отображаемого в память фрагмента файла. Применяется только к новому файлу:
+     * у существующего берётся из его заголовка.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Как часто сбрасывать записанные векторы на диск и сохранять индекс.
+     */
+    private Duration checkpointInterval = Duration.ofSeconds(30);
+}
@@ -0,0 +1,89 @@
+package com.example.proxyapi.config;
+
+import com.example.proxyapi.utils.ProxyApiEndpoint;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Настройки HTTP-клиента для обращения к ProxyAPI (префикс {@code api.http}).
+ */
+@Data
+@ConfigurationProperties(prefix = "api.http")
+public class HttpClientProperties {
+
+    /**
+     * Таймаут установки TCP/TLS-соединения.
+     */
+    private Duration connectTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Таймаут запроса по умолчанию (до получения заголовков ответа).
+     */
+    private Duration requestTimeout = Duration.ofSeconds(120);
+
+    /**
+     * Таймауты запроса для отдельных эндпоинтов, например {@code api.http.timeouts.models=10s}.
+     */
+    private Map<ProxyApiEndpoint, Duration> timeouts = new EnumMap<>(ProxyApiEndpoint.class);
+
+    /**
+     * Максимальная длительность потоковой передачи ответа (SSE) клиенту; 0 — без ограничения.
+     * Не зависит от {@code spring.mvc.async.request-timeout}: генерация длинного ответа
+     * может идти дольше обычного запроса.
+     */
+    private Duration streamTimeout = Duration.ofMinutes(30);
+
+    /**
+     * Предпочитаемая версия HTTP. При HTTP_2 клиент откатывается на HTTP/1.1, если сервер не поддерживает HTTP/2.
+     */
+    private HttpClient.Version version = HttpClient.Version.HTTP_2;
+
+    /**
+     * Пул потоков, на котором HttpClient выполняет асинхронные задачи.
+     */
+    private ExecutorType executor = ExecutorType.DEFAULT;
+
+    /**
+     * Размер пула для {@link ExecutorType#FIXED}.
+     */
+    private int executorThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * Количество независимых экземпляров HttpClient. У каждого свой пул соединений,
+     * поэтому при HTTP/2 запросы распределяются по нескольким TCP-соединениям.
+     */
+    private int clients = 1;
+
+    /**
+     * Таймаут запроса для эндпоинта с учётом значения по умолчанию.
+     *
+     * @param endpoint Эндпоинт ProxyAPI
+     * @return Таймаут запроса
+     */
+    public Duration timeoutFor(ProxyApiEndpoint endpoint) {
+        return timeouts.getOrDefault(endpoint, requestTimeout);
+    }
+
+    /**
+     * Тип пула потоков HttpClient.
+     */
+    public enum ExecutorType {
+        /**
+         * Встроенный пул HttpClient.
+         */
+        DEFAULT,
+        /**
+         * Виртуальный поток на каждую задачу.
+         */
+        VIRTUAL,
+        /**
+         * Фиксированный пул из {@code executor-threads} потоков.
+         */
+        FIXED
+    }
+}
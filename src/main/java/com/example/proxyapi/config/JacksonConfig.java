@@ -0,0 +1,22 @@
+package com.example.proxyapi.config;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Настройка общего {@code ObjectMapper} Spring, которым пользуются и контроллеры, и
+ * {@code OpenAiService}: Spring Boot регистрирует в нём все бины-модули Jackson.
+ */
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Геттеры, сеттеры и конструкторы DTO вызываются через сгенерированные при старте
+     * лямбды ({@code LambdaMetafactory}), а не через рефлексию — быстрее на каждом поле.
+     */
+    @Bean
+    public BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
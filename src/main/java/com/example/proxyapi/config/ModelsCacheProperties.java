@@ -0,0 +1,30 @@
+package com.example.proxyapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки кеша списка моделей (префикс {@code api.models-cache}).
+ */
+@Data
+@ConfigurationProperties(prefix = "api.models-cache")
+public class ModelsCacheProperties {
+
+    /**
+     * Включён ли кеш. Без кеша одновременные запросы всё равно объединяются в один.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Сколько ответ считается свежим и отдаётся без обращения к ProxyAPI.
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    /**
+     * Сколько после истечения TTL устаревший ответ ещё отдаётся сразу, пока в фоне
+     * загружается новый. Позже клиент ждёт загрузки.
+     */
+    private Duration staleWhileRevalidate = Duration.ofHours(1);
+}
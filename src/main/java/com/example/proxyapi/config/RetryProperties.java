@@ -0,0 +1,112 @@
+package com.example.proxyapi.config;
+
+import com.example.proxyapi.utils.ProxyApiEndpoint;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Настройки повторов запросов к ProxyAPI (префикс {@code api.retry}).
+ */
+@Data
+@ConfigurationProperties(prefix = "api.retry")
+public class RetryProperties {
+
+    /**
+     * Включены ли повторы.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Максимальное число попыток, включая первую.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Базовая задержка перед первым повтором.
+     */
+    private Duration initialBackoff = Duration.ofMillis(500);
+
+    /**
+     * Верхняя граница задержки между попытками.
+     */
+    private Duration maxBackoff = Duration.ofSeconds(10);
+
+    /**
+     * Множитель экспоненциального роста задержки.
+     */
+    private double multiplier = 2.0;
+
+    /**
+     * Максимальная задержка из Retry-After / x-ratelimit-reset-*, которую прокси готов выждать.
+     * Если сервер просит ждать дольше, ошибка сразу возвращается клиенту.
+     */
+    private Duration maxRetryAfter = Duration.ofSeconds(20);
+
+    /**
+     * Предельное время запроса со всеми попытками и паузами между ними. Повтор начинается,
+     * только если он успеет закончиться к этому сроку даже при таймауте попытки
+     * ({@code api.http.request-timeout} или таймаут эндпоинта). Должно быть меньше
+     * {@code spring.mvc.async.request-timeout}: иначе клиент получит 503 по таймауту,
+     * пока прокси ещё повторяет запрос.
+     */
+    private Duration maxTotalTime = Duration.ofSeconds(170);
+
+    /**
+     * Коды ответа, при которых запрос повторяется.
+     */
+    private Set<Integer> retryableStatuses = Set.of(408, 429, 500, 502, 503, 504);
+
+    /**
+     * Доля повторов от общего числа запросов, которую разрешает бюджет.
+     */
+    private double budgetRatio = 0.2;
+
+    /**
+     * Минимальное число повторов в секунду, доступное независимо от трафика.
+     */
+    private double budgetMinRetriesPerSecond = 1.0;
+
+    /**
+     * Переопределения для отдельных эндпоинтов, например {@code api.retry.endpoints.image-generations.max-attempts=1}.
+     */
+    private Map<ProxyApiEndpoint, EndpointPolicy> endpoints = new EnumMap<>(ProxyApiEndpoint.class);
+
+    /**
+     * @return Максимальное число попыток для эндпоинта
+     */
+    public int maxAttemptsFor(ProxyApiEndpoint endpoint) {
+        EndpointPolicy policy = endpoints.get(endpoint);
+        return policy != null && policy.getMaxAttempts() != null ? policy.getMaxAttempts() : maxAttempts;
+    }
+
+    /**
+     * @return Базовая задержка для эндпоинта
+     */
+    public Duration initialBackoffFor(ProxyApiEndpoint endpoint) {
+        EndpointPolicy policy = endpoints.get(endpoint);
+        return policy != null && policy.getInitialBackoff() != null ? policy.getInitialBackoff() : initialBackoff;
+    }
+
+    /**
+     * @return Верхняя граница задержки для эндпоинта
+     */
+    public Duration maxBackoffFor(ProxyApiEndpoint endpoint) {
+        EndpointPolicy policy = endpoints.get(endpoint);
+        return policy != null && policy.getMaxBackoff() != null ? policy.getMaxBackoff() : maxBackoff;
+    }
+
+    /**
+     * Настройки повторов для эндпоинта; незаданные поля берутся из общих.
+     */
+    @Data
+    public static class EndpointPolicy {
+        private Integer maxAttempts;
+        private Duration initialBackoff;
+        private Duration maxBackoff;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.proxyapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Настройки семантического кеша chat-completion (префикс {@code api.semantic-cache}).
+ */
+@Data
+@ConfigurationProperties(prefix = "api.semantic-cache")
+public class SemanticCacheProperties {
+
+    /**
+     * Включён ли кеш.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Модель, которой векторизуется последнее сообщение пользователя.
+     */
+    private String embeddingModel = "text-embedding-3-small";
+
+    /**
+     * Минимальная косинусная близость вопросов, при которой отдаётся закешированный ответ.
+     */
+    private double similarityThreshold = 0.95;
+
+    /**
+     * Порог близости для отдельных моделей chat-completion.
+     */
+    private Map<String, Double> modelThresholds = new HashMap<>();
+
+    /**
+     * Кешировать только детерминированные запросы (temperature=0).
+     */
+    private boolean deterministicOnly = true;
+
+    /**
+     * Срок жизни ответа.
+     */
+    private Duration ttl = Duration.ofHours(1);
+
+    /**
+     * Сколько ответов хранить в одном пространстве (модель + системный промпт + история диалога).
+     * При заполнении пространство начинает новый индекс, а самый старый отбрасывается.
+     */
+    private int maxEntriesPerNamespace = 5000;
+
+    /**
+     * Сколько ответов хранить всего; сверх этого отбрасываются давно не использованные пространства.
+     * Запись занимает {@code 4 × размерность + 4 × (2 × hnsw-m + 1)} байт индекса (около 6,3 КБ
+     * при 1536 измерениях) плюс тело ответа.
+     */
+    private int maxEntries = 20000;
+
+    /**
+     * Сколько пространств хранить всего. У каждого диалога своё пространство, а индекс
+     * пространства занимает место минимум под 16 записей (около 100 КБ при 1536 измерениях),
+     * поэтому лимит записей сам по себе не ограничивает память.
+     */
+    private int maxNamespaces = 1000;
+
+    /**
+     * Параметры графа HNSW: число связей узла и ширина поиска при добавлении и при поиске.
+     */
+    private int hnswM = 16;
+    private int hnswEfConstruction = 100;
+    private int hnswEfSearch = 64;
+
+    /**
+     * @return Порог близости для модели
+     */
+    public double thresholdFor(String model) {
+        return modelThresholds.getOrDefault(model, similarityThreshold);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.proxyapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+/**
+ * Настройки дискового кеша синтезированной речи (префикс {@code api.speech-cache}).
+ */
+@Data
+@ConfigurationProperties(prefix = "api.speech-cache")
+public class SpeechCacheProperties {
+
+    /**
+     * Включён ли кеш.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Каталог с аудиофайлами.
+     */
+    private Path directory = Path.of("data", "speech");
+
+    /**
+     * Суммарный размер файлов; сверх него удаляются давно не использованные.
+     */
+    private DataSize maxSize = DataSize.ofGigabytes(1);
+}
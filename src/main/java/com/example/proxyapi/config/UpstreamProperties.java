@@ -0,0 +1,139 @@
+package com.example.proxyapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Настройки пула апстримов — OpenAI-совместимых шлюзов (префикс {@code api.upstream}).
+ * <p>
+ * Если {@code api.upstream.servers} не заданы, используется единственный апстрим
+ * из {@code api.base-url} и {@code api.key} (или {@code api.upstream.api-keys}).
+ */
+@Data
+@ConfigurationProperties(prefix = "api.upstream")
+public class UpstreamProperties {
+
+    /**
+     * Алгоритм выбора апстрима.
+     */
+    private Balancer balancer = Balancer.PEAK_EWMA;
+
+    /**
+     * Ключи API апстрима по умолчанию и апстримов без собственных ключей. Если список пуст,
+     * используется {@code api.key}. Запросы распределяются между ключами по остатку лимитов.
+     */
+    private List<String> apiKeys = new ArrayList<>();
+
+    /**
+     * Апстримы пула.
+     */
+    private List<Server> servers = new ArrayList<>();
+
+    /**
+     * Веса апстримов для отдельных моделей: модель -> имя апстрима -> вес, например
+     * {@code api.upstream.model-weights.gpt-4o.primary=3}. Вес 0 исключает апстрим для модели.
+     * Для моделей без записи используются веса из {@link Server#getWeight()}.
+     */
+    private Map<String, Map<String, Integer>> modelWeights = new HashMap<>();
+
+    /**
+     * Пассивное исключение апстримов по результатам обычных запросов.
+     */
+    private Ejection ejection = new Ejection();
+
+    /**
+     * Активная проверка апстримов запросом к {@code /v1/models}.
+     */
+    private HealthCheck healthCheck = new HealthCheck();
+
+    public enum Balancer {
+        /**
+         * Меньше всего запросов в процессе.
+         */
+        LEAST_OUTSTANDING,
+        /**
+         * Пиковая EWMA задержки, умноженная на число запросов в процессе.
+         */
+        PEAK_EWMA
+    }
+
+    @Data
+    public static class Server {
+        /**
+         * Имя апстрима (для логов, мониторинга и весов моделей).
+         */
+        private String name;
+
+        /**
+         * Базовый URL, например {@code https://api.proxyapi.ru/openai}.
+         */
+        private String baseUrl;
+
+        /**
+         * Ключ API; если не задан, используются {@code api.upstream.api-keys} или {@code api.key}.
+         */
+        private String apiKey;
+
+        /**
+         * Несколько ключей API апстрима (вместо {@link #apiKey}).
+         */
+        private List<String> apiKeys = new ArrayList<>();
+
+        /**
+         * Вес апстрима при выборе.
+         */
+        private int weight = 1;
+    }
+
+    @Data
+    public static class Ejection {
+        /**
+         * Сколько ошибок подряд приводит к исключению апстрима.
+         */
+        private int consecutiveFailures = 5;
+
+        /**
+         * Ответ дольше этого времени считается ошибкой для исключения (0 — не учитывать).
+         */
+        private Duration slowResponseThreshold = Duration.ZERO;
+
+        /**
+         * Время первого исключения; каждое следующее подряд длиннее на эту величину.
+         */
+        private Duration baseEjectionTime = Duration.ofSeconds(30);
+
+        /**
+         * Максимальное время исключения.
+         */
+        private Duration maxEjectionTime = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class HealthCheck {
+        /**
+         * Включены ли активные проверки.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Интервал между проверками.
+         */
+        private Duration interval = Duration.ofSeconds(30);
+
+        /**
+         * Таймаут одной проверки.
+         */
+        private Duration timeout = Duration.ofSeconds(5);
+
+        /**
+         * Сколько неудачных проверок подряд помечают апстрим нездоровым.
+         */
+        private int unhealthyThreshold = 2;
+    }
+}
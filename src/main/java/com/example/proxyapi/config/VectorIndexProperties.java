@@ -0,0 +1,47 @@
+package com.example.proxyapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки именованных индексов поиска по embeddings (префикс {@code api.vector-index}).
+ */
+@Data
+@ConfigurationProperties(prefix = "api.vector-index")
+public class VectorIndexProperties {
+
+    /**
+     * Включены ли индексы.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Максимум индексов; новый индекс сверх лимита не создаётся.
+     */
+    private int maxIndexes = 16;
+
+    /**
+     * Максимум векторов в одном индексе.
+     */
+    private int maxVectorsPerIndex = 100_000;
+
+    /**
+     * Максимум результатов одного поиска.
+     */
+    private int maxK = 100;
+
+    /**
+     * Число связей узла графа HNSW (на нулевом уровне — вдвое больше).
+     */
+    private int hnswM = 16;
+
+    /**
+     * Ширина поиска соседей при добавлении в HNSW.
+     */
+    private int hnswEfConstruction = 100;
+
+    /**
+     * Ширина поиска по умолчанию: больше — точнее, но медленнее.
+     */
+    private int hnswEfSearch = 64;
+}
@@ -0,0 +1,27 @@
+package com.example.proxyapi.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Пул, на котором Spring MVC пишет ответы {@code StreamingResponseBody} (поток TTS).
+ * <p>
+ * По умолчанию это {@code applicationTaskExecutor} Spring Boot — 8 потоков и неограниченная
+ * очередь, — и девятый одновременный поток аудио ждал бы в очереди до таймаута запроса.
+ * Запись ответа — блокирующее копирование из ProxyAPI клиенту, поэтому каждой передаче
+ * отводится свой виртуальный поток, а поток запросов ограничивают {@code AdmissionGate}
+ * и {@code max-concurrent-calls} circuit breaker'а. Исполнитель не регистрируется бином, чтобы не заменить
+ * {@code applicationTaskExecutor} для остального приложения.
+ */
+@Configuration
+public class WebMvcAsyncConfig implements WebMvcConfigurer {
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("mvc-async-");
+        executor.setVirtualThreads(true);
+        configurer.setTaskExecutor(executor);
+    }
+}
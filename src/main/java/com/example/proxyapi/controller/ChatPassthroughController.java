@@ -0,0 +1,86 @@
+package com.example.proxyapi.controller;
+
+import com.example.proxyapi.admission.AdmissionGate;
+import com.example.proxyapi.admission.TokenEstimator;
+import com.example.proxyapi.config.HttpClientProperties;
+import com.example.proxyapi.service.OpenAiService;
+import com.example.proxyapi.utils.ChatRequestRewriter;
+import com.example.proxyapi.utils.ProxyApiEndpoint;
+import com.example.proxyapi.utils.SseRelayEmitter;
+import io.swagger.v3.oas.annotations.Hidden;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Chat Completion в режиме passthrough ({@code api.chat-passthrough.enabled=true}).
+ * <p>
+ * Тело запроса не разбирается в DTO: {@link ChatRequestRewriter} переписывает его потоком
+ * токенов, меняя только поля, зависящие от модели, а ответ ProxyAPI пересылается клиенту
+ * байт в байт. Поля, которых нет в DTO прокси ({@code tools}, {@code tool_calls} и т.п.),
+ * сохраняются в обе стороны. Кеши ответов chat-completion в этом режиме не применяются.
+ * <p>
+ * Метод перекрывает {@link OpenAiController#createChatCompletion}: у него указан
+ * {@code consumes}, поэтому для JSON-запросов Spring выбирает его как более точное
+ * сопоставление. В документации API остаётся описание обычного метода — форма запроса та же.
+ */
+@Hidden
+@RestController
+@RequestMapping("/openai/v1")
+@ConditionalOnProperty(prefix = "api.chat-passthrough", name = "enabled", havingValue = "true")
+@Slf4j
+public class ChatPassthroughController {
+
+    private final OpenAiService openAiService;
+    private final AdmissionGate admissionGate;
+    private final HttpClientProperties httpClientProperties;
+
+    public ChatPassthroughController(OpenAiService openAiService, AdmissionGate admissionGate,
+                                     HttpClientProperties httpClientProperties) {
+        this.openAiService = openAiService;
+        this.admissionGate = admissionGate;
+        this.httpClientProperties = httpClientProperties;
+    }
+
+    /**
+     * Создать Chat Completion без разбора запроса и ответа.
+     *
+     * @param body Тело запроса клиента
+     * @return Future с потоком ответа ProxyAPI (JSON) либо с потоком SSE
+     */
+    @PostMapping(value = "/chat/completions", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<?> createChatCompletion(@RequestBody byte[] body) {
+        ChatRequestRewriter.Rewritten request = openAiService.rewriteChatCompletion(body);
+        log.info("POST /openai/v1/chat/completions (passthrough) - модель: {}, {} байт, stream={}",
+                request.model(), body.length, request.stream());
+        CompletableFuture<Void> admission = admissionGate.admit(ProxyApiEndpoint.CHAT_COMPLETIONS,
+                TokenEstimator.estimate(request));
+        if (request.stream()) {
+            return admission
+                    .thenCompose(admitted -> openAiService.streamChatCompletionRaw(request))
+                    .thenApply(publisher -> {
+                        log.info("POST /openai/v1/chat/completions (passthrough) - начата потоковая передача ответа");
+                        SseRelayEmitter emitter = new SseRelayEmitter(httpClientProperties.getStreamTimeout());
+                        publisher.subscribe(emitter);
+                        return emitter;
+                    });
+        }
+        return admission
+                .thenCompose(admitted -> openAiService.createChatCompletionRaw(request))
+                .thenApply(responseBody -> {
+                    log.info("POST /openai/v1/chat/completions (passthrough) - начата передача ответа");
+                    // Поток копируется в ответ конвертером ресурсов и закрывается после передачи
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(new InputStreamResource(responseBody));
+                });
+    }
+}
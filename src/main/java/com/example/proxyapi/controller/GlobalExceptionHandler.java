@@ -1,16 +1,33 @@
 package com.example.proxyapi.controller;
 
 import com.example.proxyapi.dto.ErrorResponse;
+import com.example.proxyapi.exception.CallNotPermittedException;
+import com.example.proxyapi.exception.NoUpstreamAvailableException;
 import com.example.proxyapi.exception.ProxyApiException;
+import com.example.proxyapi.exception.RateLimitExceededException;
+import com.example.proxyapi.exception.UpstreamHttpException;
+import com.example.proxyapi.utils.RateLimitHeaders;
+import org.apache.catalina.connector.ClientAbortException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.validation.FieldError;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestNotUsableException;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.util.DisconnectedClientHelper;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
 
 /**
  * Глобальный обработчик исключений для приложения.
@@ -22,6 +39,12 @@ public class GlobalExceptionHandler {
 
     /**
      * Обработка ProxyApiException.
+     * <p>
+     * Если ProxyAPI ответил ошибкой, клиент получает осмысленный код: 4xx пробрасывается
+     * как есть (429 — вместе с {@code Retry-After}), 5xx превращается в 502, таймаут — в 504.
+     * Если запрос отклонён circuit breaker'ом, клиент получает 503 с {@code Retry-After};
+     * если для модели не настроен ни один апстрим — 503 без него.
+     * Так клиент может отличить перегрузку от собственной ошибки и не повторять запрос вслепую.
      *
      * @param e Исключение ProxyApiException
      * @return Структурированный ответ об ошибке
@@ -30,9 +53,61 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleProxyApiException(ProxyApiException e) {
         log.error("ProxyApiException: {}", e.getMessage(), e);
         ErrorResponse body = new ErrorResponse("ProxyApiException", e.getMessage());
+
+        if (e.getCause() instanceof UpstreamHttpException upstream) {
+            HttpStatus status = HttpStatus.resolve(upstream.getStatusCode());
+            if (status != null && status.is4xxClientError()) {
+                HttpHeaders headers = new HttpHeaders();
+                if (status == HttpStatus.TOO_MANY_REQUESTS && upstream.getHeaders() != null) {
+                    RateLimitHeaders.retryDelay(upstream.getHeaders()).ifPresent(delay ->
+                            headers.set(HttpHeaders.RETRY_AFTER, retryAfterSeconds(delay)));
+                }
+                return new ResponseEntity<>(body, headers, status);
+            }
+            return new ResponseEntity<>(body, HttpStatus.BAD_GATEWAY);
+        }
+        if (e.getCause() instanceof CallNotPermittedException notPermitted) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, retryAfterSeconds(notPermitted.getRetryAfter()));
+            return new ResponseEntity<>(body, headers, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (e.getCause() instanceof NoUpstreamAvailableException) {
+            return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (e.getCause() instanceof HttpTimeoutException) {
+            return new ResponseEntity<>(body, HttpStatus.GATEWAY_TIMEOUT);
+        }
         return new ResponseEntity<>(body, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    /**
+     * Запрос не допущен контролем частоты: 429 с {@code Retry-After}.
+     *
+     * @param e Исключение RateLimitExceededException
+     * @return Структурированный ответ об ошибке
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleRateLimitExceeded(RateLimitExceededException e) {
+        log.warn("RateLimitExceededException: {}", e.getMessage());
+        ErrorResponse body = new ErrorResponse("RateLimitExceeded", e.getMessage());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, retryAfterSeconds(e.getRetryAfter()));
+        return new ResponseEntity<>(body, headers, HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    /**
+     * Для модели запроса нет апстрима (все веса равны нулю): 503.
+     *
+     * @param e Исключение NoUpstreamAvailableException
+     * @return Структурированный ответ об ошибке
+     */
+    @ExceptionHandler(NoUpstreamAvailableException.class)
+    public ResponseEntity<ErrorResponse> handleNoUpstreamAvailable(NoUpstreamAvailableException e) {
+        log.warn("NoUpstreamAvailableException: {}", e.getMessage());
+        ErrorResponse body = new ErrorResponse("NoUpstreamAvailable", e.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     /**
      * Обработка IllegalArgumentException.
      *
@@ -46,6 +121,54 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Тело запроса не разобрано или не прошло валидацию — ошибка клиента, а не сервера.
+     *
+     * @param e Исключение разбора или валидации тела запроса
+     * @return Структурированный ответ об ошибке
+     */
+    @ExceptionHandler({HttpMessageNotReadableException.class, MethodArgumentNotValidException.class})
+    public ResponseEntity<ErrorResponse> handleInvalidRequest(Exception e) {
+        log.warn("Invalid request: {}", e.getMessage());
+        String message = "Некорректный запрос.";
+        if (e instanceof MethodArgumentNotValidException invalid && invalid.getBindingResult().getFieldError() != null) {
+            FieldError error = invalid.getBindingResult().getFieldError();
+            message = error.getField() + ": " + error.getDefaultMessage();
+        } else if (NestedExceptionUtils.getMostSpecificCause(e) instanceof IllegalArgumentException cause) {
+            message = cause.getMessage();
+        }
+        return new ResponseEntity<>(new ErrorResponse("BadRequest", message), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Клиент закрыл соединение во время записи ответа (например, прервал поток SSE).
+     * Писать ответ уже некуда, поэтому событие только фиксируется в логе.
+     *
+     * @param e Исключение записи ответа в закрытое соединение
+     */
+    @ExceptionHandler({AsyncRequestNotUsableException.class, ClientAbortException.class})
+    public void handleClientDisconnect(Exception e) {
+        log.debug("Client disconnected: {}", e.getMessage());
+    }
+
+    /**
+     * Прочие ошибки ввода-вывода. Запись в закрытое клиентом соединение иногда приходит
+     * без обёртки контейнера (например, {@code Broken pipe} при записи потока SSE) — она
+     * распознаётся по типу и сообщению. Остальные (ошибки ProxyAPI, чтения файлов кеша)
+     * означают сбой прокси и обрабатываются как внутренние ошибки.
+     *
+     * @param e Исключение ввода-вывода
+     * @return Структурированный ответ об ошибке или null, если клиент отключился
+     */
+    @ExceptionHandler(IOException.class)
+    public ResponseEntity<ErrorResponse> handleIOException(IOException e) {
+        if (!(e instanceof UpstreamHttpException) && DisconnectedClientHelper.isClientDisconnectedException(e)) {
+            handleClientDisconnect(e);
+            return null;
+        }
+        return handleGeneralException(e);
+    }
+
     /**
      * Обработка всех остальных исключений.
      *
@@ -72,4 +195,11 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
                 .body("File too large!");
     }
+
+    /**
+     * Значение {@code Retry-After} в целых секундах, округлённое вверх (не меньше 1).
+     */
+    private static String retryAfterSeconds(Duration delay) {
+        return String.valueOf(Math.max(1, (delay.toMillis() + 999) / 1000));
+    }
 }
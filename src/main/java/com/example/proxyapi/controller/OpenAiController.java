@@ -1,7 +1,15 @@
 package com.example.proxyapi.controller;
 
+import com.example.proxyapi.admission.AdmissionGate;
+import com.example.proxyapi.admission.TokenEstimator;
+import com.example.proxyapi.cache.CacheDirective;
+import com.example.proxyapi.cache.SpeechCache;
+import com.example.proxyapi.config.HttpClientProperties;
 import com.example.proxyapi.dto.openai.*;
 import com.example.proxyapi.service.OpenAiService;
+import com.example.proxyapi.utils.ProxyApiEndpoint;
+import com.example.proxyapi.utils.SseRelayEmitter;
+import com.example.proxyapi.vector.VectorQuantizer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -9,18 +17,39 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Pattern;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Контроллер для работы с OpenAI (через ProxyAPI).
+ * <p>
+ * Методы возвращают {@link CompletableFuture}: поток Tomcat освобождается сразу после
+ * отправки запроса в ProxyAPI, а ответ клиенту пишется по завершении future.
+ * Перед обращением к ProxyAPI запрос проходит контроль допуска {@link AdmissionGate}.
  */
 @Tag(name = "OpenAI (ProxyAPI)", description = "Эндпоинты для взаимодействия с OpenAI через ProxyAPI")
 @RestController
@@ -29,61 +58,153 @@ import org.springframework.web.multipart.MultipartFile;
 @Validated
 public class OpenAiController {
 
+    private static final int AUDIO_BUFFER_SIZE = 16 * 1024;
+    private static final String X_CACHE = "X-Cache";
+    private static final String X_MODEL = "X-Model";
+    private static final String X_PROMPT_TOKENS = "X-Prompt-Tokens";
+    private static final byte[] EMBEDDINGS_MAGIC = {'E', 'M', 'B', '1'};
+
+    // Атрибуты запроса, по которым Tomcat отправляет файл через sendfile после заголовков ответа
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
     private final OpenAiService openAiService;
+    private final AdmissionGate admissionGate;
+    private final HttpClientProperties httpClientProperties;
 
-    public OpenAiController(OpenAiService openAiService) {
+    public OpenAiController(OpenAiService openAiService, AdmissionGate admissionGate,
+                            HttpClientProperties httpClientProperties) {
         this.openAiService = openAiService;
+        this.admissionGate = admissionGate;
+        this.httpClientProperties = httpClientProperties;
     }
 
     /**
      * Получить список доступных моделей.
+     * <p>
+     * Ответ содержит {@code ETag}; если клиент прислал его в {@code If-None-Match}
+     * и список не изменился, возвращается 304 без тела.
      *
-     * @return JSON-строка со списком моделей
+     * @param ifNoneMatch Значение заголовка If-None-Match
+     * @return Future с JSON со списком моделей
      */
     @Operation(
             summary = "Получить список моделей",
             description = "Метод позволяет узнать, какие модели доступны в OpenAI (через ProxyAPI)."
     )
     @GetMapping("/models")
-    public ResponseEntity<String> listModels() {
+    public CompletableFuture<ResponseEntity<byte[]>> listModels(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
         log.info("GET /openai/v1/models - запрошен список моделей");
-        String modelsJson = openAiService.listModels();
-        return ResponseEntity.ok(modelsJson);
+        return admissionGate.admit(ProxyApiEndpoint.MODELS, 0)
+                .thenCompose(admitted -> openAiService.listModels())
+                .thenApply(models -> {
+                    if (etagMatches(ifNoneMatch, models.etag())) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(models.etag()).build();
+                    }
+                    return ResponseEntity.ok().eTag(models.etag())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(models.body());
+                });
+    }
+
+    /**
+     * Совпадает ли ETag с одним из значений If-None-Match (сравнение слабое, как требует RFC 9110).
+     */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || (value.startsWith("W/") ? value.substring(2) : value).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
      * Создать Chat Completion.
+     * <p>
+     * При {@code stream=true} ответ отдаётся потоком Server-Sent Events: каждый фрагмент
+     * пересылается клиенту сразу после получения от ProxyAPI.
+     * <p>
+     * Если включён кеш ответов, заголовок {@code X-Cache} сообщает, взят ли ответ из кеша;
+     * {@code Cache-Control: no-cache} обновляет запись, {@code no-store} обходит кеш.
      *
      * @param requestInputDTO Запрос с параметрами
-     * @return Ответ от OpenAI как ChatCompletionResponseDTO
+     * @param cacheControl    Заголовок Cache-Control запроса
+     * @return Future с ответом от OpenAI как ChatCompletionResponseDTO либо с потоком SSE
      */
     @Operation(
             summary = "Создать чат-комплишен",
             description = """
                     Отправляет запрос на /v1/chat/completions в OpenAI (через ProxyAPI).
+                    При stream=true возвращает поток text/event-stream.
                     """
     )
+    @ApiResponse(responseCode = "200", description = "Ответ модели",
+            content = {
+                    @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ChatCompletionResponseDTO.class)),
+                    @Content(mediaType = "text/event-stream")
+            })
     @PostMapping("/chat/completions")
-    public ResponseEntity<ChatCompletionResponseDTO> createChatCompletion(
-            @Valid @RequestBody ChatCompletionRequestInputDTO requestInputDTO
+    public CompletableFuture<?> createChatCompletion(
+            @Valid @RequestBody ChatCompletionRequestInputDTO requestInputDTO,
+            @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl
     ) {
         log.info("POST /openai/v1/chat/completions - входящие данные: {}", requestInputDTO);
-        ChatCompletionResponseDTO response = openAiService.createChatCompletion(requestInputDTO);
-        log.info("POST /openai/v1/chat/completions - ответ: {}", response);
-        return ResponseEntity.ok(response);
+        CompletableFuture<Void> admission = admissionGate.admit(ProxyApiEndpoint.CHAT_COMPLETIONS,
+                TokenEstimator.estimate(requestInputDTO));
+        if (Boolean.TRUE.equals(requestInputDTO.getStream())) {
+            return admission
+                    .thenCompose(admitted -> openAiService.streamChatCompletion(requestInputDTO))
+                    .thenApply(publisher -> {
+                        log.info("POST /openai/v1/chat/completions - начата потоковая передача ответа");
+                        SseRelayEmitter emitter = new SseRelayEmitter(httpClientProperties.getStreamTimeout());
+                        publisher.subscribe(emitter);
+                        return emitter;
+                    });
+        }
+        return admission
+                .thenCompose(admitted -> openAiService.createChatCompletion(requestInputDTO,
+                        CacheDirective.fromCacheControl(cacheControl)))
+                .thenApply(result -> {
+                    log.info("POST /openai/v1/chat/completions - ответ ({}): {}", result.status(), result.value());
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (result.status() != null) {
+                        response.header(X_CACHE, result.status());
+                    }
+                    return response.body(result.value());
+                });
     }
 
     /**
-     * Получить Embeddings для переданного текста.
+     * Получить Embeddings для переданного текста или массива текстов.
+     * <p>
+     * При {@code Accept: application/octet-stream} векторы отдаются двоичным пакетом
+     * (см. {@link #embeddingsOctetStream}), модель и токены — в заголовках.
      *
      * @param requestDTO объект с параметрами model и input
-     * @return EmbeddingsResponseDTO с векторным представлением текста
+     * @param accept     Значение заголовка Accept
+     * @return Future с EmbeddingsResponseDTO с векторным представлением текстов
      */
     @Operation(
             summary = "Получить Embeddings",
             description = """
                     Отправляет запрос на /v1/embeddings в OpenAI (через ProxyAPI),
                     чтобы получить векторное представление (embedding) для переданного текста.
+                    input может быть массивом строк или токенов — векторы возвращаются в порядке входа.
+                    quantization=int8|binary сжимает векторы в 4 или 32 раза; с Accept: application/octet-stream
+                    ответ — двоичный пакет: заголовок "EMB1", формат (0 — float32, 1 — int8, 2 — binary), 3 байта резерва,
+                    int32 число векторов, int32 размерность; затем для каждого вектора float32 scale, float32 offset и данные
+                    (все числа little-endian). Модель и токены — в заголовках X-Model и X-Prompt-Tokens.
                     Модель можно выбрать из: text-embedding-3-small, text-embedding-3-large, text-embedding-ada-002.
                     """
     )
@@ -91,64 +212,229 @@ public class OpenAiController {
     @ApiResponse(responseCode = "400", description = "Некорректный запрос")
     @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
     @PostMapping("/embeddings")
-    public ResponseEntity<EmbeddingsResponseDTO> createEmbeddings(
-            @Valid @RequestBody EmbeddingsRequestDTO requestDTO
+    public CompletableFuture<ResponseEntity<?>> createEmbeddings(
+            @Valid @RequestBody EmbeddingsRequestDTO requestDTO,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
     ) {
         log.info("POST /openai/v1/embeddings - входящие данные: {}", requestDTO);
-        EmbeddingsResponseDTO response = openAiService.createEmbeddings(requestDTO);
-        log.info("POST /openai/v1/embeddings - ответ: {}", response);
-        return ResponseEntity.ok(response);
+        boolean octetStream = accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(MediaType.APPLICATION_OCTET_STREAM::equalsTypeAndSubtype);
+        return admissionGate.admit(ProxyApiEndpoint.EMBEDDINGS, TokenEstimator.estimate(requestDTO))
+                .thenCompose(admitted -> openAiService.createEmbeddings(requestDTO))
+                .thenApply(response -> {
+                    log.info("POST /openai/v1/embeddings - ответ: модель {}, векторов {}, usage {}", response.getModel(),
+                            response.getData() == null ? 0 : response.getData().size(), response.getUsage());
+                    if (!octetStream) {
+                        return ResponseEntity.ok(response);
+                    }
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                            .header(X_MODEL, response.getModel())
+                            .header(X_PROMPT_TOKENS, String.valueOf(
+                                    response.getUsage() != null ? response.getUsage().getPromptTokens() : null))
+                            .body(embeddingsOctetStream(response));
+                });
+    }
+
+    /**
+     * Двоичный пакет векторов (little-endian): заголовок из 16 байт — {@code "EMB1"}, формат
+     * (0 — float32, 1 — int8, 2 — binary), 3 байта резерва, число векторов и размерность (int32);
+     * затем для каждого вектора float32 {@code scale}, float32 {@code offset} и данные
+     * (для float32 scale=1, offset=0).
+     */
+    private static byte[] embeddingsOctetStream(EmbeddingsResponseDTO response) {
+        VectorQuantizer.Mode quantization = VectorQuantizer.Mode.of(response.getQuantization());
+        List<EmbeddingsResponseDTO.EmbeddingData> data = response.getData();
+        int dimensions = data.isEmpty() ? 0 : data.get(0).getEmbedding().length;
+        int vectorBytes = quantization != null ? quantization.bytes(dimensions) : dimensions * Float.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(16 + data.size() * (8 + vectorBytes)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(EMBEDDINGS_MAGIC);
+        buffer.put((byte) (quantization == null ? 0 : quantization.ordinal() + 1));
+        buffer.put(new byte[3]);
+        buffer.putInt(data.size());
+        buffer.putInt(dimensions);
+        for (EmbeddingsResponseDTO.EmbeddingData item : data) {
+            if (quantization != null) {
+                buffer.putFloat(item.getScale());
+                buffer.putFloat(item.getOffset());
+                buffer.put(item.getQuantized());
+            } else {
+                buffer.putFloat(1);
+                buffer.putFloat(0);
+                buffer.asFloatBuffer().put(item.getEmbedding());
+                buffer.position(buffer.position() + item.getEmbedding().length * Float.BYTES);
+            }
+        }
+        return buffer.array();
     }
 
     /**
      * Генерация изображений на основе текстового prompt.
      *
      * @param requestDTO Запрос с параметрами генерации
-     * @return Ответ от OpenAI как ImageGenerationResponseDTO
+     * @return Future с ответом от OpenAI как ImageGenerationResponseDTO
      */
     @Operation(
             summary = "Генерация изображений",
             description = "Создает оригинальное изображение на основе текстового prompt с использованием DALL·E 2 или DALL·E 3."
     )
     @PostMapping("/images/generations")
-    public ResponseEntity<ImageGenerationResponseDTO> generateImage(
+    public CompletableFuture<ResponseEntity<ImageGenerationResponseDTO>> generateImage(
             @Valid @RequestBody ImageGenerationRequestDTO requestDTO
     ) {
         log.info("POST /openai/v1/images/generations - входящие данные: {}", requestDTO);
-        ImageGenerationResponseDTO response = openAiService.generateImage(requestDTO);
-        log.info("POST /openai/v1/images/generations - ответ: {}", response);
-        return ResponseEntity.ok(response);
+        return admissionGate.admit(ProxyApiEndpoint.IMAGE_GENERATIONS, 0)
+                .thenCompose(admitted -> openAiService.generateImage(requestDTO))
+                .thenApply(response -> {
+                    log.info("POST /openai/v1/images/generations - ответ: {}", response);
+                    return ResponseEntity.ok(response);
+                });
     }
 
     /**
      * Генерация аудио на основе текста.
+     * <p>
+     * Аудио передаётся клиенту chunked-потоком по мере получения от ProxyAPI,
+     * без накопления всего файла в памяти.
+     * <p>
+     * Если включён дисковый кеш и такое аудио уже синтезировалось, оно отдаётся из файла
+     * без обращения к ProxyAPI и без контроля допуска: с {@code Content-Length},
+     * {@code ETag} (поддерживается {@code If-None-Match}) и одним диапазоном {@code Range}.
      *
-     * @param requestDTO Запрос с параметрами генерации аудио
-     * @return Аудио файл в указанном формате
+     * @param requestDTO  Запрос с параметрами генерации аудио
+     * @param range       Заголовок Range
+     * @param ifNoneMatch Заголовок If-None-Match
+     * @param ifRange     Заголовок If-Range
+     * @param request     Запрос (для передачи файла через sendfile)
+     * @param response    Ответ (аудио из кеша пишется в него напрямую)
+     * @return Future с потоком аудио файла в указанном формате; null, если ответ уже записан из кеша
      */
     @Operation(
             summary = "Генерация аудио из текста",
             description = "Преобразует текст в аудио файл с использованием моделей tts-1 или tts-1-hd."
     )
     @PostMapping("/audio/speech")
-    public ResponseEntity<byte[]> generateSpeech(
-            @Valid @RequestBody AudioSpeechRequestDTO requestDTO
-    ) {
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> generateSpeech(
+            @Valid @RequestBody AudioSpeechRequestDTO requestDTO,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
         log.info("POST /openai/v1/audio/speech - входящие данные: {}", requestDTO);
-        byte[] audioData = openAiService.generateSpeech(requestDTO);
-        log.info("POST /openai/v1/audio/speech - аудио сгенерировано, размер: {} байт", audioData.length);
+        SpeechCache.CachedAudio cached = openAiService.findCachedSpeech(requestDTO);
+        if (cached != null) {
+            log.info("POST /openai/v1/audio/speech - аудио из кеша, размер: {} байт", cached.size());
+            try (cached) {
+                serveCachedAudio(cached, getMediaTypeForFormat(requestDTO.getFormat()), "speech." + requestDTO.getFormat(),
+                        range, ifNoneMatch, ifRange, request, response);
+            }
+            // null — ответ уже записан, Spring не начинает асинхронную обработку
+            return null;
+        }
+        return admissionGate.admit(ProxyApiEndpoint.AUDIO_SPEECH, TokenEstimator.estimate(requestDTO))
+                .thenCompose(admitted -> openAiService.generateSpeech(requestDTO))
+                .thenApply(audioStream -> {
+                    log.info("POST /openai/v1/audio/speech - начата передача аудио");
 
-        // Определение типа контента на основе формата
-        MediaType mediaType = getMediaTypeForFormat(requestDTO.getFormat());
+                    // Определение типа контента на основе формата
+                    MediaType mediaType = getMediaTypeForFormat(requestDTO.getFormat());
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(mediaType);
-        headers.setContentLength(audioData.length);
-        headers.setContentDispositionFormData("attachment", "speech." + requestDTO.getFormat());
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.setContentType(mediaType);
+                    headers.setContentDispositionFormData("attachment", "speech." + requestDTO.getFormat());
 
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(audioData);
+                    return ResponseEntity.ok()
+                            .headers(headers)
+                            .body(out -> transferAudio(audioStream, out));
+                });
+    }
+
+    /**
+     * Отдать аудио из файла кеша, записав ответ напрямую.
+     * <p>
+     * Ответ пишется синхронно, без асинхронной обработки: только так Tomcat NIO может
+     * передать файл через sendfile — ядром прямо из page cache в сокет, минуя кучу.
+     * Если контейнер sendfile не поддерживает, файл передаётся через {@link FileChannel#transferTo}
+     * из уже открытого кешем файла. Файл открыт до записи заголовков, поэтому его удаление
+     * при вытеснении не оборвёт ответ с уже объявленным {@code Content-Length}.
+     */
+    private static void serveCachedAudio(SpeechCache.CachedAudio audio, MediaType mediaType, String fileName,
+                                         String rangeHeader, String ifNoneMatch, String ifRange,
+                                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, audio.etag());
+        if (etagMatches(ifNoneMatch, audio.etag())) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(mediaType.toString());
+
+        long length = audio.size();
+        long start = 0;
+        long end = length - 1;
+        // Range учитывается, только если он один и If-Range (если есть) совпадает с ETag
+        List<HttpRange> ranges = rangeHeader != null && (ifRange == null || ifRange.equals(audio.etag()))
+                ? parseRanges(rangeHeader) : List.of();
+        if (ranges.size() == 1) {
+            start = ranges.get(0).getRangeStart(length);
+            end = ranges.get(0).getRangeEnd(length);
+            if (start >= length || start > end) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        } else {
+            response.setStatus(HttpStatus.OK.value());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.formData().name("attachment").filename(fileName).build().toString());
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, audio.file().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            return;
+        }
+        WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+        long sent = 0;
+        while (sent < count) {
+            sent += audio.channel().transferTo(start + sent, count - sent, target);
+        }
+    }
+
+    private static List<HttpRange> parseRanges(String rangeHeader) {
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Переслать аудио клиенту, сбрасывая каждый полученный фрагмент сразу в сокет.
+     * Если клиент отключился, поток ProxyAPI закрывается и синтез прерывается.
+     *
+     * @param audioStream Поток аудио от ProxyAPI
+     * @param out         Поток ответа клиенту
+     */
+    private static void transferAudio(InputStream audioStream, OutputStream out) throws IOException {
+        long total = 0;
+        try (audioStream) {
+            byte[] buffer = new byte[AUDIO_BUFFER_SIZE];
+            int read;
+            while ((read = audioStream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                out.flush();
+                total += read;
+            }
+        }
+        log.info("POST /openai/v1/audio/speech - аудио передано, размер: {} байт", total);
     }
 
     /**
@@ -174,7 +460,7 @@ public class OpenAiController {
      * @param model          Название модели
      * @param responseFormat Формат ответа
      * @param prompt         Дополнительный prompt
-     * @return Транскрибированный текст
+     * @return Future с транскрибированным текстом
      */
     @Operation(
             summary = "Транскрипция аудио",
@@ -188,7 +474,7 @@ public class OpenAiController {
             }
     )
     @PostMapping(value = "/audio/transcriptions", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<AudioResponseDTO> transcribeAudio(
+    public CompletableFuture<ResponseEntity<AudioResponseDTO>> transcribeAudio(
             @Parameter(description = "Аудио файл для транскрипции", required = true)
             @RequestPart("file") MultipartFile file,
 
@@ -208,10 +494,12 @@ public class OpenAiController {
         requestDTO.setResponse_format(responseFormat);
         requestDTO.setPrompt(prompt);
 
-        AudioResponseDTO response = openAiService.transcribeAudio(file, requestDTO);
-        log.info("POST /openai/v1/audio/transcriptions - транскрипция завершена.");
-
-        return ResponseEntity.ok(response);
+        return admissionGate.admit(ProxyApiEndpoint.AUDIO_TRANSCRIPTIONS, 0)
+                .thenCompose(admitted -> openAiService.transcribeAudio(file, requestDTO))
+                .thenApply(response -> {
+                    log.info("POST /openai/v1/audio/transcriptions - транскрипция завершена.");
+                    return ResponseEntity.ok(response);
+                });
     }
 
     /**
@@ -221,7 +509,7 @@ public class OpenAiController {
      * @param model          Название модели
      * @param responseFormat Формат ответа
      * @param prompt         Дополнительный prompt
-     * @return Переведённый текст
+     * @return Future с переведённым текстом
      */
     @Operation(
             summary = "Перевод аудио",
@@ -235,7 +523,7 @@ public class OpenAiController {
             }
     )
     @PostMapping(value = "/audio/translations", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<AudioResponseDTO> translateAudio(
+    public CompletableFuture<ResponseEntity<AudioResponseDTO>> translateAudio(
             @Parameter(description = "Аудио файл для перевода", required = true)
             @RequestPart("file") MultipartFile file,
 
@@ -255,9 +543,11 @@ public class OpenAiController {
         requestDTO.setResponse_format(responseFormat);
         requestDTO.setPrompt(prompt);
 
-        AudioResponseDTO response = openAiService.translateAudio(file, requestDTO);
-        log.info("POST /openai/v1/audio/translations - перевод завершён.");
-
-        return ResponseEntity.ok(response);
+        return admissionGate.admit(ProxyApiEndpoint.AUDIO_TRANSLATIONS, 0)
+                .thenCompose(admitted -> openAiService.translateAudio(file, requestDTO))
+                .thenApply(response -> {
+                    log.info("POST /openai/v1/audio/translations - перевод завершён.");
+                    return ResponseEntity.ok(response);
+                });
     }
 }
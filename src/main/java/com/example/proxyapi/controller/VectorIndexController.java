@@ -0,0 +1,102 @@
+package com.example.proxyapi.controller;
+
+import com.example.proxyapi.admission.AdmissionGate;
+import com.example.proxyapi.admission.TokenEstimator;
+import com.example.proxyapi.dto.vector.VectorIndexDTO;
+import com.example.proxyapi.dto.vector.VectorSearchRequestDTO;
+import com.example.proxyapi.dto.vector.VectorSearchResponseDTO;
+import com.example.proxyapi.service.VectorSearchService;
+import com.example.proxyapi.utils.ProxyApiEndpoint;
+import com.example.proxyapi.vector.NamedVectorIndex;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Поиск ближайших векторов в индексах прокси.
+ * <p>
+ * Векторы попадают в индекс из {@code POST /openai/v1/embeddings} с полем {@code index};
+ * поиск идёт в памяти прокси, рядом с векторизацией, без отдельного векторного хранилища.
+ */
+@Tag(name = "Векторные индексы", description = "Поиск ближайших embeddings в индексах прокси")
+@RestController
+@RequestMapping("/openai/v1/vector-indexes")
+@Slf4j
+public class VectorIndexController {
+
+    private final VectorSearchService vectorSearchService;
+    private final AdmissionGate admissionGate;
+
+    public VectorIndexController(VectorSearchService vectorSearchService, AdmissionGate admissionGate) {
+        this.vectorSearchService = vectorSearchService;
+        this.admissionGate = admissionGate;
+    }
+
+    /**
+     * Получить список индексов.
+     *
+     * @return Индексы с моделью, размерностью и числом векторов
+     */
+    @Operation(summary = "Список векторных индексов")
+    @GetMapping
+    public List<VectorIndexDTO> listIndexes() {
+        return vectorSearchService.list();
+    }
+
+    /**
+     * Найти ближайшие к запросу векторы индекса.
+     *
+     * @param name       Имя индекса
+     * @param requestDTO Текст или вектор запроса и число результатов
+     * @return Future с идентификаторами и косинусной близостью найденных векторов
+     */
+    @Operation(
+            summary = "Поиск ближайших векторов",
+            description = """
+                    Ищет в индексе k векторов, ближайших к запросу по косинусной близости (HNSW).
+                    Запрос — текст (query, векторизуется моделью индекса через /v1/embeddings) или готовый вектор (vector).
+                    """
+    )
+    @ApiResponse(responseCode = "200", description = "Успешный поиск")
+    @ApiResponse(responseCode = "400", description = "Некорректный запрос")
+    @ApiResponse(responseCode = "404", description = "Индекс не найден")
+    @PostMapping("/{name}/search")
+    public CompletableFuture<ResponseEntity<VectorSearchResponseDTO>> search(
+            @PathVariable String name,
+            @Valid @RequestBody VectorSearchRequestDTO requestDTO
+    ) {
+        log.info("POST /openai/v1/vector-indexes/{}/search - k={}, query: {}", name, requestDTO.getK(),
+                requestDTO.getVector() != null ? "vector" : requestDTO.getQuery());
+        NamedVectorIndex index = vectorSearchService.find(name);
+        if (index == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        }
+        // Векторизация текста запроса — обычное обращение к embeddings
+        CompletableFuture<Void> admitted = requestDTO.getVector() == null && requestDTO.getQuery() != null
+                ? admissionGate.admit(ProxyApiEndpoint.EMBEDDINGS, TokenEstimator.estimateInput(requestDTO.getQuery()))
+                : CompletableFuture.completedFuture(null);
+        return admitted
+                .thenCompose(ignored -> vectorSearchService.search(index, requestDTO))
+                .thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Удалить индекс.
+     *
+     * @param name Имя индекса
+     * @return 204 или 404, если индекса нет
+     */
+    @Operation(summary = "Удалить векторный индекс")
+    @DeleteMapping("/{name}")
+    public ResponseEntity<Void> deleteIndex(@PathVariable String name) {
+        log.info("DELETE /openai/v1/vector-indexes/{}", name);
+        return vectorSearchService.remove(name) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
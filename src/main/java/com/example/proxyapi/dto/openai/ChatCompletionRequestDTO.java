@@ -54,4 +54,10 @@ public class ChatCompletionRequestDTO {
      */
     @Schema(description = "Параметр 'temperature' контролирует степень случайности.", example = "0.7")
     private Double temperature;
+
+    /**
+     * Потоковая выдача ответа (Server-Sent Events).
+     */
+    @Schema(description = "Если true, ответ отдаётся потоком Server-Sent Events по мере генерации.", example = "false")
+    private Boolean stream;
 }
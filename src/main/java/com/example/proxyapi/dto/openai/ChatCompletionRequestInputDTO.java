@@ -43,4 +43,17 @@ public class ChatCompletionRequestInputDTO {
      */
     @Schema(description = "Параметр 'temperature' контролирует степень случайности.", example = "0.7")
     private Double temperature;
+
+    /**
+     * Потоковая выдача ответа (Server-Sent Events).
+     */
+    @Schema(description = "Если true, ответ отдаётся потоком Server-Sent Events по мере генерации.", example = "false")
+    private Boolean stream;
+
+    /**
+     * Конструктор для обычного (непотокового) запроса.
+     */
+    public ChatCompletionRequestInputDTO(String model, List<MessageDTO> messages, Integer maxTokens, Double temperature) {
+        this(model, messages, maxTokens, temperature, null);
+    }
 }
@@ -0,0 +1,131 @@
+package com.example.proxyapi.dto.openai;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Вход запроса embeddings в любой из форм OpenAI API: строка, массив строк, массив
+ * токенов или массив массивов токенов.
+ * <p>
+ * Внутри это список элементов, каждый из которых векторизуется отдельно: текст
+ * ({@link String}) или токены ({@code List<Integer>}). При сериализации восстанавливается
+ * исходная форма: одиночная строка остаётся строкой.
+ */
+public final class EmbeddingsInput {
+
+    private final List<Object> items;
+    private final boolean single;
+
+    private EmbeddingsInput(List<Object> items, boolean single) {
+        this.items = items;
+        this.single = single;
+    }
+
+    /**
+     * @param text Текст
+     * @return Вход из одного текста
+     */
+    public static EmbeddingsInput of(String text) {
+        return new EmbeddingsInput(Collections.singletonList(text), true);
+    }
+
+    /**
+     * @param items Элементы: строки или списки токенов
+     * @return Вход из массива элементов
+     */
+    public static EmbeddingsInput ofItems(List<?> items) {
+        return new EmbeddingsInput(List.copyOf(items), false);
+    }
+
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    static EmbeddingsInput fromJson(JsonNode node) {
+        if (node.isTextual()) {
+            return of(requireText(node));
+        }
+        if (!node.isArray() || node.isEmpty()) {
+            throw new IllegalArgumentException("input must be a string or a non-empty array");
+        }
+        if (node.get(0).isIntegralNumber()) {
+            return new EmbeddingsInput(Collections.singletonList(tokens(node)), true);
+        }
+        List<Object> items = new ArrayList<>(node.size());
+        boolean text = node.get(0).isTextual();
+        for (JsonNode element : node) {
+            if (text) {
+                if (!element.isTextual()) {
+                    throw new IllegalArgumentException("input array must not mix strings and token arrays");
+                }
+                items.add(requireText(element));
+            } else {
+                if (!element.isArray()) {
+                    throw new IllegalArgumentException("input array must contain strings or token arrays");
+                }
+                items.add(tokens(element));
+            }
+        }
+        return new EmbeddingsInput(Collections.unmodifiableList(items), false);
+    }
+
+    @JsonValue
+    Object toJson() {
+        return single ? items.get(0) : items;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * @return Элементы: строки или списки токенов
+     */
+    public List<Object> items() {
+        return items;
+    }
+
+    /**
+     * @return Состоит ли вход из одного элемента, переданного без массива
+     */
+    public boolean isSingle() {
+        return single;
+    }
+
+    /**
+     * @return Текст единственного элемента или null, если вход — не одна строка
+     */
+    public String singleText() {
+        return single && items.get(0) instanceof String text ? text : null;
+    }
+
+    private static String requireText(JsonNode node) {
+        String text = node.asText();
+        if (text.isBlank()) {
+            throw new IllegalArgumentException("input must not be blank");
+        }
+        return text;
+    }
+
+    private static List<Integer> tokens(JsonNode node) {
+        if (node.isEmpty()) {
+            throw new IllegalArgumentException("token array must not be empty");
+        }
+        List<Integer> tokens = new ArrayList<>(node.size());
+        for (JsonNode token : node) {
+            if (!token.isIntegralNumber() || !token.canConvertToInt()) {
+                throw new IllegalArgumentException("token array must contain integers");
+            }
+            tokens.add(token.intValue());
+        }
+        return Collections.unmodifiableList(tokens);
+    }
+
+    @Override
+    public String toString() {
+        // Пакет может насчитывать тысячи текстов — в лог только размер
+        return single ? String.valueOf(items.get(0)) : "[" + items.size() + " inputs]";
+    }
+}
@@ -1,8 +1,15 @@
 package com.example.proxyapi.dto.openai;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import lombok.Data;
+import lombok.ToString;
+
+import java.util.List;
 
 @Data
 public class EmbeddingsRequestDTO {
@@ -16,10 +23,56 @@ public class EmbeddingsRequestDTO {
     private String model;
 
     /**
-     * Текст (или массив текстов) для которого получаем embedding.
-     * Для упрощения — одна строка.
+     * Текст или массив текстов, для которых получаем embeddings.
+     * Как в OpenAI API: строка, массив строк, массив токенов или массив массивов токенов.
      */
-    @NotBlank
-    @Schema(description = "Текст, для которого нужно получить Embeddings.", example = "Ваш текст здесь")
-    private String input;
+    @NotNull
+    @Schema(description = "Текст или массив текстов (строк либо массивов токенов), для которых нужно получить Embeddings.",
+            oneOf = {String.class, String[].class, int[].class, int[][].class}, example = "Ваш текст здесь")
+    private EmbeddingsInput input;
+
+    /**
+     * Формат векторов в ответе: "float" (по умолчанию) или "base64".
+     */
+    @Pattern(regexp = "float|base64")
+    @JsonProperty("encoding_format")
+    @Schema(description = "Формат векторов в ответе: 'float' (массив чисел) или 'base64' (float32 little-endian).",
+            example = "float")
+    private String encodingFormat;
+
+    /**
+     * Квантование векторов в ответе (расширение прокси): "int8" или "binary".
+     */
+    @Pattern(regexp = "int8|binary")
+    @Schema(description = "Квантование векторов в ответе (расширение прокси): 'int8' — байт на измерение со scale/offset, "
+            + "'binary' — бит на измерение. Векторы отдаются строками base64 или, при Accept: application/octet-stream, "
+            + "двоичным пакетом.", example = "int8")
+    private String quantization;
+
+    /**
+     * Имя индекса, в который добавить полученные векторы (расширение прокси, в ProxyAPI не передаётся).
+     */
+    @Schema(description = "Имя индекса прокси, в который добавить полученные векторы для поиска "
+            + "(/vector-indexes/{name}/search). В OpenAI не передаётся.", example = "docs")
+    private String index;
+
+    /**
+     * Идентификаторы текстов для индекса, по одному на элемент input; по умолчанию — сами тексты.
+     */
+    @Schema(description = "Идентификаторы векторов в индексе, по одному на элемент input; по умолчанию — сами тексты.")
+    @ToString.Exclude
+    private List<String> ids;
+
+    @JsonProperty("input")
+    public void setInput(EmbeddingsInput input) {
+        this.input = input;
+    }
+
+    /**
+     * Задать один текст.
+     */
+    @JsonIgnore
+    public void setInput(String input) {
+        this.input = input != null ? EmbeddingsInput.of(input) : null;
+    }
 }
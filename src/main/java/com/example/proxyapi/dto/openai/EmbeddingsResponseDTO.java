@@ -1,9 +1,26 @@
 package com.example.proxyapi.dto.openai;
 
+import com.example.proxyapi.vector.VectorCodec;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
+import lombok.ToString;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 
 @Data
@@ -21,6 +38,11 @@ public class EmbeddingsResponseDTO {
     @Schema(description = "Информация об используемых токенах.")
     private Usage usage;
 
+    @Schema(description = "Квантование векторов (расширение прокси): 'int8' или 'binary'; без квантования отсутствует.",
+            example = "int8")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String quantization;
+
     @Data
     public static class EmbeddingData {
         @Schema(description = "Тип объекта, обычно 'embedding'.", example = "embedding")
@@ -29,8 +51,36 @@ public class EmbeddingsResponseDTO {
         @Schema(description = "Индекс строки, если вы отправляли несколько строк.")
         private Integer index;
 
-        @Schema(description = "Список из float-чисел — сам embedding.")
-        private List<Double> embedding;
+        @Schema(description = "Сам embedding: массив float-чисел или, при encoding_format=base64, "
+                + "строка base64 с float32 little-endian; при квантовании — строка base64 с байтами int8 "
+                + "или битами (старший бит первый).")
+        @JsonSerialize(using = VectorSerializer.class)
+        @JsonDeserialize(using = VectorDeserializer.class)
+        @ToString.Exclude
+        private float[] embedding;
+
+        /**
+         * Отдавать вектор строкой base64, а не массивом чисел.
+         */
+        @JsonIgnore
+        @Schema(hidden = true)
+        private boolean base64;
+
+        /**
+         * Квантованный вектор; если задан, отдаётся вместо {@code embedding}.
+         */
+        @JsonIgnore
+        @Schema(hidden = true)
+        @ToString.Exclude
+        private byte[] quantized;
+
+        @Schema(description = "Шаг квантования: int8 — x ≈ (q + 128) * scale + offset, binary — x ≈ ±scale.")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Float scale;
+
+        @Schema(description = "Смещение квантования (минимум вектора для int8).")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Float offset;
     }
 
     @Data
@@ -41,4 +91,60 @@ public class EmbeddingsResponseDTO {
         @JsonProperty("total_tokens")
         private Integer totalTokens;
     }
+
+    /**
+     * Вектор в JSON: массив чисел или строка base64 — по {@link EmbeddingData#isBase64()};
+     * квантованный вектор — всегда строкой base64.
+     */
+    static class VectorSerializer extends JsonSerializer<float[]> {
+
+        @Override
+        public void serialize(float[] vector, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            if (gen.currentValue() instanceof EmbeddingData data) {
+                if (data.getQuantized() != null) {
+                    gen.writeString(Base64.getEncoder().encodeToString(data.getQuantized()));
+                    return;
+                }
+                if (data.isBase64()) {
+                    gen.writeString(VectorCodec.encodeBase64(vector));
+                    return;
+                }
+            }
+            gen.writeStartArray(vector, vector.length);
+            for (float value : vector) {
+                gen.writeNumber(value);
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    /**
+     * Вектор из JSON сразу в {@code float[]}, без промежуточных {@code Double}:
+     * из массива чисел или из строки base64.
+     */
+    static class VectorDeserializer extends JsonDeserializer<float[]> {
+
+        @Override
+        public float[] deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                try {
+                    return VectorCodec.decodeBase64(parser.getText());
+                } catch (IllegalArgumentException e) {
+                    throw JsonMappingException.from(parser, e.getMessage(), e);
+                }
+            }
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                return (float[]) context.handleUnexpectedToken(float[].class, parser);
+            }
+            float[] vector = new float[1536];
+            int size = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (size == vector.length) {
+                    vector = Arrays.copyOf(vector, size * 2);
+                }
+                vector[size++] = parser.getFloatValue();
+            }
+            return size == vector.length ? vector : Arrays.copyOf(vector, size);
+        }
+    }
 }
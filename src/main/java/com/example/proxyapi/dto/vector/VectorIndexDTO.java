@@ -0,0 +1,27 @@
+package com.example.proxyapi.dto.vector;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Описание индекса векторов.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VectorIndexDTO {
+
+    @Schema(description = "Имя индекса.", example = "docs")
+    private String name;
+
+    @Schema(description = "Модель embeddings, векторы которой хранит индекс.", example = "text-embedding-3-small")
+    private String model;
+
+    @Schema(description = "Размерность векторов.", example = "1536")
+    private int dimensions;
+
+    @Schema(description = "Число векторов.", example = "1000")
+    private int size;
+}
@@ -0,0 +1,39 @@
+package com.example.proxyapi.dto.vector;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+/**
+ * Запрос поиска ближайших векторов: текст (векторизуется моделью индекса) или готовый вектор.
+ */
+@Data
+public class VectorSearchRequestDTO {
+
+    /**
+     * Текст запроса; векторизуется той же моделью, что и векторы индекса.
+     */
+    @Schema(description = "Текст запроса (векторизуется моделью индекса). Указывается query или vector.",
+            example = "Как вернуть товар?")
+    private String query;
+
+    /**
+     * Готовый вектор запроса той же размерности, что и индекс.
+     */
+    @Schema(description = "Готовый вектор запроса той же размерности, что и индекс.")
+    private float[] vector;
+
+    /**
+     * Сколько результатов вернуть.
+     */
+    @Min(1)
+    @Schema(description = "Сколько ближайших векторов вернуть.", example = "10")
+    private int k = 10;
+
+    /**
+     * Ширина поиска HNSW; по умолчанию — из настроек.
+     */
+    @Min(1)
+    @Schema(description = "Ширина поиска HNSW: больше — точнее, но медленнее.", example = "64")
+    private Integer ef;
+}
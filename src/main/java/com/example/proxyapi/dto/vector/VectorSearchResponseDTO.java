@@ -0,0 +1,38 @@
+package com.example.proxyapi.dto.vector;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Результаты поиска ближайших векторов.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VectorSearchResponseDTO {
+
+    @Schema(description = "Имя индекса.", example = "docs")
+    private String index;
+
+    @Schema(description = "Модель embeddings индекса.", example = "text-embedding-3-small")
+    private String model;
+
+    @Schema(description = "Найденные векторы от самого близкого.")
+    private List<Match> results;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Match {
+
+        @Schema(description = "Идентификатор вектора, заданный при индексации.", example = "doc-42")
+        private String id;
+
+        @Schema(description = "Косинусная близость к запросу.", example = "0.87")
+        private float score;
+    }
+}
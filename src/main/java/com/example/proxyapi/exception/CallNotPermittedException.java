@@ -0,0 +1,23 @@
+package com.example.proxyapi.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Вызов эндпоинта ProxyAPI отклонён без обращения к нему:
+ * circuit breaker разомкнут или превышен лимит одновременных вызовов.
+ */
+@Getter
+public class CallNotPermittedException extends RuntimeException {
+
+    /**
+     * Через сколько имеет смысл повторить запрос.
+     */
+    private final Duration retryAfter;
+
+    public CallNotPermittedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.proxyapi.exception;
+
+/**
+ * Для запроса нет апстрима: веса всех апстримов для его модели равны нулю.
+ * Это ограничение конфигурации прокси, а не ошибка клиента, поэтому клиент получает 503.
+ */
+public class NoUpstreamAvailableException extends RuntimeException {
+
+    public NoUpstreamAvailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.proxyapi.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Запрос не допущен: лимит частоты исчерпан, а очередь ожидания заполнена
+ * или ждать пришлось бы слишком долго.
+ */
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+
+    /**
+     * Через сколько имеет смысл повторить запрос.
+     */
+    private final Duration retryAfter;
+
+    public RateLimitExceededException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.proxyapi.exception;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+
+/**
+ * Ответ ProxyAPI с кодом вне диапазона 2xx.
+ * Хранит код, заголовки и тело ответа, чтобы по ним можно было решить, повторять ли запрос.
+ */
+@Getter
+public class UpstreamHttpException extends IOException {
+
+    private final int statusCode;
+    private final transient HttpHeaders headers;
+    private final String body;
+
+    public UpstreamHttpException(String method, int statusCode, HttpHeaders headers, String body) {
+        super(method + " request failed with status code: " + statusCode + " and body: " + body);
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.body = body;
+    }
+}
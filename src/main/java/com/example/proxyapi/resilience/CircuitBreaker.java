@@ -0,0 +1,230 @@
+package com.example.proxyapi.resilience;
+
+import com.example.proxyapi.config.CircuitBreakerProperties.EndpointPolicy;
+import com.example.proxyapi.exception.CallNotPermittedException;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker одного эндпоинта со скользящим окном по числу вызовов.
+ * <p>
+ * Состояния:
+ * <ul>
+ *     <li>{@link State#CLOSED} — вызовы проходят, их исходы записываются в кольцевой буфер
+ *     последних {@code slidingWindowSize} вызовов. Когда доля ошибок или медленных вызовов
+ *     превышает порог, breaker размыкается;</li>
+ *     <li>{@link State#OPEN} — вызовы сразу отклоняются в течение {@code waitDurationInOpenState};</li>
+ *     <li>{@link State#HALF_OPEN} — пропускается {@code permittedCallsInHalfOpenState} пробных
+ *     вызовов; по их итогам breaker либо замыкается, либо снова размыкается.</li>
+ * </ul>
+ * Дополнительно ограничивается число одновременных вызовов ({@code maxConcurrentCalls}).
+ * <p>
+ * Каждый переход меняет номер поколения состояния, и разрешение на вызов запоминает
+ * поколение, в котором выдано. Исход вызова учитывается, только если поколение с тех пор
+ * не сменилось: медленный вызов, начатый до размыкания, не решает судьбу пробных вызовов
+ * HALF_OPEN и не попадает в окно после замыкания.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final EndpointPolicy policy;
+    private final long slowCallNanos;
+
+    private final byte[] window;
+    private int windowPosition;
+    private int bufferedCalls;
+    private int failedCalls;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openUntilNanos;
+    private int halfOpenPermitted;
+    private int halfOpenCompleted;
+    private int halfOpenFailed;
+
+    private int concurrentCalls;
+    private long notPermittedCalls;
+
+    public CircuitBreaker(String name, EndpointPolicy policy) {
+        this.name = name;
+        this.policy = policy;
+        this.slowCallNanos = policy.getSlowCallDurationThreshold().toNanos();
+        this.window = new byte[Math.max(1, policy.getSlidingWindowSize())];
+    }
+
+    /**
+     * Получить разрешение на вызов.
+     *
+     * @return Разрешение: поколение состояния, которое передаётся в {@link #onResult} или {@link #releasePermission}
+     * @throws CallNotPermittedException если вызов отклонён
+     */
+    public synchronized long acquirePermission() {
+        if (state == State.OPEN && System.nanoTime() >= openUntilNanos) {
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.OPEN) {
+            notPermittedCalls++;
+            throw new CallNotPermittedException(
+                    "Circuit breaker for " + name + " is OPEN", remainingOpenTime());
+        }
+        if (state == State.HALF_OPEN && halfOpenPermitted >= policy.getPermittedCallsInHalfOpenState()) {
+            notPermittedCalls++;
+            throw new CallNotPermittedException(
+                    "Circuit breaker for " + name + " is HALF_OPEN, probe calls are in flight", Duration.ofSeconds(1));
+        }
+        if (policy.getMaxConcurrentCalls() > 0 && concurrentCalls >= policy.getMaxConcurrentCalls()) {
+            notPermittedCalls++;
+            throw new CallNotPermittedException(
+                    "Too many concurrent calls to " + name, Duration.ofSeconds(1));
+        }
+        if (state == State.HALF_OPEN) {
+            halfOpenPermitted++;
+        }
+        concurrentCalls++;
+        return generation;
+    }
+
+    /**
+     * Записать исход вызова, для которого было получено разрешение.
+     *
+     * @param permission    Разрешение из {@link #acquirePermission}
+     * @param durationNanos Длительность вызова
+     * @param failed        true, если вызов завершился ошибкой, которая говорит о сбое эндпоинта
+     */
+    public synchronized void onResult(long permission, long durationNanos, boolean failed) {
+        concurrentCalls--;
+        if (permission != generation) {
+            // Вызов начался в другом состоянии (например, до размыкания) — к текущему он не относится
+            return;
+        }
+        byte outcome = failed ? FAILURE : (durationNanos > slowCallNanos ? SLOW : SUCCESS);
+
+        if (state == State.HALF_OPEN) {
+            halfOpenCompleted++;
+            if (outcome != SUCCESS) {
+                halfOpenFailed++;
+            }
+            if (halfOpenCompleted >= policy.getPermittedCallsInHalfOpenState()) {
+                float rate = halfOpenFailed * 100f / halfOpenCompleted;
+                transitionTo(rate >= Math.min(policy.getFailureRateThreshold(), policy.getSlowCallRateThreshold())
+                        ? State.OPEN : State.CLOSED);
+            }
+            return;
+        }
+
+        record(outcome);
+        if (bufferedCalls >= policy.getMinimumNumberOfCalls()
+                && (failureRate() >= policy.getFailureRateThreshold() || slowCallRate() >= policy.getSlowCallRateThreshold())) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * Отменить разрешение, если вызов так и не был отправлен.
+     *
+     * @param permission Разрешение из {@link #acquirePermission}
+     */
+    public synchronized void releasePermission(long permission) {
+        concurrentCalls--;
+        if (permission == generation && state == State.HALF_OPEN && halfOpenPermitted > 0) {
+            halfOpenPermitted--;
+        }
+    }
+
+    /**
+     * @return Снимок состояния для мониторинга
+     */
+    public synchronized Snapshot snapshot() {
+        if (state == State.OPEN && System.nanoTime() >= openUntilNanos) {
+            transitionTo(State.HALF_OPEN);
+        }
+        return new Snapshot(
+                state,
+                bufferedCalls,
+                bufferedCalls == 0 ? 0 : failureRate(),
+                bufferedCalls == 0 ? 0 : slowCallRate(),
+                concurrentCalls,
+                notPermittedCalls,
+                state == State.OPEN ? remainingOpenTime().toMillis() : 0
+        );
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void record(byte outcome) {
+        if (bufferedCalls == window.length) {
+            byte evicted = window[windowPosition];
+            if (evicted == FAILURE) {
+                failedCalls--;
+            } else if (evicted == SLOW) {
+                slowCalls--;
+            }
+        } else {
+            bufferedCalls++;
+        }
+        window[windowPosition] = outcome;
+        windowPosition = (windowPosition + 1) % window.length;
+        if (outcome == FAILURE) {
+            failedCalls++;
+        } else if (outcome == SLOW) {
+            slowCalls++;
+        }
+    }
+
+    private float failureRate() {
+        return failedCalls * 100f / bufferedCalls;
+    }
+
+    private float slowCallRate() {
+        return slowCalls * 100f / bufferedCalls;
+    }
+
+    private Duration remainingOpenTime() {
+        return Duration.ofNanos(Math.max(0, openUntilNanos - System.nanoTime()));
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        generation++;
+        switch (newState) {
+            case OPEN -> openUntilNanos = System.nanoTime() + policy.getWaitDurationInOpenState().toNanos();
+            case HALF_OPEN -> {
+                halfOpenPermitted = 0;
+                halfOpenCompleted = 0;
+                halfOpenFailed = 0;
+            }
+            case CLOSED -> {
+                windowPosition = 0;
+                bufferedCalls = 0;
+                failedCalls = 0;
+                slowCalls = 0;
+            }
+        }
+    }
+
+    /**
+     * Снимок состояния breaker'а.
+     *
+     * @param state             Текущее состояние
+     * @param bufferedCalls     Число вызовов в окне
+     * @param failureRate       Доля ошибок в окне, %
+     * @param slowCallRate      Доля медленных вызовов в окне, %
+     * @param concurrentCalls   Число вызовов в процессе
+     * @param notPermittedCalls Сколько вызовов отклонено с момента запуска
+     * @param openRemainingMs   Сколько ещё breaker будет разомкнут, мс
+     */
+    public record Snapshot(State state, int bufferedCalls, float failureRate, float slowCallRate,
+                           int concurrentCalls, long notPermittedCalls, long openRemainingMs) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.proxyapi.resilience;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator-эндпоинт {@code /actuator/circuitbreakers} с состоянием breaker'ов.
+ */
+@Component
+@Endpoint(id = "circuitbreakers")
+public class CircuitBreakerEndpoint {
+
+    private final CircuitBreakerRegistry registry;
+
+    public CircuitBreakerEndpoint(CircuitBreakerRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, CircuitBreaker.Snapshot> circuitBreakers() {
+        return registry.snapshots();
+    }
+}
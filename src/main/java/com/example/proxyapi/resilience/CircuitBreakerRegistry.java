@@ -0,0 +1,95 @@
+package com.example.proxyapi.resilience;
+
+import com.example.proxyapi.config.CircuitBreakerProperties;
+import com.example.proxyapi.exception.CallNotPermittedException;
+import com.example.proxyapi.exception.UpstreamHttpException;
+import com.example.proxyapi.utils.ProxyApiEndpoint;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Набор circuit breaker'ов — по одному на эндпоинт ProxyAPI.
+ * <p>
+ * Сбой одного эндпоинта (например, генерации изображений) не влияет на остальные.
+ * Пока breaker разомкнут, вызовы завершаются {@link CallNotPermittedException} сразу,
+ * не занимая соединение и не дожидаясь таймаута.
+ * <p>
+ * Ошибкой эндпоинта считаются ответы 5xx и 408, сетевые ошибки и таймауты. Ответы 429
+ * и прочие 4xx говорят о лимитах или самом запросе, а не о сбое, и breaker не размыкают.
+ */
+@Slf4j
+@Component
+public class CircuitBreakerRegistry {
+
+    private final boolean enabled;
+    private final Map<ProxyApiEndpoint, CircuitBreaker> breakers = new EnumMap<>(ProxyApiEndpoint.class);
+
+    public CircuitBreakerRegistry(CircuitBreakerProperties properties) {
+        this.enabled = properties.isEnabled();
+        for (ProxyApiEndpoint endpoint : ProxyApiEndpoint.values()) {
+            breakers.put(endpoint, new CircuitBreaker(endpoint.path(), properties.resolve(endpoint)));
+        }
+    }
+
+    /**
+     * Выполнить вызов под защитой breaker'а эндпоинта.
+     *
+     * @param endpoint Эндпоинт ProxyAPI
+     * @param call     Вызов
+     * @return Future с результатом вызова или с {@link CallNotPermittedException}, если вызов отклонён
+     */
+    public <T> CompletableFuture<T> execute(ProxyApiEndpoint endpoint, Supplier<CompletableFuture<T>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        CircuitBreaker breaker = breakers.get(endpoint);
+        long permission;
+        try {
+            permission = breaker.acquirePermission();
+        } catch (CallNotPermittedException e) {
+            log.debug("{}", e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            breaker.releasePermission(permission);
+            throw e;
+        }
+        return future.whenComplete((value, error) -> breaker.onResult(permission, System.nanoTime() - start, isFailure(error)));
+    }
+
+    /**
+     * @return Состояние breaker'ов по эндпоинтам
+     */
+    public Map<String, CircuitBreaker.Snapshot> snapshots() {
+        Map<String, CircuitBreaker.Snapshot> result = new LinkedHashMap<>();
+        breakers.forEach((endpoint, breaker) -> result.put(breaker.getName(), breaker.snapshot()));
+        return result;
+    }
+
+    private static boolean isFailure(Throwable error) {
+        if (error == null) {
+            return false;
+        }
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof UpstreamHttpException upstream) {
+            return upstream.getStatusCode() >= 500 || upstream.getStatusCode() == 408;
+        }
+        return cause instanceof IOException;
+    }
+}
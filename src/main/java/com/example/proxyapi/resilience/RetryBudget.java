@@ -0,0 +1,57 @@
+package com.example.proxyapi.resilience;
+
+/**
+ * Бюджет повторов: ограничивает число повторов долей от общего трафика.
+ * <p>
+ * Каждый исходный запрос пополняет бюджет на {@code ratio} токена, каждый повтор тратит
+ * один токен. Дополнительно бюджет равномерно пополняется на {@code minPerSecond} токенов
+ * в секунду, чтобы при малом трафике повторы всё же были возможны. Запас ограничен,
+ * поэтому после затишья нельзя разом выпустить лавину повторов.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double minPerSecond;
+    private final double capacity;
+
+    private double balance;
+    private long lastRefillNanos;
+
+    public RetryBudget(double ratio, double minPerSecond) {
+        this.ratio = ratio;
+        this.minPerSecond = minPerSecond;
+        // Запас на 10 секунд минимального потока плюс небольшая фора
+        this.capacity = Math.max(10.0, minPerSecond * 10);
+        this.balance = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Учесть исходный (не повторный) запрос.
+     */
+    public synchronized void onRequest() {
+        refill();
+        balance = Math.min(capacity, balance + ratio);
+    }
+
+    /**
+     * Попытаться потратить токен на повтор.
+     *
+     * @return true, если повтор разрешён
+     */
+    public synchronized boolean tryAcquireRetry() {
+        refill();
+        if (balance >= 1.0) {
+            balance -= 1.0;
+            return true;
+        }
+        return false;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double seconds = (now - lastRefillNanos) / 1_000_000_000.0;
+        lastRefillNanos = now;
+        balance = Math.min(capacity, balance + seconds * minPerSecond);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.proxyapi.resilience;
+
+import com.example.proxyapi.config.HttpClientProperties;
+import com.example.proxyapi.config.RetryProperties;
+import com.example.proxyapi.exception.UpstreamHttpException;
+import com.example.proxyapi.utils.ProxyApiEndpoint;
+import com.example.proxyapi.utils.RateLimitHeaders;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Повтор запросов к ProxyAPI при временных ошибках.
+ * <p>
+ * Повторяются ответы с кодами из {@code api.retry.retryable-statuses} и сетевые ошибки
+ * (кроме таймаута ожидания ответа). Задержка — экспоненциальная с полным джиттером;
+ * если сервер указал {@code Retry-After} или {@code x-ratelimit-reset-*}, выдерживается
+ * указанное им время. Общее число повторов ограничено {@link RetryBudget}, чтобы при
+ * массовом сбое прокси не умножал нагрузку на ProxyAPI, а общее время запроса — настройкой
+ * {@code api.retry.max-total-time}: попытка, которая может не успеть до этого срока, не начинается.
+ * <p>
+ * Ожидание между попытками не занимает поток: следующая попытка планируется через
+ * {@link CompletableFuture#delayedExecutor}.
+ */
+@Slf4j
+@Component
+public class RetryExecutor {
+
+    private final RetryProperties properties;
+    private final HttpClientProperties httpProperties;
+    private final RetryBudget budget;
+
+    public RetryExecutor(RetryProperties properties, HttpClientProperties httpProperties) {
+        this.properties = properties;
+        this.httpProperties = httpProperties;
+        this.budget = new RetryBudget(properties.getBudgetRatio(), properties.getBudgetMinRetriesPerSecond());
+    }
+
+    /**
+     * Выполнить вызов с повторами.
+     *
+     * @param endpoint Эндпоинт ProxyAPI (определяет политику повторов)
+     * @param call     Фабрика попытки; вызывается заново для каждой попытки
+     * @return Future с результатом первой успешной попытки или ошибкой последней
+     */
+    public <T> CompletableFuture<T> execute(ProxyApiEndpoint endpoint, Supplier<CompletableFuture<T>> call) {
+        if (!properties.isEnabled()) {
+            return call.get();
+        }
+        budget.onRequest();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(endpoint, call, 1, System.nanoTime(), result);
+        return result;
+    }
+
+    private <T> void attempt(ProxyApiEndpoint endpoint, Supplier<CompletableFuture<T>> call,
+                             int attemptNumber, long startNanos, CompletableFuture<T> result) {
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Optional<Duration> delay = retryDelay(endpoint, unwrap(error), attemptNumber,
+                    Duration.ofNanos(System.nanoTime() - startNanos));
+            if (delay.isEmpty()) {
+                result.completeExceptionally(error);
+                return;
+            }
+            log.warn("Retrying {} (attempt {} of {}) in {} ms: {}", endpoint.path(), attemptNumber + 1,
+                    properties.maxAttemptsFor(endpoint), delay.get().toMillis(), unwrap(error).getMessage());
+            CompletableFuture.delayedExecutor(delay.get().toMillis(), TimeUnit.MILLISECONDS)
+                    .execute(() -> attempt(endpoint, call, attemptNumber + 1, startNanos, result));
+        });
+    }
+
+    /**
+     * Решить, повторять ли попытку, и вычислить задержку.
+     *
+     * @param elapsed Время с начала первой попытки
+     * @return Задержка перед следующей попыткой или пусто, если повторять нельзя
+     */
+    private Optional<Duration> retryDelay(ProxyApiEndpoint endpoint, Throwable error, int attemptNumber,
+                                          Duration elapsed) {
+        if (attemptNumber >= properties.maxAttemptsFor(endpoint) || !isRetryable(error)) {
+            return Optional.empty();
+        }
+
+        Duration delay = backoff(endpoint, attemptNumber);
+        if (error instanceof UpstreamHttpException upstream && upstream.getHeaders() != null) {
+            Optional<Duration> serverDelay = RateLimitHeaders.retryDelay(upstream.getHeaders());
+            if (serverDelay.isPresent()) {
+                if (serverDelay.get().compareTo(properties.getMaxRetryAfter()) > 0) {
+                    log.debug("Server asks to wait {} for {}, longer than allowed — not retrying",
+                            serverDelay.get(), endpoint.path());
+                    return Optional.empty();
+                }
+                // Небольшой джиттер поверх указанного сервером времени, чтобы повторы не пришли одной пачкой
+                delay = serverDelay.get().plus(jitter(properties.initialBackoffFor(endpoint)));
+            }
+        }
+
+        // Попытка, которая может не закончиться до срока, тратит ключ и бюджет на ответ, которого клиент не дождётся
+        Duration finish = elapsed.plus(delay).plus(httpProperties.timeoutFor(endpoint));
+        if (finish.compareTo(properties.getMaxTotalTime()) > 0) {
+            log.debug("Not retrying {}: attempt {} could end after {} ms, past max-total-time",
+                    endpoint.path(), attemptNumber + 1, finish.toMillis());
+            return Optional.empty();
+        }
+
+        if (!budget.tryAcquireRetry()) {
+            log.warn("Retry budget exhausted, not retrying {}", endpoint.path());
+            return Optional.empty();
+        }
+        return Optional.of(delay);
+    }
+
+    /**
+     * Экспоненциальная задержка с полным джиттером: случайное значение от 0 до
+     * min(maxBackoff, initialBackoff * multiplier^(attempt-1)).
+     */
+    private Duration backoff(ProxyApiEndpoint endpoint, int attemptNumber) {
+        double base = properties.initialBackoffFor(endpoint).toMillis()
+                * Math.pow(properties.getMultiplier(), attemptNumber - 1);
+        long cap = (long) Math.min(properties.maxBackoffFor(endpoint).toMillis(), base);
+        return jitter(Duration.ofMillis(cap));
+    }
+
+    private static Duration jitter(Duration upperBound) {
+        long bound = upperBound.toMillis();
+        return Duration.ofMillis(bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1));
+    }
+
+    private boolean isRetryable(Throwable error) {
+        if (error instanceof UpstreamHttpException upstream) {
+            return properties.getRetryableStatuses().contains(upstream.getStatusCode());
+        }
+        // Таймаут ожидания ответа не повторяем: запрос мог уже выполняться на стороне ProxyAPI
+        if (error instanceof HttpTimeoutException) {
+            return error instanceof HttpConnectTimeoutException;
+        }
+        return error instanceof IOException;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
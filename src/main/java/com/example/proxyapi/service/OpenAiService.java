@@ -1,118 +1,721 @@
 package com.example.proxyapi.service;
 
+import com.example.proxyapi.admission.TokenEstimator;
+import com.example.proxyapi.cache.CacheDirective;
+import com.example.proxyapi.cache.CacheResult;
+import com.example.proxyapi.cache.CachedResponse;
+import com.example.proxyapi.cache.ChatCompletionCache;
+import com.example.proxyapi.cache.EmbeddingsCache;
+import com.example.proxyapi.cache.ModelsCache;
+import com.example.proxyapi.cache.SemanticChatCache;
+import com.example.proxyapi.cache.SpeechCache;
+import com.example.proxyapi.config.EmbeddingsBatchProperties;
+import com.example.proxyapi.config.ModelsCacheProperties;
 import com.example.proxyapi.dto.openai.*;
 import com.example.proxyapi.exception.ProxyApiException;
+import com.example.proxyapi.exception.UpstreamHttpException;
+import com.example.proxyapi.resilience.CircuitBreakerRegistry;
+import com.example.proxyapi.resilience.RetryExecutor;
+import com.example.proxyapi.upstream.ApiKey;
+import com.example.proxyapi.upstream.Upstream;
+import com.example.proxyapi.upstream.UpstreamPool;
+import com.example.proxyapi.utils.ChatRequestRewriter;
 import com.example.proxyapi.utils.FilePart;
+import com.example.proxyapi.utils.Hashes;
+import com.example.proxyapi.utils.MicroBatcher;
+import com.example.proxyapi.utils.ProxyApiEndpoint;
 import com.example.proxyapi.utils.ProxyApiHttpClient;
+import com.example.proxyapi.utils.SingleFlight;
+import com.example.proxyapi.vector.VectorIndexRegistry;
+import com.example.proxyapi.vector.VectorQuantizer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
 
 /**
  * Сервис для взаимодействия с OpenAI через ProxyAPI.
+ * <p>
+ * Все методы асинхронные: поток, вызвавший метод, не ждёт ответа ProxyAPI,
+ * а результат (или {@link ProxyApiException}) приходит через {@link CompletableFuture}.
  */
 @Service
 public class OpenAiService {
 
     private static final Logger log = LoggerFactory.getLogger(OpenAiService.class);
 
-    @Value("${api.key}")
-    private String proxyApiKey;
-
-    @Value("${api.base-url}")
-    private String baseUrl;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Читатели и писатели под каждый тип DTO собираются один раз: сериализаторы уже найдены,
+    // на запрос остаётся только разбор/запись байтов
+    private final ObjectWriter chatRequestWriter;
+    private final ObjectReader chatResponseReader;
+    private final ObjectWriter embeddingsRequestWriter;
+    private final ObjectReader embeddingsResponseReader;
+    private final ObjectWriter imageRequestWriter;
+    private final ObjectReader imageResponseReader;
+    private final ObjectWriter speechRequestWriter;
+    private final ObjectReader audioResponseReader;
+    private final ProxyApiHttpClient httpClient;
+    private final RetryExecutor retryExecutor;
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final UpstreamPool upstreamPool;
+    private final SingleFlight<String, byte[]> singleFlight = new SingleFlight<>();
+    private final ModelsCache modelsCache;
+    private final EmbeddingsCache embeddingsCache;
+    private final ChatCompletionCache chatCompletionCache;
+    private final SemanticChatCache semanticChatCache;
+    private final SpeechCache speechCache;
+    private final VectorIndexRegistry vectorIndexes;
+    private final EmbeddingsBatchProperties embeddingsBatchProperties;
+    private final MicroBatcher<String, String, EmbeddingsResponseDTO> embeddingsBatcher;
 
     // Набор моделей, для которых используется max_completion_tokens и temperature=1
     private static final Set<String> MODELS_WITH_MAX_COMPLETION_TOKENS = Set.of("o1", "o1-mini");
+    private static final ChatRequestRewriter CHAT_REQUEST_REWRITER = new ChatRequestRewriter(MODELS_WITH_MAX_COMPLETION_TOKENS);
+
+    public OpenAiService(ProxyApiHttpClient httpClient,
+                         RetryExecutor retryExecutor,
+                         CircuitBreakerRegistry circuitBreakers,
+                         UpstreamPool upstreamPool,
+                         ModelsCacheProperties modelsCacheProperties,
+                         EmbeddingsCache embeddingsCache,
+                         ChatCompletionCache chatCompletionCache,
+                         SemanticChatCache semanticChatCache,
+                         SpeechCache speechCache,
+                         VectorIndexRegistry vectorIndexes,
+                         EmbeddingsBatchProperties embeddingsBatchProperties,
+                         ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry) {
+        this.httpClient = httpClient;
+        this.retryExecutor = retryExecutor;
+        this.circuitBreakers = circuitBreakers;
+        this.upstreamPool = upstreamPool;
+        this.embeddingsCache = embeddingsCache;
+        this.chatCompletionCache = chatCompletionCache;
+        this.semanticChatCache = semanticChatCache;
+        this.speechCache = speechCache;
+        this.vectorIndexes = vectorIndexes;
+        this.embeddingsBatchProperties = embeddingsBatchProperties;
+        this.chatRequestWriter = objectMapper.writerFor(ChatCompletionRequestDTO.class);
+        this.chatResponseReader = objectMapper.readerFor(ChatCompletionResponseDTO.class);
+        this.embeddingsRequestWriter = objectMapper.writerFor(Map.class);
+        this.embeddingsResponseReader = objectMapper.readerFor(EmbeddingsResponseDTO.class);
+        this.imageRequestWriter = objectMapper.writerFor(ImageGenerationRequestDTO.class);
+        this.imageResponseReader = objectMapper.readerFor(ImageGenerationResponseDTO.class);
+        this.speechRequestWriter = objectMapper.writerFor(AudioSpeechRequestDTO.class);
+        this.audioResponseReader = objectMapper.readerFor(AudioResponseDTO.class);
+        this.modelsCache = new ModelsCache(modelsCacheProperties, () -> call(ProxyApiEndpoint.MODELS, null,
+                (upstream, key) -> httpClient.sendGetAsync(upstream.getBaseUrl(), ProxyApiEndpoint.MODELS, key)));
+        FunctionCounter.builder("proxyapi.requests.coalesced", singleFlight, SingleFlight::coalescedCount)
+                .description("Запросы, присоединённые к одинаковому уже выполняющемуся запросу")
+                .register(meterRegistry);
+        if (embeddingsBatchProperties.isEnabled()) {
+            this.embeddingsBatcher = new MicroBatcher<>(embeddingsBatchProperties.getMaxBatchSize(),
+                    embeddingsBatchProperties.getMaxDelay(), this::embedBatch);
+            FunctionCounter.builder("proxyapi.embeddings.batches", embeddingsBatcher, MicroBatcher::batchCount)
+                    .description("Запросы embeddings к ProxyAPI после объединения в пакеты")
+                    .register(meterRegistry);
+            FunctionCounter.builder("proxyapi.embeddings.batched-items", embeddingsBatcher, MicroBatcher::itemCount)
+                    .description("Тексты, прошедшие через объединение в пакеты")
+                    .register(meterRegistry);
+        } else {
+            this.embeddingsBatcher = null;
+        }
+    }
 
     /**
      * Получить список доступных моделей.
+     * <p>
+     * Список меняется редко, поэтому отдаётся из {@link ModelsCache} и обновляется в фоне.
      *
-     * @return JSON-строка со списком моделей
+     * @return Future с JSON со списком моделей и его ETag
      */
-    public String listModels() {
-        String url = baseUrl + "/v1/models";
-        try {
-            return ProxyApiHttpClient.sendGet(url, proxyApiKey);
-        } catch (IOException | InterruptedException e) {
-            throw new ProxyApiException("Ошибка при получении списка моделей (OpenAI)", e);
-        }
+    public CompletableFuture<CachedResponse> listModels() {
+        return withErrorHandling(
+                modelsCache.get(),
+                "Ошибка при получении списка моделей (OpenAI)"
+        );
     }
 
     /**
      * Создать Chat Completion.
+     * <p>
+     * Ответы на детерминированные запросы (temperature=0) кешируются в
+     * {@link ChatCompletionCache}, если он включён; {@code directive} позволяет клиенту
+     * обновить или обойти кеш. Если включён {@link SemanticChatCache}, перед обращением
+     * к ProxyAPI ищется ответ на близкий по смыслу вопрос.
      *
      * @param requestInputDTO Запрос с параметрами
-     * @return Ответ от OpenAI как ChatCompletionResponseDTO
+     * @param directive       Разрешение клиента на использование кеша
+     * @return Future с ответом от OpenAI как ChatCompletionResponseDTO и статусом кеша
      */
-    public ChatCompletionResponseDTO createChatCompletion(ChatCompletionRequestInputDTO requestInputDTO) {
-        String url = baseUrl + "/v1/chat/completions";
+    public CompletableFuture<CacheResult<ChatCompletionResponseDTO>> createChatCompletion(
+            ChatCompletionRequestInputDTO requestInputDTO, CacheDirective directive) {
+        ProxyApiEndpoint endpoint = ProxyApiEndpoint.CHAT_COMPLETIONS;
         try {
             // Маппинг входящего DTO на внутренний DTO
-            ChatCompletionRequestDTO requestDTO = new ChatCompletionRequestDTO();
-            requestDTO.setModel(requestInputDTO.getModel());
-            requestDTO.setMessages(requestInputDTO.getMessages());
-            requestDTO.setMaxTokens(requestInputDTO.getMaxTokens());
-            requestDTO.setTemperature(requestInputDTO.getTemperature());
-
-            // Проверка модели и настройка параметров
-            if (MODELS_WITH_MAX_COMPLETION_TOKENS.contains(requestInputDTO.getModel())) {
-                // Используем max_completion_tokens вместо max_tokens
-                requestDTO.setMaxCompletionTokens(requestInputDTO.getMaxTokens());
-                requestDTO.setMaxTokens(null);
-                // Устанавливаем temperature = 1
-                requestDTO.setTemperature(1.0);
-                log.debug("Model {} requires max_completion_tokens and temperature=1. Setting accordingly.", requestDTO.getModel());
-            }
+            ChatCompletionRequestDTO requestDTO = toChatCompletionRequest(requestInputDTO);
+            requestDTO.setStream(null);
 
             // Сериализация запроса в JSON
-            String jsonRequest = objectMapper.writeValueAsString(requestDTO);
-            log.debug("Sending POST request to {} with body: {}", url, jsonRequest);
+            byte[] jsonRequest = chatRequestWriter.writeValueAsBytes(requestDTO);
+
+            // Тот же детерминированный запрос уже выполнялся — ответ берётся из кеша
+            boolean cacheable = isDeterministic(requestDTO) && directive != CacheDirective.BYPASS
+                    && chatCompletionCache.isCacheable(requestDTO.getModel());
+            if (cacheable && directive == CacheDirective.USE) {
+                byte[] cached = chatCompletionCache.get(jsonRequest);
+                if (cached != null) {
+                    log.debug("Chat completion cache hit for model {}", requestDTO.getModel());
+                    return CompletableFuture.completedFuture(
+                            new CacheResult<>(readJson(cached, chatResponseReader), CacheResult.HIT));
+                }
+            }
+            boolean semantic = directive != CacheDirective.BYPASS && semanticChatCache.isApplicable(requestDTO);
+            String cacheStatus = cacheable || semantic ? CacheResult.MISS
+                    : chatCompletionCache.isEnabled() || semanticChatCache.isEnabled() ? CacheResult.BYPASS : null;
+
+            // Для семантического кеша сначала векторизуем вопрос: на близкий вопрос ответ уже может быть
+            CompletableFuture<float[]> question = semantic
+                    ? embedQuestion(requestDTO)
+                    : CompletableFuture.completedFuture(null);
+
+            return withErrorHandling(
+                    question.thenCompose(vector -> {
+                        if (vector != null && directive == CacheDirective.USE) {
+                            byte[] similar = semanticChatCache.get(requestDTO, vector);
+                            if (similar != null) {
+                                log.debug("Semantic cache hit for model {}", requestDTO.getModel());
+                                return CompletableFuture.completedFuture(new CacheResult<>(
+                                        readJson(similar, chatResponseReader), CacheResult.SEMANTIC_HIT));
+                            }
+                        }
+                        log.debug("Sending POST request to {} with body: {}", endpoint.path(), debugText(jsonRequest));
+
+                        // Отправка POST-запроса; при temperature=0 ответ детерминирован,
+                        // и одинаковые одновременные запросы объединяются
+                        Supplier<CompletableFuture<byte[]>> request = () -> call(endpoint, requestDTO.getModel(),
+                                (upstream, key) -> httpClient.sendPostAsync(upstream.getBaseUrl(), endpoint, jsonRequest, key));
+                        CompletableFuture<byte[]> response = isDeterministic(requestDTO)
+                                ? coalesced(endpoint, requestDTO.getModel(), jsonRequest, request)
+                                : request.get();
+
+                        // Десериализация ответа в DTO
+                        return response.thenApply(jsonResponse -> {
+                            log.debug("Received response: {}", debugText(jsonResponse));
+                            ChatCompletionResponseDTO responseDTO = readJson(jsonResponse, chatResponseReader);
+                            if (cacheable) {
+                                chatCompletionCache.put(requestDTO.getModel(), jsonRequest, jsonResponse);
+                            }
+                            if (vector != null) {
+                                semanticChatCache.put(requestDTO, vector, jsonResponse);
+                            }
+                            return new CacheResult<>(responseDTO, cacheStatus);
+                        });
+                    }),
+                    "Ошибка при создании chat-completion (OpenAI)"
+            );
+
+        } catch (IOException e) {
+            log.error("Ошибка при создании chat-completion (OpenAI): {}", e.getMessage(), e);
+            throw new ProxyApiException("Ошибка при создании chat-completion (OpenAI)", e);
+        }
+    }
 
-            // Отправка POST-запроса
-            String jsonResponse = ProxyApiHttpClient.sendPost(url, jsonRequest, proxyApiKey);
-            log.debug("Received response: {}", jsonResponse);
+    /**
+     * Векторизовать вопрос пользователя для семантического кеша.
+     * Запрос идёт через обычный путь embeddings (с его кешем); при ошибке кеш просто не используется.
+     *
+     * @return Future с вектором вопроса или null
+     */
+    private CompletableFuture<float[]> embedQuestion(ChatCompletionRequestDTO requestDTO) {
+        EmbeddingsRequestDTO embeddingsRequest = new EmbeddingsRequestDTO();
+        embeddingsRequest.setModel(semanticChatCache.embeddingModel());
+        embeddingsRequest.setInput(semanticChatCache.question(requestDTO));
+        try {
+            return createEmbeddings(embeddingsRequest)
+                    .thenApply(response -> response.getData().get(0).getEmbedding())
+                    .exceptionally(e -> {
+                        log.warn("Semantic cache lookup skipped, embedding failed: {}", e.getMessage());
+                        return null;
+                    });
+        } catch (ProxyApiException e) {
+            log.warn("Semantic cache lookup skipped, embedding failed: {}", e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+    }
 
-            // Десериализация ответа в DTO
-            return objectMapper.readValue(jsonResponse, ChatCompletionResponseDTO.class);
+    /**
+     * Создать Chat Completion в потоковом режиме (stream=true).
+     * <p>
+     * Future завершается, как только ProxyAPI ответил заголовками; дальше фрагменты SSE
+     * читаются из возвращённого издателя по мере генерации.
+     *
+     * @param requestInputDTO Запрос с параметрами
+     * @return Future с издателем фрагментов потока Server-Sent Events
+     */
+    public CompletableFuture<Flow.Publisher<List<ByteBuffer>>> streamChatCompletion(ChatCompletionRequestInputDTO requestInputDTO) {
+        ProxyApiEndpoint endpoint = ProxyApiEndpoint.CHAT_COMPLETIONS;
+        try {
+            ChatCompletionRequestDTO requestDTO = toChatCompletionRequest(requestInputDTO);
+            requestDTO.setStream(true);
 
-        } catch (IOException | InterruptedException e) {
-            log.error("Ошибка при создании chat-completion (OpenAI): {}", e.getMessage(), e);
-            throw new ProxyApiException("Ошибка при создании chat-completion (OpenAI)", e);
+            byte[] jsonRequest = chatRequestWriter.writeValueAsBytes(requestDTO);
+            log.debug("Sending streaming POST request to {} with body: {}", endpoint.path(), debugText(jsonRequest));
+
+            return withErrorHandling(
+                    call(endpoint, requestDTO.getModel(), (upstream, key) -> httpClient.sendPostForStreamAsync(upstream.getBaseUrl(), endpoint, jsonRequest, jsonRequest.length, key)),
+                    "Ошибка при потоковом создании chat-completion (OpenAI)"
+            );
+
+        } catch (IOException e) {
+            log.error("Ошибка при потоковом создании chat-completion (OpenAI): {}", e.getMessage(), e);
+            throw new ProxyApiException("Ошибка при потоковом создании chat-completion (OpenAI)", e);
         }
     }
 
     /**
-     * Получить Embeddings для переданного текста.
+     * Подготовить тело chat-completion для отправки без разбора в DTO (режим passthrough).
+     *
+     * @param body Тело запроса клиента
+     * @return Тело для ProxyAPI с моделью, признаком stream и данными для оценки токенов
+     * @throws IllegalArgumentException если запрос некорректен
+     * @see ChatRequestRewriter
+     */
+    public ChatRequestRewriter.Rewritten rewriteChatCompletion(byte[] body) {
+        return CHAT_REQUEST_REWRITER.rewrite(body);
+    }
+
+    /**
+     * Создать Chat Completion в режиме passthrough: тело ответа ProxyAPI не разбирается
+     * и отдаётся потоком байтов. Кеши ответов при этом не используются.
+     *
+     * @param request Переписанный запрос
+     * @return Future с потоком тела ответа (JSON)
+     */
+    public CompletableFuture<InputStream> createChatCompletionRaw(ChatRequestRewriter.Rewritten request) {
+        ProxyApiEndpoint endpoint = ProxyApiEndpoint.CHAT_COMPLETIONS;
+        log.debug("Sending raw POST request to {} for model {}, {} bytes", endpoint.path(), request.model(), request.bodyLength());
+        return withErrorHandling(
+                call(endpoint, request.model(), (upstream, key) ->
+                        httpClient.sendPostForInputStreamAsync(upstream.getBaseUrl(), endpoint, request.body(), request.bodyLength(), key)),
+                "Ошибка при создании chat-completion (OpenAI)"
+        );
+    }
+
+    /**
+     * Создать Chat Completion в потоковом режиме (stream=true) из переписанного запроса.
+     *
+     * @param request Переписанный запрос
+     * @return Future с издателем фрагментов потока Server-Sent Events
+     */
+    public CompletableFuture<Flow.Publisher<List<ByteBuffer>>> streamChatCompletionRaw(ChatRequestRewriter.Rewritten request) {
+        ProxyApiEndpoint endpoint = ProxyApiEndpoint.CHAT_COMPLETIONS;
+        log.debug("Sending raw streaming POST request to {} for model {}, {} bytes", endpoint.path(), request.model(), request.bodyLength());
+        return withErrorHandling(
+                call(endpoint, request.model(), (upstream, key) ->
+                        httpClient.sendPostForStreamAsync(upstream.getBaseUrl(), endpoint, request.body(), request.bodyLength(), key)),
+                "Ошибка при потоковом создании chat-completion (OpenAI)"
+        );
+    }
+
+    /**
+     * Маппинг входящего DTO на внутренний DTO с учётом особенностей моделей.
+     *
+     * @param requestInputDTO Входящий запрос
+     * @return DTO для отправки в /v1/chat/completions
+     */
+    private ChatCompletionRequestDTO toChatCompletionRequest(ChatCompletionRequestInputDTO requestInputDTO) {
+        ChatCompletionRequestDTO requestDTO = new ChatCompletionRequestDTO();
+        requestDTO.setModel(requestInputDTO.getModel());
+        requestDTO.setMessages(requestInputDTO.getMessages());
+        requestDTO.setMaxTokens(requestInputDTO.getMaxTokens());
+        requestDTO.setTemperature(requestInputDTO.getTemperature());
+
+        // Проверка модели и настройка параметров
+        if (MODELS_WITH_MAX_COMPLETION_TOKENS.contains(requestInputDTO.getModel())) {
+            // Используем max_completion_tokens вместо max_tokens
+            requestDTO.setMaxCompletionTokens(requestInputDTO.getMaxTokens());
+            requestDTO.setMaxTokens(null);
+            // Устанавливаем temperature = 1
+            requestDTO.setTemperature(1.0);
+            log.debug("Model {} requires max_completion_tokens and temperature=1. Setting accordingly.", requestDTO.getModel());
+        }
+        return requestDTO;
+    }
+
+    /**
+     * Получить Embeddings для переданного текста или массива текстов.
+     * <p>
+     * Полученные векторы кешируются в {@link EmbeddingsCache}; повторный запрос того же
+     * текста той же моделью обслуживается без обращения к ProxyAPI. Одиночные запросы
+     * одной модели собираются в пакеты ({@link MicroBatcher}) и уходят одним запросом с массивом
+     * текстов. Массив, не найденный в кеше, делится на запросы в пределах лимитов ProxyAPI
+     * по числу текстов и токенов, которые выполняются параллельно (не больше
+     * {@code api.embeddings-batch.parallelism} одновременно); ответ собирается в порядке входа
+     * с суммарным {@code usage}. Если указан {@code index}, полученные векторы добавляются
+     * в индекс поиска {@link VectorIndexRegistry}.
      *
      * @param requestDTO объект, содержащий model и input
-     * @return EmbeddingsResponseDTO с векторным представлением текста
+     * @return Future с EmbeddingsResponseDTO с векторным представлением текстов
+     */
+    public CompletableFuture<EmbeddingsResponseDTO> createEmbeddings(EmbeddingsRequestDTO requestDTO) {
+        String model = requestDTO.getModel();
+        List<Object> inputs = requestDTO.getInput().items();
+        List<String> indexIds = requestDTO.getIndex() != null ? indexIds(requestDTO) : null;
+
+        // Тексты, которые той же моделью уже векторизовали, ProxyAPI не нужны
+        List<CompletableFuture<EmbeddingsResponseDTO>> results = new ArrayList<>(inputs.size());
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            EmbeddingsResponseDTO cached = embeddingsCache.isEnabled() ? embeddingsCache.get(model, inputs.get(i)) : null;
+            results.add(cached != null ? CompletableFuture.completedFuture(cached) : null);
+            if (cached == null) {
+                missing.add(i);
+            }
+        }
+        if (missing.size() < inputs.size()) {
+            log.debug("Embeddings cache hit for {} of {} inputs of model {}",
+                    inputs.size() - missing.size(), inputs.size(), model);
+        }
+
+        if (missing.size() == 1) {
+            // Одновременные одиночные запросы той же модели уходят в ProxyAPI одним пакетом
+            int position = missing.get(0);
+            Object input = inputs.get(position);
+            results.set(position, embeddingsBatcher != null && input instanceof String text
+                    ? embeddingsBatcher.submit(model, text)
+                    : embedOne(model, input));
+        } else if (!missing.isEmpty()) {
+            new EmbeddingsChunks(model, inputs, missing, results).start();
+        }
+        if (embeddingsCache.isEnabled()) {
+            for (int position : missing) {
+                Object input = inputs.get(position);
+                results.set(position, results.get(position).thenApply(result -> {
+                    embeddingsCache.put(model, input, result);
+                    return result;
+                }));
+            }
+        }
+        // Ответ на один текст без смены формата отдаётся как есть, иначе собирается заново
+        boolean base64 = "base64".equals(requestDTO.getEncodingFormat());
+        VectorQuantizer.Mode quantization = VectorQuantizer.Mode.of(requestDTO.getQuantization());
+        CompletableFuture<EmbeddingsResponseDTO> response = withErrorHandling(
+                inputs.size() == 1 && !base64 && quantization == null
+                        ? results.get(0)
+                        : mergeEmbeddings(results, base64, quantization),
+                "Ошибка при получении embeddings (OpenAI)"
+        );
+        if (indexIds == null) {
+            return response;
+        }
+        return response.thenApply(result -> {
+            List<float[]> vectors = result.getData().stream()
+                    .map(EmbeddingsResponseDTO.EmbeddingData::getEmbedding)
+                    .toList();
+            vectorIndexes.add(requestDTO.getIndex(), model, indexIds, vectors);
+            return result;
+        });
+    }
+
+    /**
+     * Проверить, что векторы запроса можно добавить в индекс, до обращения к ProxyAPI.
+     *
+     * @return Идентификаторы векторов: заданные клиентом или сами тексты
+     */
+    private List<String> indexIds(EmbeddingsRequestDTO requestDTO) {
+        List<Object> inputs = requestDTO.getInput().items();
+        List<String> ids;
+        if (requestDTO.getIds() == null) {
+            ids = inputs.stream().map(String::valueOf).toList();
+        } else if (requestDTO.getIds().size() != inputs.size() || requestDTO.getIds().stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("ids must contain one non-null id per input ("
+                    + inputs.size() + "), got " + requestDTO.getIds().size());
+        } else {
+            ids = requestDTO.getIds();
+        }
+        vectorIndexes.checkWritable(requestDTO.getIndex(), requestDTO.getModel(), ids);
+        return ids;
+    }
+
+    /**
+     * Собрать ответы на отдельные тексты в один ответ: {@code index} по порядку входа, {@code usage} — сумма.
+     *
+     * @param base64       Отдавать векторы строками base64
+     * @param quantization Квантование векторов или null
+     */
+    private static CompletableFuture<EmbeddingsResponseDTO> mergeEmbeddings(
+            List<CompletableFuture<EmbeddingsResponseDTO>> parts, boolean base64, VectorQuantizer.Mode quantization) {
+        return CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            List<EmbeddingsResponseDTO.EmbeddingData> data = new ArrayList<>(parts.size());
+            int promptTokens = 0;
+            int totalTokens = 0;
+            String model = null;
+            for (int i = 0; i < parts.size(); i++) {
+                EmbeddingsResponseDTO part = parts.get(i).join();
+                EmbeddingsResponseDTO.EmbeddingData source = part.getData().get(0);
+                // Ответ может быть общим для нескольких запросов — index задаётся в копии
+                EmbeddingsResponseDTO.EmbeddingData item = new EmbeddingsResponseDTO.EmbeddingData();
+                item.setObject(source.getObject());
+                item.setIndex(i);
+                item.setEmbedding(source.getEmbedding());
+                item.setBase64(base64);
+                if (quantization != null) {
+                    VectorQuantizer.Quantized quantized = quantization.quantize(source.getEmbedding());
+                    item.setQuantized(quantized.data());
+                    item.setScale(quantized.scale());
+                    item.setOffset(quantized.offset());
+                }
+                data.add(item);
+                if (part.getUsage() != null) {
+                    promptTokens += part.getUsage().getPromptTokens() != null ? part.getUsage().getPromptTokens() : 0;
+                    totalTokens += part.getUsage().getTotalTokens() != null ? part.getUsage().getTotalTokens() : 0;
+                }
+                if (model == null) {
+                    model = part.getModel();
+                }
+            }
+            EmbeddingsResponseDTO.Usage usage = new EmbeddingsResponseDTO.Usage();
+            usage.setPromptTokens(promptTokens);
+            usage.setTotalTokens(totalTokens);
+
+            EmbeddingsResponseDTO response = new EmbeddingsResponseDTO();
+            response.setObject("list");
+            response.setModel(model);
+            response.setData(data);
+            response.setUsage(usage);
+            if (quantization != null) {
+                response.setQuantization(quantization.name().toLowerCase());
+            }
+            return response;
+        });
+    }
+
+    /**
+     * Получить embeddings нескольких текстов одним запросом к ProxyAPI.
+     * <p>
+     * Ответ разбирается на отдельные ответы по {@code index}; токены пакета делятся между
+     * текстами пропорционально их оценке. Если ProxyAPI отверг пакет с ошибкой клиента
+     * (например, один из текстов слишком длинный), пакет делится пополам и отправляется
+     * снова, пока ошибка не останется только у виновника.
+     *
+     * @param model  Модель
+     * @param inputs Тексты или списки токенов (одного вида)
+     * @return Future ответа на каждый текст, в порядке текстов
      */
-    public EmbeddingsResponseDTO createEmbeddings(EmbeddingsRequestDTO requestDTO) {
-        String url = baseUrl + "/v1/embeddings";
+    private List<CompletableFuture<EmbeddingsResponseDTO>> embedBatch(String model, List<?> inputs) {
+        if (inputs.size() == 1) {
+            return List.of(embedOne(model, inputs.get(0)));
+        }
+        ProxyApiEndpoint endpoint = ProxyApiEndpoint.EMBEDDINGS;
+        CompletableFuture<List<EmbeddingsResponseDTO>> batch;
+        try {
+            byte[] jsonRequest = embeddingsRequestJson(model, inputs);
+            log.debug("Sending batched POST request to {} with {} inputs", endpoint.path(), inputs.size());
+            batch = call(endpoint, model,
+                    (upstream, key) -> httpClient.sendPostAsync(upstream.getBaseUrl(), endpoint, jsonRequest, key))
+                    .thenApply(jsonResponse -> splitBatch(readJson(jsonResponse, embeddingsResponseReader), inputs));
+        } catch (IOException e) {
+            batch = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<List<CompletableFuture<EmbeddingsResponseDTO>>> outcome = batch.handle((results, error) -> {
+            if (error == null) {
+                return results.stream().map(CompletableFuture::completedFuture).toList();
+            }
+            if (!isClientError(unwrap(error))) {
+                return Collections.nCopies(inputs.size(), CompletableFuture.<EmbeddingsResponseDTO>failedFuture(error));
+            }
+            log.debug("Batch of {} embeddings rejected ({}), retrying in halves", inputs.size(), unwrap(error).getMessage());
+            int half = inputs.size() / 2;
+            List<CompletableFuture<EmbeddingsResponseDTO>> retried = new ArrayList<>(inputs.size());
+            retried.addAll(embedBatch(model, inputs.subList(0, half)));
+            retried.addAll(embedBatch(model, inputs.subList(half, inputs.size())));
+            return retried;
+        });
+        List<CompletableFuture<EmbeddingsResponseDTO>> responses = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            int position = i;
+            responses.add(outcome.thenCompose(results -> results.get(position)));
+        }
+        return responses;
+    }
 
+    private static boolean isClientError(Throwable error) {
+        return error instanceof UpstreamHttpException upstreamError
+                && upstreamError.getStatusCode() >= 400 && upstreamError.getStatusCode() < 500
+                && upstreamError.getStatusCode() != 429;
+    }
+
+    /**
+     * Получить embedding одного текста (одинаковые одновременные запросы объединяются).
+     */
+    private CompletableFuture<EmbeddingsResponseDTO> embedOne(String model, Object input) {
+        ProxyApiEndpoint endpoint = ProxyApiEndpoint.EMBEDDINGS;
+        byte[] jsonRequest;
         try {
-            // Сериализация тела запроса в JSON
-            String jsonRequest = objectMapper.writeValueAsString(requestDTO);
-            log.debug("Sending POST request to {} with body: {}", url, jsonRequest);
+            jsonRequest = embeddingsRequestJson(model, input);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        log.debug("Sending POST request to {} with body: {}", endpoint.path(), debugText(jsonRequest));
+        return coalesced(endpoint, model, jsonRequest, () -> call(endpoint, model,
+                (upstream, key) -> httpClient.sendPostAsync(upstream.getBaseUrl(), endpoint, jsonRequest, key)))
+                .thenApply(jsonResponse -> {
+                    log.debug("Received embeddings response: {}", debugText(jsonResponse));
+                    return readJson(jsonResponse, embeddingsResponseReader);
+                });
+    }
 
-            // Выполняем POST-запрос
-            String jsonResponse = ProxyApiHttpClient.sendPost(url, jsonRequest, proxyApiKey);
-            log.debug("Received embeddings response: {}", jsonResponse);
+    private byte[] embeddingsRequestJson(String model, Object input) throws IOException {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("model", model);
+        request.put("input", input);
+        // Векторы base64 вчетверо компактнее и разбираются сразу в float[], без разбора чисел
+        request.put("encoding_format", "base64");
+        return embeddingsRequestWriter.writeValueAsBytes(request);
+    }
 
-            // Десериализуем ответ
-            return objectMapper.readValue(jsonResponse, EmbeddingsResponseDTO.class);
+    /**
+     * Разобрать ответ на пакет на отдельные ответы в порядке текстов.
+     */
+    private static List<EmbeddingsResponseDTO> splitBatch(EmbeddingsResponseDTO batch, List<?> inputs) {
+        if (batch.getData() == null || batch.getData().size() != inputs.size()) {
+            throw new IllegalStateException("Embeddings batch of " + inputs.size() + " inputs returned "
+                    + (batch.getData() == null ? 0 : batch.getData().size()) + " vectors");
+        }
+        long[] weights = new long[inputs.size()];
+        long totalWeight = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = Math.max(1, TokenEstimator.estimateInput(inputs.get(i)));
+            totalWeight += weights[i];
+        }
+        int totalTokens = batch.getUsage() != null && batch.getUsage().getPromptTokens() != null
+                ? batch.getUsage().getPromptTokens() : 0;
+        // Доли округляются по нарастающему итогу, чтобы в сумме дать ровно totalTokens
+        long[] tokens = new long[weights.length];
+        long cumulativeWeight = 0;
+        long assigned = 0;
+        for (int i = 0; i < weights.length; i++) {
+            cumulativeWeight += weights[i];
+            long upTo = Math.round((double) totalTokens * cumulativeWeight / totalWeight);
+            tokens[i] = upTo - assigned;
+            assigned = upTo;
+        }
 
-        } catch (IOException | InterruptedException e) {
-            log.error("Ошибка при получении embeddings (OpenAI): {}", e.getMessage(), e);
-            throw new ProxyApiException("Ошибка при получении embeddings (OpenAI)", e);
+        EmbeddingsResponseDTO[] responses = new EmbeddingsResponseDTO[inputs.size()];
+        for (int i = 0; i < inputs.size(); i++) {
+            EmbeddingsResponseDTO.EmbeddingData data = batch.getData().get(i);
+            int position = data.getIndex() != null ? data.getIndex() : i;
+            if (position < 0 || position >= responses.length || responses[position] != null) {
+                throw new IllegalStateException("Embeddings batch returned unexpected index " + position);
+            }
+            EmbeddingsResponseDTO.Usage usage = new EmbeddingsResponseDTO.Usage();
+            usage.setPromptTokens((int) tokens[position]);
+            usage.setTotalTokens((int) tokens[position]);
+            data.setIndex(0);
+
+            EmbeddingsResponseDTO response = new EmbeddingsResponseDTO();
+            response.setObject(batch.getObject());
+            response.setModel(batch.getModel());
+            response.setData(List.of(data));
+            response.setUsage(usage);
+            responses[position] = response;
+        }
+        return Arrays.asList(responses);
+    }
+
+    /**
+     * Выполнение массива текстов частями: тексты делятся на запросы в пределах лимитов
+     * по числу и токенам, запросы выполняются не больше {@code parallelism} одновременно —
+     * каждая «дорожка» берёт следующий, когда завершился её предыдущий. После первой ошибки
+     * оставшиеся части не отправляются: ответ всё равно будет ошибкой.
+     */
+    private final class EmbeddingsChunks {
+
+        private final String model;
+        private final List<Object> inputs;
+        private final List<CompletableFuture<EmbeddingsResponseDTO>> results;
+        private final List<List<Integer>> chunks = new ArrayList<>();
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        EmbeddingsChunks(String model, List<Object> inputs, List<Integer> missing,
+                         List<CompletableFuture<EmbeddingsResponseDTO>> results) {
+            this.model = model;
+            this.inputs = inputs;
+            this.results = results;
+            int maxInputs = Math.max(1, embeddingsBatchProperties.getMaxInputsPerRequest());
+            long maxTokens = embeddingsBatchProperties.getMaxTokensPerRequest();
+            List<Integer> chunk = new ArrayList<>();
+            long chunkTokens = 0;
+            for (int position : missing) {
+                long tokens = TokenEstimator.estimateInput(inputs.get(position));
+                if (!chunk.isEmpty() && (chunk.size() >= maxInputs || chunkTokens + tokens > maxTokens)) {
+                    chunks.add(chunk);
+                    chunk = new ArrayList<>();
+                    chunkTokens = 0;
+                }
+                chunk.add(position);
+                chunkTokens += tokens;
+                results.set(position, new CompletableFuture<>());
+            }
+            chunks.add(chunk);
+        }
+
+        void start() {
+            log.debug("Embeddings for {} inputs of model {} split into {} requests",
+                    chunks.stream().mapToInt(List::size).sum(), model, chunks.size());
+            int lanes = Math.min(Math.max(1, embeddingsBatchProperties.getParallelism()), chunks.size());
+            for (int lane = 0; lane < lanes; lane++) {
+                runNext();
+            }
+        }
+
+        private void runNext() {
+            int index;
+            while ((index = next.getAndIncrement()) < chunks.size()) {
+                List<Integer> chunk = chunks.get(index);
+                Throwable failed = failure.get();
+                if (failed != null) {
+                    chunk.forEach(position -> results.get(position).completeExceptionally(failed));
+                    continue;
+                }
+                List<CompletableFuture<EmbeddingsResponseDTO>> responses =
+                        embedBatch(model, chunk.stream().map(inputs::get).toList());
+                for (int i = 0; i < chunk.size(); i++) {
+                    CompletableFuture<EmbeddingsResponseDTO> target = results.get(chunk.get(i));
+                    responses.get(i).whenComplete((response, error) -> {
+                        if (error != null) {
+                            failure.compareAndSet(null, error);
+                            target.completeExceptionally(error);
+                        } else {
+                            target.complete(response);
+                        }
+                    });
+                }
+                CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new))
+                        .whenComplete((ignored, error) -> runNext());
+                return;
+            }
         }
     }
 
@@ -120,48 +723,65 @@ public class OpenAiService {
      * Сгенерировать изображение на основе текста.
      *
      * @param requestDTO Запрос с параметрами генерации
-     * @return Ответ от OpenAI как ImageGenerationResponseDTO
+     * @return Future с ответом от OpenAI как ImageGenerationResponseDTO
      */
-    public ImageGenerationResponseDTO generateImage(ImageGenerationRequestDTO requestDTO) {
-        String url = baseUrl + "/v1/images/generations";
+    public CompletableFuture<ImageGenerationResponseDTO> generateImage(ImageGenerationRequestDTO requestDTO) {
+        ProxyApiEndpoint endpoint = ProxyApiEndpoint.IMAGE_GENERATIONS;
         try {
             // Сериализация запроса в JSON
-            String jsonRequest = objectMapper.writeValueAsString(requestDTO);
-            log.debug("Sending POST request to {} with body: {}", url, jsonRequest);
-
-            // Отправка POST-запроса
-            String jsonResponse = ProxyApiHttpClient.sendPost(url, jsonRequest, proxyApiKey);
-            log.debug("Received response: {}", jsonResponse);
-
-            // Десериализация ответа в DTO
-            return objectMapper.readValue(jsonResponse, ImageGenerationResponseDTO.class);
-
-        } catch (IOException | InterruptedException e) {
+            byte[] jsonRequest = imageRequestWriter.writeValueAsBytes(requestDTO);
+            log.debug("Sending POST request to {} with body: {}", endpoint.path(), debugText(jsonRequest));
+
+            // Отправка POST-запроса и десериализация ответа в DTO
+            return withErrorHandling(
+                    call(endpoint, requestDTO.getModel(), (upstream, key) -> httpClient.sendPostAsync(upstream.getBaseUrl(), endpoint, jsonRequest, key))
+                            .thenApply(jsonResponse -> {
+                                log.debug("Received response: {}", debugText(jsonResponse));
+                                return readJson(jsonResponse, imageResponseReader);
+                            }),
+                    "Ошибка при генерации изображения (OpenAI)"
+            );
+
+        } catch (IOException e) {
             log.error("Ошибка при генерации изображения (OpenAI): {}", e.getMessage(), e);
             throw new ProxyApiException("Ошибка при генерации изображения (OpenAI)", e);
         }
     }
 
+    /**
+     * Найти синтезированное ранее аудио в дисковом кеше.
+     *
+     * @return Открытый файл аудио (закрывает вызывающий) или null, если кеш выключен или аудио в нём нет
+     */
+    public SpeechCache.CachedAudio findCachedSpeech(AudioSpeechRequestDTO requestDTO) {
+        return speechCache.isEnabled() ? speechCache.get(requestDTO) : null;
+    }
+
     /**
      * Сгенерировать аудио на основе текста.
+     * <p>
+     * Аудио не буферизуется: возвращается поток, из которого байты читаются по мере
+     * синтеза на стороне ProxyAPI. Вызывающий обязан закрыть поток.
      *
      * @param requestDTO Запрос с параметрами генерации аудио
-     * @return Бинарные данные аудио файла
+     * @return Future с потоком бинарных данных аудио файла
      */
-    public byte[] generateSpeech(AudioSpeechRequestDTO requestDTO) {
-        String url = baseUrl + "/v1/audio/speech";
+    public CompletableFuture<InputStream> generateSpeech(AudioSpeechRequestDTO requestDTO) {
+        ProxyApiEndpoint endpoint = ProxyApiEndpoint.AUDIO_SPEECH;
         try {
             // Сериализация запроса в JSON
-            String jsonRequest = objectMapper.writeValueAsString(requestDTO);
-            log.debug("Sending POST request to {} with body: {}", url, jsonRequest);
-
-            // Отправка POST-запроса и получение бинарного ответа
-            byte[] audioData = ProxyApiHttpClient.sendPostForBytes(url, jsonRequest, proxyApiKey);
-            log.debug("Received audio data of length: {}", audioData.length);
-
-            return audioData;
-
-        } catch (IOException | InterruptedException e) {
+            byte[] jsonRequest = speechRequestWriter.writeValueAsBytes(requestDTO);
+            log.debug("Sending POST request to {} with body: {}", endpoint.path(), debugText(jsonRequest));
+
+            // Отправка POST-запроса; future завершается после получения заголовков ответа.
+            // Аудио сохраняется в кеш по мере пересылки клиенту
+            return withErrorHandling(
+                    call(endpoint, requestDTO.getModel(), (upstream, key) -> httpClient.sendPostForInputStreamAsync(upstream.getBaseUrl(), endpoint, jsonRequest, jsonRequest.length, key))
+                            .thenApply(audio -> speechCache.isEnabled() ? speechCache.tee(requestDTO, audio) : audio),
+                    "Ошибка при генерации аудио (OpenAI)"
+            );
+
+        } catch (IOException e) {
             log.error("Ошибка при генерации аудио (OpenAI): {}", e.getMessage(), e);
             throw new ProxyApiException("Ошибка при генерации аудио (OpenAI)", e);
         }
@@ -170,11 +790,11 @@ public class OpenAiService {
     /**
      * Транскрибировать аудио файл.
      */
-    public AudioResponseDTO transcribeAudio(MultipartFile file, AudioRequestDTO requestDTO) {
+    public CompletableFuture<AudioResponseDTO> transcribeAudio(MultipartFile file, AudioRequestDTO requestDTO) {
         return processAudio(
                 file,
                 requestDTO,
-                "/v1/audio/transcriptions",
+                ProxyApiEndpoint.AUDIO_TRANSCRIPTIONS,
                 "transcription"
         );
     }
@@ -182,11 +802,11 @@ public class OpenAiService {
     /**
      * Перевести аудио файл на английский.
      */
-    public AudioResponseDTO translateAudio(MultipartFile file, AudioRequestDTO requestDTO) {
+    public CompletableFuture<AudioResponseDTO> translateAudio(MultipartFile file, AudioRequestDTO requestDTO) {
         return processAudio(
                 file,
                 requestDTO,
-                "/v1/audio/translations",
+                ProxyApiEndpoint.AUDIO_TRANSLATIONS,
                 "translation"
         );
     }
@@ -196,49 +816,153 @@ public class OpenAiService {
      *
      * @param file       аудиофайл, который нужно обработать
      * @param requestDTO объект с параметрами запроса
-     * @param endpoint   часть URL, отличающаяся для транскрипции/перевода
+     * @param endpoint   эндпоинт транскрипции или перевода
      * @param actionName строка для логирования, например "transcription" или "translation"
-     * @return DTO с ответом от OpenAI
+     * @return Future с DTO с ответом от OpenAI
      */
-    private AudioResponseDTO processAudio(
+    private CompletableFuture<AudioResponseDTO> processAudio(
             MultipartFile file,
             AudioRequestDTO requestDTO,
-            String endpoint,
+            ProxyApiEndpoint endpoint,
             String actionName
     ) {
-        String url = baseUrl + endpoint;
-        try {
-            Map<String, String> fields = new HashMap<>();
-            fields.put("model", requestDTO.getModel());
+        String errorMessage = String.format("Ошибка при %s аудио (OpenAI)", actionName);
+        Map<String, String> fields = new HashMap<>();
+        fields.put("model", requestDTO.getModel());
 
-            if (requestDTO.getResponse_format() != null && !requestDTO.getResponse_format().isEmpty()) {
-                fields.put("response_format", requestDTO.getResponse_format());
-            }
-            if (requestDTO.getPrompt() != null && !requestDTO.getPrompt().isEmpty()) {
-                fields.put("prompt", requestDTO.getPrompt());
-            }
+        if (requestDTO.getResponse_format() != null && !requestDTO.getResponse_format().isEmpty()) {
+            fields.put("response_format", requestDTO.getResponse_format());
+        }
+        if (requestDTO.getPrompt() != null && !requestDTO.getPrompt().isEmpty()) {
+            fields.put("prompt", requestDTO.getPrompt());
+        }
+
+        // Создаём список файлов: содержимое читается из загруженного файла при отправке,
+        // без копирования в память
+        List<FilePart> fileParts = new ArrayList<>();
+        fileParts.add(new FilePart(
+                "file",
+                file.getOriginalFilename(),
+                () -> openStream(file),
+                file.getSize(),
+                file.getContentType()
+        ));
+
+        // Отправляем запрос и парсим JSON
+        return withErrorHandling(
+                call(endpoint, requestDTO.getModel(), (upstream, key) -> httpClient.sendMultipartPostAsync(upstream.getBaseUrl(), endpoint, fields, fileParts, key))
+                        .thenApply(jsonResponse -> {
+                            log.debug("Received {} response: {}", actionName, debugText(jsonResponse));
+                            return readJson(jsonResponse, audioResponseReader);
+                        }),
+                errorMessage
+        );
+    }
+
+    /**
+     * Выполнить обращение к ProxyAPI с повторами; каждая попытка проходит через
+     * circuit breaker эндпоинта и отправляется на апстрим, выбранный балансировщиком,
+     * с ключом API, у которого больше всего остатка лимитов.
+     * Пока breaker разомкнут, попытки отклоняются сразу и не повторяются.
+     *
+     * @param endpoint Эндпоинт ProxyAPI
+     * @param model    Модель запроса (для весов апстримов по моделям); может быть null
+     * @param request  HTTP-запрос к выбранному апстриму с выбранным ключом
+     * @return Future с результатом
+     */
+    private <T> CompletableFuture<T> call(ProxyApiEndpoint endpoint, String model, BiFunction<Upstream, ApiKey, CompletableFuture<T>> request) {
+        return retryExecutor.execute(endpoint,
+                () -> circuitBreakers.execute(endpoint, () -> upstreamPool.execute(model, request)));
+    }
+
+    /**
+     * Выполнить запрос или присоединиться к такому же уже выполняющемуся — с тем же
+     * эндпоинтом, моделью и телом. Каждый участник получает тело ответа и разбирает его
+     * сам, так что общих изменяемых объектов у них нет. Применяется только там, где ответ
+     * не зависит от того, кто его запросил: embeddings и chat с temperature=0
+     * (загрузки списка моделей объединяет {@link ModelsCache}).
+     *
+     * @param endpoint Эндпоинт ProxyAPI
+     * @param model    Модель; может быть null
+     * @param body     Сериализованное тело запроса; может быть null
+     * @param request  Запрос
+     * @return Future с телом ответа
+     */
+    private CompletableFuture<byte[]> coalesced(ProxyApiEndpoint endpoint, String model, byte[] body,
+                                                Supplier<CompletableFuture<byte[]>> request) {
+        return singleFlight.execute(Hashes.sha256(Hashes.utf8(endpoint.path()), Hashes.utf8(model), body), request);
+    }
+
+    private static boolean isDeterministic(ChatCompletionRequestDTO requestDTO) {
+        return requestDTO.getTemperature() != null && requestDTO.getTemperature() == 0.0;
+    }
 
-            // Создаём список файлов
-            List<FilePart> fileParts = new ArrayList<>();
-            fileParts.add(new FilePart(
-                    "file",
-                    file.getOriginalFilename(),
-                    file.getBytes(),
-                    file.getContentType()
-            ));
+    /**
+     * Открыть поток содержимого загруженного файла.
+     * Spring хранит загрузку во временном файле, поэтому поток читается с диска.
+     */
+    private static InputStream openStream(MultipartFile file) {
+        try {
+            return file.getInputStream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            // Отправляем запрос
-            String jsonResponse = ProxyApiHttpClient.sendMultipartPost(url, fields, fileParts, proxyApiKey);
+    /**
+     * Десериализовать JSON-ответ внутри цепочки future — прямо из байтов UTF-8, без строки.
+     *
+     * @param json   Тело ответа
+     * @param reader Читатель DTO нужного типа
+     * @return Десериализованный DTO
+     */
+    private static <T> T readJson(byte[] json, ObjectReader reader) {
+        try {
+            return reader.readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            log.debug("Received {} response: {}", actionName, jsonResponse);
+    /**
+     * Тело для отладочного лога: строка собирается, только если сообщение действительно пишется.
+     */
+    private static Object debugText(byte[] json) {
+        return new Object() {
+            @Override
+            public String toString() {
+                return new String(json, StandardCharsets.UTF_8);
+            }
+        };
+    }
 
-            // Парсим JSON и возвращаем результат
-            return objectMapper.readValue(jsonResponse, AudioResponseDTO.class);
+    /**
+     * Преобразовать любую ошибку future в {@link ProxyApiException} с понятным сообщением.
+     *
+     * @param future  Future с результатом обращения к ProxyAPI
+     * @param message Сообщение об ошибке
+     * @return Future, который при ошибке завершается ProxyApiException
+     */
+    private <T> CompletableFuture<T> withErrorHandling(CompletableFuture<T> future, String message) {
+        return future.exceptionally(e -> {
+            Throwable cause = unwrap(e);
+            if (cause instanceof ProxyApiException proxyApiException) {
+                throw proxyApiException;
+            }
+            log.error("{}: {}", message, cause.getMessage(), cause);
+            throw new ProxyApiException(message, cause);
+        });
+    }
 
-        } catch (IOException | InterruptedException e) {
-            String msg = String.format("Ошибка при %s аудио (OpenAI): %s", actionName, e.getMessage());
-            log.error(msg, e);
-            throw new ProxyApiException(msg, e);
+    /**
+     * Снять обёртки CompletionException/UncheckedIOException с исключения.
+     */
+    private static Throwable unwrap(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof CompletionException || cause instanceof UncheckedIOException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
         }
+        return cause;
     }
 }
@@ -0,0 +1,86 @@
+package com.example.proxyapi.service;
+
+import com.example.proxyapi.dto.openai.EmbeddingsRequestDTO;
+import com.example.proxyapi.dto.vector.VectorIndexDTO;
+import com.example.proxyapi.dto.vector.VectorSearchRequestDTO;
+import com.example.proxyapi.dto.vector.VectorSearchResponseDTO;
+import com.example.proxyapi.vector.NamedVectorIndex;
+import com.example.proxyapi.vector.VectorIndexRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Поиск ближайших векторов в индексах прокси ({@link VectorIndexRegistry}).
+ * <p>
+ * Текст запроса векторизуется через {@link OpenAiService#createEmbeddings} моделью индекса —
+ * с кешем embeddings, поэтому повторный запрос обходится без ProxyAPI.
+ */
+@Service
+public class VectorSearchService {
+
+    private final VectorIndexRegistry registry;
+    private final OpenAiService openAiService;
+
+    public VectorSearchService(VectorIndexRegistry registry, OpenAiService openAiService) {
+        this.registry = registry;
+        this.openAiService = openAiService;
+    }
+
+    /**
+     * @return Индекс или null, если такого нет
+     */
+    public NamedVectorIndex find(String name) {
+        return registry.get(name);
+    }
+
+    /**
+     * Найти ближайшие к запросу векторы индекса.
+     *
+     * @param index   Индекс
+     * @param request Текст или вектор запроса и число результатов
+     * @return Future с результатами от самого близкого
+     */
+    public CompletableFuture<VectorSearchResponseDTO> search(NamedVectorIndex index, VectorSearchRequestDTO request) {
+        CompletableFuture<float[]> query;
+        if (request.getVector() != null) {
+            query = CompletableFuture.completedFuture(request.getVector());
+        } else if (request.getQuery() != null && !request.getQuery().isBlank()) {
+            EmbeddingsRequestDTO embeddingsRequest = new EmbeddingsRequestDTO();
+            embeddingsRequest.setModel(index.model());
+            embeddingsRequest.setInput(request.getQuery());
+            query = openAiService.createEmbeddings(embeddingsRequest)
+                    .thenApply(response -> response.getData().get(0).getEmbedding());
+        } else {
+            throw new IllegalArgumentException("Either query or vector must be set");
+        }
+        return query.thenApply(vector -> {
+            List<VectorSearchResponseDTO.Match> matches = registry.search(index, vector, request.getK(), request.getEf())
+                    .stream()
+                    .map(match -> new VectorSearchResponseDTO.Match(match.id(), match.score()))
+                    .toList();
+            return new VectorSearchResponseDTO(index.name(), index.model(), matches);
+        });
+    }
+
+    /**
+     * @return Описания всех индексов по имени
+     */
+    public List<VectorIndexDTO> list() {
+        return registry.list().stream()
+                .map(index -> new VectorIndexDTO(index.name(), index.model(), index.dimensions(), index.size()))
+                .sorted(Comparator.comparing(VectorIndexDTO::getName))
+                .toList();
+    }
+
+    /**
+     * Удалить индекс.
+     *
+     * @return Был ли такой индекс
+     */
+    public boolean remove(String name) {
+        return registry.remove(name);
+    }
+}
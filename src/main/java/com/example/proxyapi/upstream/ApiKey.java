@@ -0,0 +1,139 @@
+package com.example.proxyapi.upstream;
+
+import com.example.proxyapi.utils.ApiCredential;
+import com.example.proxyapi.utils.RateLimitHeaders;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Ключ API и его остаток лимитов по последнему ответу ProxyAPI.
+ * <p>
+ * Остаток берётся из заголовков {@code x-ratelimit-limit-*}, {@code x-ratelimit-remaining-*}
+ * и {@code x-ratelimit-reset-*}. После времени сброса лимит считается восстановленным.
+ * Исчерпанный ключ (остаток 0 или ответ 429) «паркуется» до сброса и не выбирается.
+ */
+public class ApiKey implements ApiCredential {
+
+    /**
+     * На сколько паркуется ключ после 429 без указания времени сброса.
+     */
+    private static final long DEFAULT_PARK_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final String key;
+    private final String label;
+
+    private long limitRequests = -1;
+    private long remainingRequests = -1;
+    private long requestsResetAtNanos;
+    private long limitTokens = -1;
+    private long remainingTokens = -1;
+    private long tokensResetAtNanos;
+
+    private long parkedUntilNanos;
+    private int inFlight;
+
+    public ApiKey(String key) {
+        this.key = key;
+        this.label = key.length() > 8 ? "…" + key.substring(key.length() - 4) : "…";
+    }
+
+    @Override
+    public String apiKey() {
+        return key;
+    }
+
+    @Override
+    public synchronized void onResponse(int statusCode, HttpHeaders headers) {
+        long now = System.nanoTime();
+        OptionalLong limit = RateLimitHeaders.remaining(headers, RateLimitHeaders.LIMIT_REQUESTS);
+        OptionalLong remaining = RateLimitHeaders.remaining(headers, RateLimitHeaders.REMAINING_REQUESTS);
+        if (remaining.isPresent()) {
+            limitRequests = limit.orElse(limitRequests);
+            remainingRequests = remaining.getAsLong();
+            requestsResetAtNanos = now + resetNanos(headers, RateLimitHeaders.RESET_REQUESTS);
+        }
+        limit = RateLimitHeaders.remaining(headers, RateLimitHeaders.LIMIT_TOKENS);
+        remaining = RateLimitHeaders.remaining(headers, RateLimitHeaders.REMAINING_TOKENS);
+        if (remaining.isPresent()) {
+            limitTokens = limit.orElse(limitTokens);
+            remainingTokens = remaining.getAsLong();
+            tokensResetAtNanos = now + resetNanos(headers, RateLimitHeaders.RESET_TOKENS);
+        }
+
+        if (statusCode == 429 || remainingRequests == 0 || remainingTokens == 0) {
+            long park = RateLimitHeaders.retryDelay(headers).map(Duration::toNanos).orElse(DEFAULT_PARK_NANOS);
+            parkedUntilNanos = Math.max(parkedUntilNanos, now + park);
+        }
+    }
+
+    /**
+     * Доля оставшегося лимита от 0 до 1 — меньшая из долей по запросам и по токенам.
+     * Запросы, уже отправленные с ключом, но ещё без ответа, вычитаются из остатка.
+     * Если ProxyAPI не присылал лимиты или они уже сброшены, возвращается 1.
+     */
+    synchronized double headroom(long now) {
+        double requests = fraction(remainingRequests - inFlight, limitRequests, requestsResetAtNanos, now);
+        double tokens = fraction(remainingTokens, limitTokens, tokensResetAtNanos, now);
+        return Math.min(requests, tokens);
+    }
+
+    synchronized boolean isParked(long now) {
+        return parkedUntilNanos - now > 0;
+    }
+
+    synchronized long parkedUntilNanos() {
+        return parkedUntilNanos;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+
+    synchronized void onStart() {
+        inFlight++;
+    }
+
+    synchronized void onComplete() {
+        inFlight--;
+    }
+
+    /**
+     * @return Снимок состояния для мониторинга (ключ показывается только последними символами)
+     */
+    public synchronized Snapshot snapshot() {
+        long now = System.nanoTime();
+        return new Snapshot(label,
+                now - requestsResetAtNanos < 0 ? remainingRequests : limitRequests,
+                now - tokensResetAtNanos < 0 ? remainingTokens : limitTokens,
+                inFlight,
+                Math.max(0, (parkedUntilNanos - now) / 1_000_000));
+    }
+
+    private static double fraction(long remaining, long limit, long resetAtNanos, long now) {
+        if ((remaining < 0 && limit < 0) || now - resetAtNanos >= 0) {
+            return 1;
+        }
+        if (limit <= 0) {
+            return remaining > 0 ? 1 : 0;
+        }
+        return Math.max(0, Math.min(1, (double) remaining / limit));
+    }
+
+    private static long resetNanos(HttpHeaders headers, String name) {
+        return RateLimitHeaders.reset(headers, name).map(Duration::toNanos).orElse(0L);
+    }
+
+    /**
+     * Снимок состояния ключа.
+     *
+     * @param key               Последние символы ключа
+     * @param remainingRequests Остаток запросов (-1 — неизвестно)
+     * @param remainingTokens   Остаток токенов (-1 — неизвестно)
+     * @param inFlight          Запросов в процессе
+     * @param parkedMs          Сколько ещё ключ припаркован, мс
+     */
+    public record Snapshot(String key, long remainingRequests, long remainingTokens, int inFlight, long parkedMs) {
+    }
+}
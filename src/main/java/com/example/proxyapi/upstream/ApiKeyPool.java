@@ -0,0 +1,70 @@
+package com.example.proxyapi.upstream;
+
+import java.util.List;
+
+/**
+ * Набор ключей API одного апстрима.
+ * <p>
+ * Запрос подписывается ключом с наибольшим остатком лимитов (при равенстве — с меньшим
+ * числом запросов в процессе). Припаркованные ключи пропускаются; если припаркованы
+ * все, выбирается тот, что освободится раньше других.
+ */
+public class ApiKeyPool {
+
+    private final List<ApiKey> keys;
+
+    public ApiKeyPool(List<String> keys) {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("At least one API key is required");
+        }
+        this.keys = keys.stream().map(ApiKey::new).toList();
+    }
+
+    /**
+     * Выбрать ключ и учесть отправляемый с ним запрос. После ответа нужно вызвать
+     * {@link #release(ApiKey)}.
+     *
+     * @return Ключ для запроса
+     */
+    public ApiKey acquire() {
+        ApiKey chosen = keys.size() == 1 ? keys.get(0) : choose();
+        chosen.onStart();
+        return chosen;
+    }
+
+    public void release(ApiKey key) {
+        key.onComplete();
+    }
+
+    /**
+     * @return Первый ключ — для служебных запросов, например проверки здоровья
+     */
+    public ApiKey first() {
+        return keys.get(0);
+    }
+
+    public List<ApiKey.Snapshot> snapshots() {
+        return keys.stream().map(ApiKey::snapshot).toList();
+    }
+
+    private ApiKey choose() {
+        long now = System.nanoTime();
+        ApiKey best = null;
+        double bestHeadroom = -1;
+        ApiKey earliest = null;
+        for (ApiKey key : keys) {
+            if (key.isParked(now)) {
+                if (earliest == null || key.parkedUntilNanos() - earliest.parkedUntilNanos() < 0) {
+                    earliest = key;
+                }
+                continue;
+            }
+            double headroom = key.headroom(now);
+            if (headroom > bestHeadroom || headroom == bestHeadroom && key.inFlight() < best.inFlight()) {
+                best = key;
+                bestHeadroom = headroom;
+            }
+        }
+        return best != null ? best : earliest;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.proxyapi.upstream;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Апстрим пула — OpenAI-совместимый шлюз — и статистика обращений к нему.
+ * <p>
+ * Задержка оценивается пиковой EWMA: если очередной ответ медленнее текущей оценки,
+ * оценка сразу поднимается до него, а к более быстрым ответам сползает постепенно
+ * с постоянной времени {@link #DECAY_NANOS}. Так деградация апстрима замечается сразу,
+ * а восстановление — без резких скачков.
+ */
+public class Upstream {
+
+    private static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Оценка для апстрима, у которого ещё нет ни одного ответа, но есть запросы в процессе:
+     * не даёт отправить на новый апстрим весь поток, пока он не ответил первый раз.
+     */
+    private static final double PENALTY_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * Задержка, которая учитывается в оценке вместо фактической при ошибке апстрима.
+     */
+    static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    @Getter
+    private final String name;
+    @Getter
+    private final String baseUrl;
+    @Getter
+    private final ApiKeyPool keys;
+    @Getter
+    private final int weight;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private double ewmaNanos;
+    private long lastUpdateNanos = System.nanoTime();
+
+    private int consecutiveFailures;
+    private int ejections;
+    private long ejectedUntilNanos;
+
+    private volatile boolean healthy = true;
+    private int failedHealthChecks;
+
+    public Upstream(String name, String baseUrl, ApiKeyPool keys, int weight) {
+        this.name = name;
+        this.baseUrl = baseUrl;
+        this.keys = keys;
+        this.weight = weight;
+    }
+
+    /**
+     * @return Число запросов в процессе
+     */
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    void onStart() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * Записать завершение запроса.
+     *
+     * @param latencyNanos Время до ответа
+     */
+    synchronized void onComplete(long latencyNanos) {
+        outstanding.decrementAndGet();
+        long now = System.nanoTime();
+        if (latencyNanos > ewmaNanos) {
+            ewmaNanos = latencyNanos;
+        } else {
+            double w = Math.exp(-(double) Math.max(0, now - lastUpdateNanos) / DECAY_NANOS);
+            ewmaNanos = ewmaNanos * w + latencyNanos * (1 - w);
+        }
+        lastUpdateNanos = now;
+    }
+
+    /**
+     * Стоимость отправки очередного запроса для peak EWMA: оценка задержки,
+     * умноженная на число запросов в процессе плюс один.
+     */
+    synchronized double peakEwmaCost() {
+        int active = outstanding.get();
+        if (ewmaNanos == 0 && active > 0) {
+            return PENALTY_NANOS + active;
+        }
+        return ewmaNanos * (active + 1);
+    }
+
+    /**
+     * Учесть результат запроса для пассивного исключения.
+     *
+     * @param failed        Запрос завершился ошибкой апстрима или был слишком медленным
+     * @param threshold     Сколько ошибок подряд приводит к исключению
+     * @param baseEjection  Время первого исключения
+     * @param maxEjection   Максимальное время исключения
+     * @return true, если апстрим только что исключён
+     */
+    synchronized boolean recordOutcome(boolean failed, int threshold, Duration baseEjection, Duration maxEjection) {
+        if (!failed) {
+            consecutiveFailures = 0;
+            if (!isEjected()) {
+                ejections = 0;
+            }
+            return false;
+        }
+        if (++consecutiveFailures < threshold || isEjected()) {
+            return false;
+        }
+        ejections++;
+        long ejection = Math.min(baseEjection.toNanos() * ejections, maxEjection.toNanos());
+        ejectedUntilNanos = System.nanoTime() + ejection;
+        consecutiveFailures = 0;
+        return true;
+    }
+
+    synchronized boolean isEjected() {
+        return ejectedUntilNanos - System.nanoTime() > 0;
+    }
+
+    boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Учесть результат активной проверки.
+     *
+     * @return true, если состояние здоровья изменилось
+     */
+    synchronized boolean recordHealthCheck(boolean passed, int unhealthyThreshold) {
+        boolean wasHealthy = healthy;
+        if (passed) {
+            failedHealthChecks = 0;
+            healthy = true;
+        } else if (++failedHealthChecks >= unhealthyThreshold) {
+            healthy = false;
+        }
+        return wasHealthy != healthy;
+    }
+
+    boolean isAvailable() {
+        return healthy && !isEjected();
+    }
+
+    /**
+     * @return Снимок состояния для мониторинга
+     */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(baseUrl, weight, healthy, isEjected(), outstanding.get(),
+                TimeUnit.NANOSECONDS.toMillis((long) ewmaNanos), keys.snapshots());
+    }
+
+    /**
+     * Снимок состояния апстрима.
+     *
+     * @param baseUrl     Базовый URL
+     * @param weight      Вес
+     * @param healthy     Прошёл ли активную проверку
+     * @param ejected     Исключён ли пассивно
+     * @param outstanding Запросов в процессе
+     * @param latencyMs   Оценка задержки (peak EWMA), мс
+     * @param keys        Состояние ключей API
+     */
+    public record Snapshot(String baseUrl, int weight, boolean healthy, boolean ejected,
+                           int outstanding, long latencyMs, List<ApiKey.Snapshot> keys) {
+    }
+}
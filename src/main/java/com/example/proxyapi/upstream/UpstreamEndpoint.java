@@ -0,0 +1,26 @@
+package com.example.proxyapi.upstream;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator-эндпоинт {@code /actuator/upstreams} с состоянием апстримов пула.
+ */
+@Component
+@Endpoint(id = "upstreams")
+public class UpstreamEndpoint {
+
+    private final UpstreamPool pool;
+
+    public UpstreamEndpoint(UpstreamPool pool) {
+        this.pool = pool;
+    }
+
+    @ReadOperation
+    public Map<String, Upstream.Snapshot> upstreams() {
+        return pool.snapshots();
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.proxyapi.upstream;
+
+import com.example.proxyapi.config.UpstreamProperties;
+import com.example.proxyapi.exception.NoUpstreamAvailableException;
+import com.example.proxyapi.exception.UpstreamHttpException;
+import com.example.proxyapi.utils.ProxyApiEndpoint;
+import com.example.proxyapi.utils.ProxyApiHttpClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Пул апстримов и балансировка запросов между ними.
+ * <p>
+ * Апстрим выбирается методом «двух случайных»: два кандидата выбираются случайно
+ * с учётом весов (общих или заданных для модели), и запрос уходит тому, у кого меньше
+ * нагрузка — число запросов в процессе ({@code LEAST_OUTSTANDING}) или оценка задержки,
+ * умноженная на это число ({@code PEAK_EWMA}). Это распределяет нагрузку пропорционально
+ * возможностям апстримов и уводит запросы от медленного апстрима без глобальной блокировки.
+ * <p>
+ * Апстрим выводится из ротации пассивно — после нескольких ошибок или медленных ответов
+ * подряд — и активно, если не проходит проверку {@code GET /v1/models}. Если недоступны
+ * все апстримы, запрос всё равно отправляется одному из них, а не отклоняется.
+ * <p>
+ * Внутри апстрима запрос подписывается ключом из его {@link ApiKeyPool}.
+ */
+@Slf4j
+@Component
+public class UpstreamPool {
+
+    private final UpstreamProperties properties;
+    private final ProxyApiHttpClient httpClient;
+    private final List<Upstream> upstreams;
+
+    public UpstreamPool(UpstreamProperties properties,
+                        ProxyApiHttpClient httpClient,
+                        @Value("${api.base-url}") String defaultBaseUrl,
+                        @Value("${api.key}") String defaultApiKey) {
+        this.properties = properties;
+        this.httpClient = httpClient;
+
+        List<Upstream> created = new ArrayList<>();
+        for (UpstreamProperties.Server server : properties.getServers()) {
+            String name = server.getName() != null ? server.getName() : server.getBaseUrl();
+            List<String> keys = !server.getApiKeys().isEmpty() ? server.getApiKeys()
+                    : server.getApiKey() != null ? List.of(server.getApiKey())
+                    : defaultKeys(defaultApiKey);
+            created.add(new Upstream(name, server.getBaseUrl(), new ApiKeyPool(keys), Math.max(0, server.getWeight())));
+        }
+        if (created.isEmpty()) {
+            created.add(new Upstream("default", defaultBaseUrl, new ApiKeyPool(defaultKeys(defaultApiKey)), 1));
+        }
+        this.upstreams = List.copyOf(created);
+        log.info("Upstream pool: {} upstream(s), balancer={}", upstreams.size(), properties.getBalancer());
+        warnUnroutable();
+    }
+
+    /**
+     * Выполнить запрос на выбранном апстриме с выбранным ключом и учесть его результат.
+     *
+     * @param model Модель запроса (для весов по моделям); может быть null
+     * @param call  Запрос к апстриму с ключом
+     * @return Future с результатом запроса
+     */
+    public <T> CompletableFuture<T> execute(String model, BiFunction<Upstream, ApiKey, CompletableFuture<T>> call) {
+        Upstream upstream = choose(model);
+        ApiKey key = upstream.getKeys().acquire();
+        upstream.onStart();
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.apply(upstream, key);
+        } catch (RuntimeException e) {
+            upstream.onComplete(0);
+            upstream.getKeys().release(key);
+            throw e;
+        }
+        return future.whenComplete((value, error) -> {
+            upstream.getKeys().release(key);
+            onComplete(upstream, System.nanoTime() - start, error);
+        });
+    }
+
+    /**
+     * Выбрать апстрим для запроса.
+     *
+     * @param model Модель запроса; может быть null
+     * @return Апстрим
+     * @throws NoUpstreamAvailableException если веса всех апстримов для модели равны нулю
+     */
+    Upstream choose(String model) {
+        if (upstreams.size() == 1) {
+            return upstreams.get(0);
+        }
+        Map<String, Integer> weights = model != null ? properties.getModelWeights().get(model) : null;
+
+        List<Upstream> candidates = new ArrayList<>(upstreams.size());
+        List<Upstream> routable = new ArrayList<>(upstreams.size());
+        int[] candidateWeights = new int[upstreams.size()];
+        int totalWeight = 0;
+        for (Upstream upstream : upstreams) {
+            int weight = weights != null ? weights.getOrDefault(upstream.getName(), upstream.getWeight()) : upstream.getWeight();
+            if (weight <= 0) {
+                continue;
+            }
+            routable.add(upstream);
+            if (upstream.isAvailable()) {
+                candidateWeights[candidates.size()] = weight;
+                candidates.add(upstream);
+                totalWeight += weight;
+            }
+        }
+        if (candidates.isEmpty()) {
+            if (routable.isEmpty()) {
+                throw new NoUpstreamAvailableException("No upstream is configured for model " + model);
+            }
+            // Все апстримы недоступны — лучше попробовать любой, чем отказать сразу
+            return routable.get(ThreadLocalRandom.current().nextInt(routable.size()));
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+
+        int first = pickWeighted(candidateWeights, candidates.size(), totalWeight, -1);
+        int second = pickWeighted(candidateWeights, candidates.size(), totalWeight - candidateWeights[first], first);
+        Upstream a = candidates.get(first);
+        Upstream b = candidates.get(second);
+        return load(b) < load(a) ? b : a;
+    }
+
+    /**
+     * Активная проверка апстримов. Выполняется, только если в пуле больше одного апстрима:
+     * единственный апстрим выбирается в любом случае.
+     */
+    @Scheduled(initialDelayString = "${api.upstream.health-check.interval:30s}",
+            fixedDelayString = "${api.upstream.health-check.interval:30s}")
+    public void checkHealth() {
+        UpstreamProperties.HealthCheck healthCheck = properties.getHealthCheck();
+        if (!healthCheck.isEnabled() || upstreams.size() < 2) {
+            return;
+        }
+        for (Upstream upstream : upstreams) {
+            httpClient.sendGetAsync(upstream.getBaseUrl(), ProxyApiEndpoint.MODELS, upstream.getKeys().first())
+                    .orTimeout(healthCheck.getTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((body, error) -> {
+                        if (upstream.recordHealthCheck(error == null, healthCheck.getUnhealthyThreshold())) {
+                            log.warn("Upstream {} is now {}", upstream.getName(), error == null ? "healthy" : "unhealthy");
+                        }
+                    });
+        }
+    }
+
+    /**
+     * @return Состояние апстримов по именам
+     */
+    public Map<String, Upstream.Snapshot> snapshots() {
+        Map<String, Upstream.Snapshot> result = new LinkedHashMap<>();
+        upstreams.forEach(upstream -> result.put(upstream.getName(), upstream.snapshot()));
+        return result;
+    }
+
+    /**
+     * Предупредить о конфигурации, при которой запросы будут отклоняться с 503: веса всех
+     * апстримов (общие или для модели) равны нулю. Единственный апстрим выбирается всегда.
+     */
+    private void warnUnroutable() {
+        if (upstreams.size() == 1) {
+            return;
+        }
+        if (upstreams.stream().allMatch(upstream -> upstream.getWeight() <= 0)) {
+            log.warn("All upstreams have weight 0: requests without per-model weights will be rejected");
+        }
+        properties.getModelWeights().forEach((model, weights) -> {
+            if (upstreams.stream().allMatch(upstream -> weights.getOrDefault(upstream.getName(), upstream.getWeight()) <= 0)) {
+                log.warn("All upstreams have weight 0 for model {}: its requests will be rejected", model);
+            }
+        });
+    }
+
+    /**
+     * Ключи апстрима по умолчанию: {@code api.upstream.api-keys}, а если их нет — {@code api.key}.
+     */
+    private List<String> defaultKeys(String defaultApiKey) {
+        return !properties.getApiKeys().isEmpty() ? properties.getApiKeys() : List.of(defaultApiKey);
+    }
+
+    private void onComplete(Upstream upstream, long latencyNanos, Throwable error) {
+        boolean upstreamError = isFailure(error);
+        // Отказ обычно приходит быстро (например, соединение отклонено) и без штрафа
+        // сделал бы сбойный апстрим самым «быстрым» для peak EWMA
+        upstream.onComplete(upstreamError ? Math.max(latencyNanos, Upstream.FAILURE_PENALTY_NANOS) : latencyNanos);
+        UpstreamProperties.Ejection ejection = properties.getEjection();
+        long slowThreshold = ejection.getSlowResponseThreshold().toNanos();
+        boolean failed = upstreamError || (slowThreshold > 0 && latencyNanos > slowThreshold);
+        if (upstream.recordOutcome(failed, ejection.getConsecutiveFailures(),
+                ejection.getBaseEjectionTime(), ejection.getMaxEjectionTime())) {
+            log.warn("Upstream {} ejected after {} consecutive failures", upstream.getName(), ejection.getConsecutiveFailures());
+        }
+    }
+
+    private double load(Upstream upstream) {
+        return switch (properties.getBalancer()) {
+            case LEAST_OUTSTANDING -> upstream.outstanding();
+            case PEAK_EWMA -> upstream.peakEwmaCost();
+        };
+    }
+
+    /**
+     * Случайный индекс с вероятностью, пропорциональной весу.
+     *
+     * @param weights     Веса кандидатов
+     * @param count       Число кандидатов
+     * @param totalWeight Сумма весов без исключённого индекса
+     * @param excluded    Индекс, который выбирать нельзя (-1 — нет такого)
+     */
+    private static int pickWeighted(int[] weights, int count, int totalWeight, int excluded) {
+        int point = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < count; i++) {
+            if (i == excluded) {
+                continue;
+            }
+            point -= weights[i];
+            if (point < 0) {
+                return i;
+            }
+        }
+        return count - 1 == excluded ? count - 2 : count - 1;
+    }
+
+    /**
+     * Ошибка, говорящая о проблеме апстрима: 5xx, 408, 429, сетевая ошибка или таймаут.
+     */
+    private static boolean isFailure(Throwable error) {
+        if (error == null) {
+            return false;
+        }
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof UpstreamHttpException upstream) {
+            int status = upstream.getStatusCode();
+            return status >= 500 || status == 408 || status == 429;
+        }
+        return cause instanceof IOException;
+    }
+}
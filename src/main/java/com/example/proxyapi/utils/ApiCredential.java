@@ -0,0 +1,27 @@
+package com.example.proxyapi.utils;
+
+import java.net.http.HttpHeaders;
+
+/**
+ * Ключ API, которым подписывается запрос к ProxyAPI.
+ * <p>
+ * Через {@link #onResponse} ключ узнаёт код и заголовки каждого ответа, полученного
+ * с ним, — например, чтобы учитывать оставшийся лимит запросов.
+ */
+@FunctionalInterface
+public interface ApiCredential {
+
+    /**
+     * @return Значение ключа для заголовка {@code Authorization: Bearer}
+     */
+    String apiKey();
+
+    /**
+     * Вызывается, когда получены заголовки ответа (до чтения тела).
+     *
+     * @param statusCode Код ответа
+     * @param headers    Заголовки ответа
+     */
+    default void onResponse(int statusCode, HttpHeaders headers) {
+    }
+}
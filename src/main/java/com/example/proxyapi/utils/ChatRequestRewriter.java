@@ -0,0 +1,231 @@
+package com.example.proxyapi.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+
+/**
+ * Переписывание тела запроса chat-completion без разбора в DTO: поток токенов JSON
+ * копируется из парсера в генератор, меняются только поля, которые зависят от модели.
+ * <p>
+ * Для моделей с {@code max_completion_tokens} (o1) лимит {@code maxTokens}/{@code max_tokens}
+ * передаётся как {@code max_completion_tokens}, а {@code temperature} заменяется на 1; для
+ * остальных {@code maxTokens} переименовывается в {@code max_tokens}. Модель может идти в теле
+ * после этих полей, поэтому они откладываются и дописываются в конец объекта. Все прочие
+ * поля, в том числе неизвестные прокси ({@code tools}, {@code response_format} и т.п.),
+ * копируются как есть.
+ * <p>
+ * Попутно собирается то, что нужно до отправки: модель, признак потоковой выдачи, длина
+ * {@code content} сообщений и лимит ответа (для оценки токенов), — без построения объектов сообщений.
+ */
+public final class ChatRequestRewriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Set<String> modelsWithMaxCompletionTokens;
+
+    /**
+     * @param modelsWithMaxCompletionTokens Модели, которым нужны max_completion_tokens и temperature=1
+     */
+    public ChatRequestRewriter(Set<String> modelsWithMaxCompletionTokens) {
+        this.modelsWithMaxCompletionTokens = modelsWithMaxCompletionTokens;
+    }
+
+    /**
+     * Переписать тело запроса клиента в тело запроса к ProxyAPI.
+     *
+     * @param body Тело запроса клиента (JSON)
+     * @return Тело для ProxyAPI и сведения о запросе
+     * @throws IllegalArgumentException если тело не JSON-объект, нет модели или сообщений
+     */
+    public Rewritten rewrite(byte[] body) {
+        // Переписанное тело почти всегда того же размера, что исходное; буфер отдаётся без копирования
+        OutputBuffer out = new OutputBuffer(body.length + 64);
+        try (JsonParser parser = JSON_FACTORY.createParser(body);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            Summary summary = rewrite(parser, generator);
+            generator.flush();
+            return new Rewritten(out.array(), out.size(), summary.model(), summary.stream(),
+                    summary.contentChars(), summary.maxTokens());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON request: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Summary rewrite(JsonParser parser, JsonGenerator generator) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Request body must be a JSON object");
+        }
+        generator.writeStartObject();
+        String model = null;
+        boolean stream = false;
+        boolean hasMessages = false;
+        long contentChars = 0;
+        Integer maxTokens = null;
+        Integer maxCompletionTokens = null;
+        Double temperature = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "model" -> {
+                    if (value != JsonToken.VALUE_STRING) {
+                        throw new IllegalArgumentException("model must be a string");
+                    }
+                    model = parser.getText();
+                    generator.writeStringField(field, model);
+                }
+                case "messages" -> {
+                    if (value != JsonToken.START_ARRAY) {
+                        throw new IllegalArgumentException("messages must be an array");
+                    }
+                    generator.writeFieldName(field);
+                    long chars = copyMessages(parser, generator);
+                    hasMessages = chars >= 0;
+                    contentChars += Math.max(chars, 0);
+                }
+                case "maxTokens", "max_tokens" -> maxTokens = value == JsonToken.VALUE_NULL ? null : intValue(parser, field);
+                case "temperature" -> temperature = value == JsonToken.VALUE_NULL ? null : doubleValue(parser, field);
+                case "stream" -> {
+                    stream = value == JsonToken.VALUE_TRUE;
+                    generator.writeFieldName(field);
+                    copyValue(parser, generator);
+                }
+                default -> {
+                    if (field.equals("max_completion_tokens") && value != JsonToken.VALUE_NULL) {
+                        maxCompletionTokens = intValue(parser, field);
+                    }
+                    generator.writeFieldName(field);
+                    copyValue(parser, generator);
+                }
+            }
+        }
+        if (parser.currentToken() != JsonToken.END_OBJECT || parser.nextToken() != null) {
+            throw new IllegalArgumentException("Request body must be a single JSON object");
+        }
+        if (model == null) {
+            throw new IllegalArgumentException("model must not be null");
+        }
+        if (!hasMessages) {
+            throw new IllegalArgumentException("messages must not be empty");
+        }
+
+        if (modelsWithMaxCompletionTokens.contains(model)) {
+            if (maxTokens != null && maxCompletionTokens == null) {
+                generator.writeNumberField("max_completion_tokens", maxTokens);
+            }
+            generator.writeNumberField("temperature", 1.0);
+        } else {
+            if (maxTokens != null) {
+                generator.writeNumberField("max_tokens", maxTokens);
+            }
+            if (temperature != null) {
+                generator.writeNumberField("temperature", temperature);
+            }
+        }
+        generator.writeEndObject();
+        return new Summary(model, stream, contentChars, maxCompletionTokens != null ? maxCompletionTokens : maxTokens);
+    }
+
+    /**
+     * Скопировать массив сообщений, подсчитав длину строковых {@code content}.
+     *
+     * @return Суммарная длина content или -1, если массив пуст
+     */
+    private static long copyMessages(JsonParser parser, JsonGenerator generator) throws IOException {
+        generator.writeStartArray();
+        long chars = 0;
+        int count = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("messages must contain objects");
+            }
+            count++;
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_STRING && field.equals("content")) {
+                    chars += parser.getTextLength();
+                }
+                generator.writeFieldName(field);
+                copyValue(parser, generator);
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        return count == 0 ? -1 : chars;
+    }
+
+    /**
+     * Скопировать текущее значение со всей вложенной структурой. В отличие от
+     * {@link JsonGenerator#copyCurrentStructure}, числа переносятся текстом, как в исходном теле
+     * (без округления до double и без нормализации записи вида {@code 1e-7}).
+     */
+    private static void copyValue(JsonParser parser, JsonGenerator generator) throws IOException {
+        int depth = 0;
+        do {
+            JsonToken token = parser.currentToken();
+            if (token.isNumeric()) {
+                generator.writeNumber(parser.getText());
+            } else {
+                generator.copyCurrentEvent(parser);
+            }
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+        } while (depth > 0 && parser.nextToken() != null);
+    }
+
+    private static int intValue(JsonParser parser, String field) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_NUMBER_INT || parser.getNumberType() != JsonParser.NumberType.INT) {
+            throw new IllegalArgumentException(field + " must be an integer");
+        }
+        return parser.getIntValue();
+    }
+
+    private static double doubleValue(JsonParser parser, String field) throws IOException {
+        if (!parser.currentToken().isNumeric()) {
+            throw new IllegalArgumentException(field + " must be a number");
+        }
+        return parser.getDoubleValue();
+    }
+
+    private static final class OutputBuffer extends ByteArrayOutputStream {
+
+        OutputBuffer(int capacity) {
+            super(capacity);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    private record Summary(String model, boolean stream, long contentChars, Integer maxTokens) {
+    }
+
+    /**
+     * @param body         Буфер с телом запроса к ProxyAPI (может быть длиннее тела)
+     * @param bodyLength   Длина тела в буфере
+     * @param model        Модель
+     * @param stream       Запрошена ли потоковая выдача (stream=true)
+     * @param contentChars Суммарная длина текстов сообщений
+     * @param maxTokens    Лимит токенов ответа или null
+     */
+    public record Rewritten(byte[] body, int bodyLength, String model, boolean stream, long contentChars, Integer maxTokens) {
+    }
+}
@@ -3,11 +3,21 @@ package com.example.proxyapi.utils;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.io.InputStream;
+import java.util.function.Supplier;
+
+/**
+ * Файл для отправки в multipart/form-data запросе.
+ * <p>
+ * Содержимое не хранится в памяти: {@code content} открывает новый поток при каждой
+ * отправке тела, поэтому файл читается прямо с диска по мере записи в сокет.
+ */
 @Data
 @AllArgsConstructor
 public class FilePart {
     private String fieldName;
     private String fileName;
-    private byte[] content;
+    private Supplier<InputStream> content;
+    private long contentLength;
     private String contentType;
 }
@@ -0,0 +1,90 @@
+package com.example.proxyapi.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Хеширование для ключей кеша и объединения запросов.
+ */
+public final class Hashes {
+
+    private Hashes() {
+    }
+
+    /**
+     * SHA-256 от частей, разделённых нулевым байтом (так {@code ("ab", "c")} и
+     * {@code ("a", "bc")} дают разные хеши). Значение null хешируется как пустая строка.
+     *
+     * @param parts Части ключа
+     * @return Хеш в шестнадцатеричном виде
+     */
+    public static String sha256(String... parts) {
+        return HexFormat.of().formatHex(sha256Bytes(parts));
+    }
+
+    /**
+     * То же, что {@link #sha256(String...)}, но без перевода в текст.
+     *
+     * @param parts Части ключа
+     * @return 32 байта хеша
+     */
+    public static byte[] sha256Bytes(String... parts) {
+        MessageDigest digest = sha256Digest();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                digest.update((byte) 0);
+            }
+            if (parts[i] != null) {
+                digest.update(parts[i].getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * SHA-256 от частей в байтах, разделённых нулевым байтом, — для тел запросов, которые
+     * уже сериализованы в UTF-8. Для текстовых частей совпадает с {@link #sha256(String...)}.
+     *
+     * @param parts Части ключа
+     * @return Хеш в шестнадцатеричном виде
+     */
+    public static String sha256(byte[]... parts) {
+        return HexFormat.of().formatHex(sha256Bytes(parts));
+    }
+
+    /**
+     * То же, что {@link #sha256(byte[]...)}, но без перевода в текст.
+     *
+     * @param parts Части ключа
+     * @return 32 байта хеша
+     */
+    public static byte[] sha256Bytes(byte[]... parts) {
+        MessageDigest digest = sha256Digest();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                digest.update((byte) 0);
+            }
+            if (parts[i] != null) {
+                digest.update(parts[i]);
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * @return Строка в UTF-8 или null
+     */
+    public static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.proxyapi.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Сбор одновременных одиночных вызовов в пакеты.
+ * <p>
+ * Элементы с одинаковым ключом копятся в открытом пакете, пока не наберётся
+ * {@code maxBatchSize} элементов или не пройдёт {@code maxDelay} с первого из них; затем
+ * пакет выполняется одним вызовом, и результаты раздаются по позициям. Одинаковые элементы
+ * в пакете отправляются один раз. Исполнитель возвращает Future на каждый элемент, поэтому
+ * может завершить их по отдельности (например, повторить отвергнутый пакет поштучно).
+ *
+ * @param <K> Тип ключа пакета (элементы с разными ключами в один пакет не попадают)
+ * @param <I> Тип элемента
+ * @param <O> Тип результата для элемента
+ */
+public class MicroBatcher<K, I, O> {
+
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BiFunction<K, List<I>, List<CompletableFuture<O>>> executor;
+    private final Map<K, Batch> open = new HashMap<>();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder items = new LongAdder();
+
+    /**
+     * @param maxBatchSize Максимум различных элементов в пакете
+     * @param maxDelay     Сколько первый элемент пакета ждёт остальных
+     * @param executor     Выполнение пакета: по ключу и элементам — Future результатов в том же порядке
+     */
+    public MicroBatcher(int maxBatchSize, Duration maxDelay,
+                        BiFunction<K, List<I>, List<CompletableFuture<O>>> executor) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.executor = executor;
+    }
+
+    /**
+     * Добавить элемент в пакет.
+     *
+     * @return Future с результатом для элемента
+     */
+    public CompletableFuture<O> submit(K key, I item) {
+        items.increment();
+        Batch full = null;
+        Batch started = null;
+        CompletableFuture<O> result;
+        synchronized (this) {
+            Batch batch = open.get(key);
+            if (batch == null) {
+                batch = new Batch(key);
+                open.put(key, batch);
+                started = batch;
+            }
+            result = batch.add(item);
+            if (batch.size() >= maxBatchSize) {
+                open.remove(key);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        } else if (started != null) {
+            Batch timed = started;
+            CompletableFuture.delayedExecutor(maxDelayNanos, TimeUnit.NANOSECONDS).execute(() -> flush(timed));
+        }
+        return result;
+    }
+
+    /**
+     * @return Сколько пакетов выполнено
+     */
+    public long batchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * @return Сколько элементов принято
+     */
+    public long itemCount() {
+        return items.sum();
+    }
+
+    private void flush(Batch batch) {
+        synchronized (this) {
+            // Пакет мог уже уйти по заполнению
+            if (open.get(batch.key) != batch) {
+                return;
+            }
+            open.remove(batch.key);
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch batch) {
+        batches.increment();
+        List<I> inputs = new ArrayList<>(batch.waiting.keySet());
+        List<CompletableFuture<O>> waiting = new ArrayList<>(batch.waiting.values());
+        List<CompletableFuture<O>> outputs;
+        try {
+            outputs = executor.apply(batch.key, inputs);
+            if (outputs.size() != waiting.size()) {
+                throw new IllegalStateException(
+                        "Batch returned " + outputs.size() + " results for " + waiting.size() + " items");
+            }
+        } catch (RuntimeException e) {
+            waiting.forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < waiting.size(); i++) {
+            CompletableFuture<O> target = waiting.get(i);
+            outputs.get(i).whenComplete((result, error) -> {
+                if (error != null) {
+                    target.completeExceptionally(error);
+                } else {
+                    target.complete(result);
+                }
+            });
+        }
+    }
+
+    private final class Batch {
+
+        private final K key;
+        private final Map<I, CompletableFuture<O>> waiting = new LinkedHashMap<>();
+
+        Batch(K key) {
+            this.key = key;
+        }
+
+        CompletableFuture<O> add(I item) {
+            // Каждый получает свою копию, чтобы отмена одного не затронула остальных
+            return waiting.computeIfAbsent(item, i -> new CompletableFuture<>()).copy();
+        }
+
+        int size() {
+            return waiting.size();
+        }
+    }
+}
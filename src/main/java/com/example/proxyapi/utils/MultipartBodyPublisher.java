@@ -0,0 +1,82 @@
+package com.example.proxyapi.utils;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Построитель потокового тела multipart/form-data.
+ * <p>
+ * Заголовки частей и границы — небольшие массивы байт, а содержимое файлов подключается
+ * как {@link BodyPublishers#ofInputStream} и читается небольшими буферами по мере отправки.
+ * Размер тела известен заранее, поэтому запрос уходит с Content-Length, а расход памяти
+ * не зависит от размера файла.
+ */
+public final class MultipartBodyPublisher {
+
+    private final String boundary = "Boundary-" + UUID.randomUUID();
+    private final List<BodyPublisher> parts = new ArrayList<>();
+
+    /**
+     * Добавить текстовые поля формы.
+     *
+     * @param fields Поля формы (ключ - имя поля, значение - значение поля)
+     * @return this
+     */
+    public MultipartBodyPublisher fields(Map<String, String> fields) {
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            text("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"" + field.getKey() + "\"\r\n\r\n"
+                    + field.getValue() + "\r\n");
+        }
+        return this;
+    }
+
+    /**
+     * Добавить файлы.
+     *
+     * @param fileParts Список файлов для загрузки
+     * @return this
+     */
+    public MultipartBodyPublisher files(List<FilePart> fileParts) {
+        for (FilePart filePart : fileParts) {
+            String contentType = filePart.getContentType() != null ? filePart.getContentType() : "application/octet-stream";
+            text("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"" + filePart.getFieldName() + "\"; filename=\"" + filePart.getFileName() + "\"\r\n"
+                    + "Content-Type: " + contentType + "\r\n\r\n");
+            parts.add(BodyPublishers.fromPublisher(
+                    BodyPublishers.ofInputStream(filePart.getContent()),
+                    filePart.getContentLength()
+            ));
+            text("\r\n");
+        }
+        return this;
+    }
+
+    /**
+     * @return Значение заголовка Content-Type с границей
+     */
+    public String contentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    /**
+     * Завершить тело закрывающей границей.
+     *
+     * @return Издатель тела запроса
+     */
+    public HttpRequest.BodyPublisher build() {
+        List<BodyPublisher> all = new ArrayList<>(parts);
+        all.add(BodyPublishers.ofByteArray(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8)));
+        return BodyPublishers.concat(all.toArray(BodyPublisher[]::new));
+    }
+
+    private void text(String value) {
+        parts.add(BodyPublishers.ofByteArray(value.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.proxyapi.utils;
+
+/**
+ * Эндпоинты OpenAI, к которым обращается прокси.
+ * <p>
+ * Используется как ключ для настроек, которые задаются отдельно для каждого эндпоинта
+ * (например, {@code api.http.timeouts.chat-completions=120s}).
+ */
+public enum ProxyApiEndpoint {
+    MODELS("/v1/models"),
+    CHAT_COMPLETIONS("/v1/chat/completions"),
+    EMBEDDINGS("/v1/embeddings"),
+    IMAGE_GENERATIONS("/v1/images/generations"),
+    AUDIO_SPEECH("/v1/audio/speech"),
+    AUDIO_TRANSCRIPTIONS("/v1/audio/transcriptions"),
+    AUDIO_TRANSLATIONS("/v1/audio/translations");
+
+    private final String path;
+
+    ProxyApiEndpoint(String path) {
+        this.path = path;
+    }
+
+    /**
+     * @return Путь эндпоинта относительно базового URL, например "/v1/models"
+     */
+    public String path() {
+        return path;
+    }
+}
@@ -1,157 +1,272 @@
 package com.example.proxyapi.utils;
 
-import java.io.ByteArrayOutputStream;
+import com.example.proxyapi.config.HttpClientProperties;
+import com.example.proxyapi.exception.UpstreamHttpException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
- * Утилита для отправки HTTP-запросов к ProxyAPI.
+ * Клиент для отправки HTTP-запросов к ProxyAPI.
+ * <p>
+ * Все методы неблокирующие: запрос уходит через {@link HttpClient#sendAsync}, а результат
+ * возвращается как {@link CompletableFuture}. Ответ с кодом вне диапазона 2xx завершает
+ * future исключением {@link CompletionException} с {@link UpstreamHttpException} внутри.
+ * <p>
+ * Параметры клиента задаются в {@link HttpClientProperties}. Если настроено несколько
+ * экземпляров HttpClient, запросы распределяются между ними по кругу.
  */
-public class ProxyApiHttpClient {
+@Slf4j
+@Component
+public class ProxyApiHttpClient implements DisposableBean {
+
+    private final HttpClientProperties properties;
+    private final ExecutorService executor;
+    private final List<HttpClient> clients;
+    private final AtomicInteger nextClient = new AtomicInteger();
 
-    private static final HttpClient client = HttpClient.newBuilder()
-            .version(HttpClient.Version.HTTP_2)
-            .build();
+    public ProxyApiHttpClient(HttpClientProperties properties) {
+        this.properties = properties;
+        this.executor = createExecutor(properties);
 
-    private ProxyApiHttpClient() {
+        int count = Math.max(1, properties.getClients());
+        List<HttpClient> created = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            HttpClient.Builder builder = HttpClient.newBuilder()
+                    .version(properties.getVersion())
+                    .connectTimeout(properties.getConnectTimeout());
+            if (executor != null) {
+                builder.executor(executor);
+            }
+            created.add(builder.build());
+        }
+        this.clients = List.copyOf(created);
+        log.info("ProxyAPI HttpClient: {} instance(s), version={}, executor={}, connectTimeout={}",
+                count, properties.getVersion(), properties.getExecutor(), properties.getConnectTimeout());
     }
 
     /**
      * Отправить GET-запрос.
      *
-     * @param url    URL запроса
-     * @param apiKey Ключ API для авторизации
-     * @return Тело ответа как строка
-     * @throws IOException
-     * @throws InterruptedException
+     * @param baseUrl    Базовый URL ProxyAPI
+     * @param endpoint   Эндпоинт
+     * @param credential Ключ API для авторизации
+     * @return Future с телом ответа в байтах
      */
-    public static String sendGet(String url, String apiKey) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", "Bearer " + apiKey)
+    public CompletableFuture<byte[]> sendGetAsync(String baseUrl, ProxyApiEndpoint endpoint, ApiCredential credential) {
+        HttpRequest request = newRequest(baseUrl, endpoint, credential)
                 .GET()
                 .build();
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() >= 200 && response.statusCode() < 300) {
-            return response.body();
-        } else {
-            throw new IOException("GET request failed with status code: " + response.statusCode() +
-                    " and body: " + response.body());
-        }
+        return send(request, HttpResponse.BodyHandlers.ofByteArray(), credential)
+                .thenApply(response -> checkStatus(response, "GET", ProxyApiHttpClient::utf8));
     }
 
     /**
      * Отправить POST-запрос с JSON-телом.
      *
-     * @param url      URL запроса
-     * @param jsonBody JSON-тело запроса
-     * @param apiKey   Ключ API для авторизации
-     * @return Тело ответа как строка
-     * @throws IOException
-     * @throws InterruptedException
+     * @param baseUrl    Базовый URL ProxyAPI
+     * @param endpoint   Эндпоинт
+     * @param jsonBody   JSON-тело запроса в UTF-8
+     * @param credential Ключ API для авторизации
+     * @return Future с телом ответа в байтах (JSON разбирается из них без перекодирования в строку)
      */
-    public static String sendPost(String url, String jsonBody, String apiKey) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", "Bearer " + apiKey)
+    public CompletableFuture<byte[]> sendPostAsync(String baseUrl, ProxyApiEndpoint endpoint, byte[] jsonBody, ApiCredential credential) {
+        HttpRequest request = newRequest(baseUrl, endpoint, credential)
                 .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(jsonBody))
                 .build();
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() >= 200 && response.statusCode() < 300) {
-            return response.body();
-        } else {
-            throw new IOException("POST request failed with status code: " + response.statusCode() +
-                    " and body: " + response.body());
-        }
+        return send(request, HttpResponse.BodyHandlers.ofByteArray(), credential)
+                .thenApply(response -> checkStatus(response, "POST", ProxyApiHttpClient::utf8));
     }
 
     /**
-     * Отправить POST-запрос с JSON-телом и получить бинарный ответ.
+     * Отправить POST-запрос с JSON-телом и получить бинарный ответ потоком.
+     * <p>
+     * Future завершается после получения заголовков; тело читается из {@link InputStream}
+     * по мере поступления от ProxyAPI. Закрытие потока прерывает загрузку.
      *
-     * @param url      URL запроса
-     * @param jsonBody JSON-тело запроса
-     * @param apiKey   Ключ API для авторизации
-     * @return Бинарные данные ответа
-     * @throws IOException
-     * @throws InterruptedException
+     * @param baseUrl    Базовый URL ProxyAPI
+     * @param endpoint   Эндпоинт
+     * @param jsonBody   JSON-тело запроса в UTF-8
+     * @param length     Длина тела в начале массива {@code jsonBody}
+     * @param credential Ключ API для авторизации
+     * @return Future с потоком бинарных данных ответа
      */
-    public static byte[] sendPostForBytes(String url, String jsonBody, String apiKey) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", "Bearer " + apiKey)
+    public CompletableFuture<InputStream> sendPostForInputStreamAsync(String baseUrl, ProxyApiEndpoint endpoint, byte[] jsonBody, int length, ApiCredential credential) {
+        HttpRequest request = newRequest(baseUrl, endpoint, credential)
                 .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(jsonBody, 0, length))
                 .build();
 
-        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        return send(request, HttpResponse.BodyHandlers.ofInputStream(), credential)
+                .thenApply(response -> checkStatus(response, "POST", ProxyApiHttpClient::readErrorBody));
+    }
 
-        if (response.statusCode() >= 200 && response.statusCode() < 300) {
-            return response.body();
-        } else {
-            throw new IOException("POST request failed with status code: " + response.statusCode() +
-                    " and body: " + new String(response.body()));
-        }
+    /**
+     * Отправить POST-запрос с JSON-телом и получить тело ответа потоком.
+     * <p>
+     * Future завершается, как только пришли заголовки ответа; тело читается подписчиком
+     * {@link Flow.Publisher} по мере поступления, с учётом запрошенного им объёма (backpressure).
+     * Отмена подписки закрывает поток ответа в ProxyAPI.
+     *
+     * @param baseUrl    Базовый URL ProxyAPI
+     * @param endpoint   Эндпоинт
+     * @param jsonBody   JSON-тело запроса в UTF-8
+     * @param length     Длина тела в начале массива {@code jsonBody}
+     * @param credential Ключ API для авторизации
+     * @return Future с издателем фрагментов тела ответа
+     */
+    public CompletableFuture<Flow.Publisher<List<ByteBuffer>>> sendPostForStreamAsync(String baseUrl, ProxyApiEndpoint endpoint, byte[] jsonBody, int length, ApiCredential credential) {
+        HttpRequest request = newRequest(baseUrl, endpoint, credential)
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(jsonBody, 0, length))
+                .build();
+
+        return send(request, HttpResponse.BodyHandlers.ofPublisher(), credential)
+                .thenCompose(response -> {
+                    if (isSuccessful(response)) {
+                        return CompletableFuture.completedFuture(response.body());
+                    }
+                    // Тело ошибки небольшое — дочитываем его целиком для сообщения
+                    HttpResponse.BodySubscriber<String> errorBody = HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+                    response.body().subscribe(errorBody);
+                    return errorBody.getBody().toCompletableFuture()
+                            .thenApply(body -> {
+                                throw requestFailed("Streaming POST", response, body);
+                            });
+                });
     }
 
     /**
      * Отправить POST-запрос с multipart/form-data телом.
+     * <p>
+     * Тело не собирается в памяти: файлы читаются из своих потоков по мере отправки.
      *
-     * @param url       URL запроса
-     * @param fields    Поля формы (ключ - имя поля, значение - значение поля)
-     * @param fileParts Список файлов для загрузки
-     * @param apiKey    Ключ API для авторизации
-     * @return Тело ответа как строка
-     * @throws IOException
-     * @throws InterruptedException
+     * @param baseUrl    Базовый URL ProxyAPI
+     * @param endpoint   Эндпоинт
+     * @param fields     Поля формы (ключ - имя поля, значение - значение поля)
+     * @param fileParts  Список файлов для загрузки
+     * @param credential Ключ API для авторизации
+     * @return Future с телом ответа в байтах
      */
-    public static String sendMultipartPost(String url, Map<String, String> fields, List<FilePart> fileParts, String apiKey) throws IOException, InterruptedException {
-        String boundary = "Boundary-" + UUID.randomUUID();
-        var byteArrayBuilder = new ByteArrayOutputStream();
-
-        // Добавление текстовых полей
-        for (Map.Entry<String, String> field : fields.entrySet()) {
-            byteArrayBuilder.write(("--" + boundary + "\r\n").getBytes());
-            byteArrayBuilder.write(("Content-Disposition: form-data; name=\"" + field.getKey() + "\"\r\n\r\n").getBytes());
-            byteArrayBuilder.write((field.getValue() + "\r\n").getBytes());
-        }
+    public CompletableFuture<byte[]> sendMultipartPostAsync(String baseUrl, ProxyApiEndpoint endpoint, Map<String, String> fields, List<FilePart> fileParts, ApiCredential credential) {
+        MultipartBodyPublisher multipart = new MultipartBodyPublisher()
+                .fields(fields)
+                .files(fileParts);
 
-        // Добавление файлов
-        for (FilePart filePart : fileParts) {
-            byteArrayBuilder.write(("--" + boundary + "\r\n").getBytes());
-            byteArrayBuilder.write(("Content-Disposition: form-data; name=\"" + filePart.getFieldName() + "\"; filename=\"" + filePart.getFileName() + "\"\r\n").getBytes());
-            byteArrayBuilder.write(("Content-Type: " + filePart.getContentType() + "\r\n\r\n").getBytes());
-            byteArrayBuilder.write(filePart.getContent());
-            byteArrayBuilder.write("\r\n".getBytes());
+        HttpRequest request = newRequest(baseUrl, endpoint, credential)
+                .header("Content-Type", multipart.contentType())
+                .POST(multipart.build())
+                .build();
+
+        return send(request, HttpResponse.BodyHandlers.ofByteArray(), credential)
+                .thenApply(response -> checkStatus(response, "Multipart POST", ProxyApiHttpClient::utf8));
+    }
+
+    @Override
+    public void destroy() {
+        clients.forEach(HttpClient::close);
+        if (executor != null) {
+            executor.shutdown();
         }
+    }
 
-        // Завершение границы
-        byteArrayBuilder.write(("--" + boundary + "--\r\n").getBytes());
+    /**
+     * Начать построение запроса: URL, авторизация и таймаут эндпоинта.
+     */
+    private HttpRequest.Builder newRequest(String baseUrl, ProxyApiEndpoint endpoint, ApiCredential credential) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + endpoint.path()))
+                .timeout(properties.timeoutFor(endpoint))
+                .header("Authorization", "Bearer " + credential.apiKey());
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", "Bearer " + apiKey)
-                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
-                .POST(HttpRequest.BodyPublishers.ofByteArray(byteArrayBuilder.toByteArray()))
-                .build();
+    /**
+     * Отправить запрос и сообщить ключу о полученном ответе.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> send(HttpRequest request, HttpResponse.BodyHandler<T> handler, ApiCredential credential) {
+        return client().sendAsync(request, handler)
+                .thenApply(response -> {
+                    credential.onResponse(response.statusCode(), response.headers());
+                    return response;
+                });
+    }
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Выбрать следующий экземпляр HttpClient по кругу.
+     */
+    private HttpClient client() {
+        if (clients.size() == 1) {
+            return clients.get(0);
+        }
+        return clients.get(Math.floorMod(nextClient.getAndIncrement(), clients.size()));
+    }
+
+    private static ExecutorService createExecutor(HttpClientProperties properties) {
+        return switch (properties.getExecutor()) {
+            case DEFAULT -> null;
+            case VIRTUAL -> Executors.newVirtualThreadPerTaskExecutor();
+            case FIXED -> Executors.newFixedThreadPool(Math.max(1, properties.getExecutorThreads()));
+        };
+    }
 
-        if (response.statusCode() >= 200 && response.statusCode() < 300) {
+    /**
+     * Проверить код ответа и вернуть тело либо завершить future ошибкой.
+     *
+     * @param response   Ответ ProxyAPI
+     * @param method     Название метода для сообщения об ошибке
+     * @param bodyToText Преобразование тела в текст для сообщения об ошибке
+     * @return Тело ответа
+     */
+    private static <T> T checkStatus(HttpResponse<T> response, String method, Function<T, String> bodyToText) {
+        if (isSuccessful(response)) {
             return response.body();
-        } else {
-            throw new IOException("Multipart POST request failed with status code: " + response.statusCode() +
-                    " and body: " + response.body());
         }
+        throw requestFailed(method, response, bodyToText.apply(response.body()));
+    }
+
+    /**
+     * Дочитать тело ответа с ошибкой из потока (оно небольшое).
+     */
+    private static String readErrorBody(InputStream body) {
+        try (body) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "<unreadable: " + e.getMessage() + ">";
+        }
+    }
+
+    private static String utf8(byte[] body) {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isSuccessful(HttpResponse<?> response) {
+        return response.statusCode() >= 200 && response.statusCode() < 300;
+    }
+
+    private static CompletionException requestFailed(String method, HttpResponse<?> response, String body) {
+        return new CompletionException(new UpstreamHttpException(method, response.statusCode(), response.headers(), body));
     }
 }
@@ -0,0 +1,131 @@
+package com.example.proxyapi.utils;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Разбор заголовков ограничения частоты запросов OpenAI.
+ * <p>
+ * {@code Retry-After} — секунды или HTTP-дата; {@code x-ratelimit-reset-*} — длительность
+ * в формате OpenAI, например {@code 20ms}, {@code 1s}, {@code 6m0s}, {@code 1h2m3.5s}.
+ */
+public final class RateLimitHeaders {
+
+    public static final String RETRY_AFTER = "Retry-After";
+    public static final String LIMIT_REQUESTS = "x-ratelimit-limit-requests";
+    public static final String LIMIT_TOKENS = "x-ratelimit-limit-tokens";
+    public static final String REMAINING_REQUESTS = "x-ratelimit-remaining-requests";
+    public static final String REMAINING_TOKENS = "x-ratelimit-remaining-tokens";
+    public static final String RESET_REQUESTS = "x-ratelimit-reset-requests";
+    public static final String RESET_TOKENS = "x-ratelimit-reset-tokens";
+
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private RateLimitHeaders() {
+    }
+
+    /**
+     * Через сколько ProxyAPI разрешает повторить запрос.
+     * <p>
+     * Приоритет у {@code Retry-After}; если его нет, берётся время сброса того лимита
+     * (запросов или токенов), который исчерпан.
+     *
+     * @param headers Заголовки ответа
+     * @return Задержка до повтора, если сервер её указал
+     */
+    public static Optional<Duration> retryDelay(HttpHeaders headers) {
+        Optional<Duration> retryAfter = headers.firstValue(RETRY_AFTER).flatMap(RateLimitHeaders::parseRetryAfter);
+        if (retryAfter.isPresent()) {
+            return retryAfter;
+        }
+        Duration delay = null;
+        if (remaining(headers, REMAINING_REQUESTS).orElse(-1) == 0) {
+            delay = max(delay, reset(headers, RESET_REQUESTS).orElse(null));
+        }
+        if (remaining(headers, REMAINING_TOKENS).orElse(-1) == 0) {
+            delay = max(delay, reset(headers, RESET_TOKENS).orElse(null));
+        }
+        return Optional.ofNullable(delay);
+    }
+
+    /**
+     * @return Значение числового заголовка {@code x-ratelimit-limit-*} или {@code x-ratelimit-remaining-*}
+     */
+    public static OptionalLong remaining(HttpHeaders headers, String name) {
+        Optional<String> value = headers.firstValue(name);
+        if (value.isEmpty()) {
+            return OptionalLong.empty();
+        }
+        try {
+            return OptionalLong.of(Long.parseLong(value.get().trim()));
+        } catch (NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * @return Значение заголовка {@code x-ratelimit-reset-*}
+     */
+    public static Optional<Duration> reset(HttpHeaders headers, String name) {
+        return headers.firstValue(name).flatMap(RateLimitHeaders::parseDuration);
+    }
+
+    /**
+     * Разобрать длительность в формате OpenAI ({@code 1h2m3.5s}, {@code 20ms}).
+     */
+    public static Optional<Duration> parseDuration(String value) {
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        int end = 0;
+        while (matcher.find()) {
+            if (matcher.start() != end) {
+                return Optional.empty();
+            }
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1_000;
+                default -> amount;
+            };
+            end = matcher.end();
+        }
+        if (end == 0 || end != value.trim().length()) {
+            return Optional.empty();
+        }
+        return Optional.of(Duration.ofMillis(Math.round(millis)));
+    }
+
+    private static Optional<Duration> parseRetryAfter(String value) {
+        String trimmed = value.trim();
+        try {
+            return Optional.of(Duration.ofMillis(Math.round(Double.parseDouble(trimmed) * 1000)));
+        } catch (NumberFormatException ignored) {
+            // не число — пробуем HTTP-дату
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+            Duration delay = Duration.between(ZonedDateTime.now(at.getZone()), at);
+            return Optional.of(delay.isNegative() ? Duration.ZERO : delay);
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.proxyapi.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одинаковых одновременных вызовов.
+ * <p>
+ * Пока вызов с некоторым ключом выполняется, повторные вызовы с тем же ключом не запускают
+ * новый, а получают результат (или ошибку) уже идущего. После завершения ключ освобождается,
+ * и следующий вызов снова выполняется. Каждый вызывающий получает собственную копию future,
+ * поэтому его отмена или зависимые стадии не затрагивают остальных.
+ *
+ * @param <K> Тип ключа
+ * @param <V> Тип результата
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Выполнить вызов или присоединиться к уже выполняющемуся с тем же ключом.
+     *
+     * @param key  Ключ вызова
+     * @param call Вызов; запускается, только если вызова с этим ключом сейчас нет
+     * @return Future с результатом общего вызова
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+        try {
+            call.get().whenComplete((value, error) -> {
+                // Сначала освобождаем ключ: запрос, пришедший после завершения, должен выполниться заново
+                inFlight.remove(key, created);
+                if (error != null) {
+                    created.completeExceptionally(error);
+                } else {
+                    created.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+        }
+        return created.copy();
+    }
+
+    /**
+     * @return Сколько вызовов было присоединено к уже выполняющимся
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+}
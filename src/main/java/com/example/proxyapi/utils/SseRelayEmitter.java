@@ -0,0 +1,94 @@
+package com.example.proxyapi.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+/**
+ * Ретранслятор потока Server-Sent Events от ProxyAPI клиенту.
+ * <p>
+ * Фрагменты тела ответа ProxyAPI уже имеют формат SSE ({@code data: ...\n\n}), поэтому они
+ * пересылаются клиенту байт в байт, без разбора и перекодирования. Следующий фрагмент
+ * запрашивается только после того, как предыдущий записан клиенту, — медленный клиент
+ * притормаживает чтение из ProxyAPI. При отключении клиента или таймауте подписка
+ * отменяется, и поток к ProxyAPI закрывается.
+ * <p>
+ * Таймаут задаётся явно ({@code api.http.stream-timeout}), а не наследуется от
+ * {@code spring.mvc.async.request-timeout}: иначе длинная генерация обрывалась бы на середине.
+ */
+@Slf4j
+public class SseRelayEmitter extends ResponseBodyEmitter implements Flow.Subscriber<List<ByteBuffer>> {
+
+    private volatile Flow.Subscription subscription;
+    private volatile boolean cancelled;
+
+    /**
+     * @param timeout Максимальная длительность передачи; 0 — без ограничения
+     */
+    public SseRelayEmitter(Duration timeout) {
+        // Для асинхронного запроса сервлета таймаут 0 или меньше означает «без ограничения»
+        super(timeout.isZero() || timeout.isNegative() ? -1L : timeout.toMillis());
+        onCompletion(this::cancelUpstream);
+        onTimeout(this::cancelUpstream);
+        onError(e -> cancelUpstream());
+    }
+
+    @Override
+    protected void extendResponse(ServerHttpResponse outputMessage) {
+        super.extendResponse(outputMessage);
+        outputMessage.getHeaders().setContentType(MediaType.TEXT_EVENT_STREAM);
+        outputMessage.getHeaders().setCacheControl("no-cache");
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (cancelled) {
+            subscription.cancel();
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+        try {
+            for (ByteBuffer buffer : buffers) {
+                byte[] chunk = new byte[buffer.remaining()];
+                buffer.get(chunk);
+                send(chunk, MediaType.TEXT_EVENT_STREAM);
+            }
+            subscription.request(1);
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился или эмиттер уже завершён — дальше читать ProxyAPI незачем
+            log.debug("SSE client is gone, cancelling upstream stream: {}", e.getMessage());
+            cancelUpstream();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        log.warn("Upstream SSE stream failed: {}", throwable.getMessage());
+        completeWithError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        complete();
+    }
+
+    private void cancelUpstream() {
+        cancelled = true;
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.proxyapi.vector;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Приближённый поиск ближайших соседей по косинусной близости — граф HNSW
+ * (Hierarchical Navigable Small World, Malkov &amp; Yashunin).
+ * <p>
+ * Всё хранится в примитивных массивах: векторы (нормированные при добавлении) — подряд
+ * в одном {@code float[]}, списки соседей нулевого уровня — в одном {@code int[]}
+ * по {@code 2 * m + 1} ячеек на узел (первая — число соседей), верхние уровни — в
+ * отдельном {@code int[]} на узел (их мало: уровень выбирается с вероятностью {@code m^-level}).
+ * Узлы нумеруются по порядку добавления, удаление не поддерживается.
+ * <p>
+ * Потокобезопасен: добавление выполняется под блокировкой записи, поиск — под блокировкой чтения.
+ */
+public class HnswIndex {
+
+    private final int dimensions;
+    private final int m;
+    private final int maxConnections0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private float[] vectors;
+    private int[] neighbors0;
+    private int[][] upperNeighbors;
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /**
+     * @param dimensions      Размерность векторов
+     * @param m               Число связей узла на верхних уровнях (на нулевом — вдвое больше)
+     * @param efConstruction  Ширина поиска соседей при добавлении
+     * @param initialCapacity Начальная ёмкость, узлов
+     */
+    public HnswIndex(int dimensions, int m, int efConstruction, int initialCapacity) {
+        if (dimensions <= 0 || m < 2) {
+            throw new IllegalArgumentException("dimensions must be positive and m at least 2");
+        }
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxConnections0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1 / Math.log(m);
+        int capacity = Math.max(initialCapacity, 16);
+        this.vectors = new float[capacity * dimensions];
+        this.neighbors0 = new int[capacity * (maxConnections0 + 1)];
+        this.upperNeighbors = new int[capacity][];
+    }
+
+    /**
+     * Добавить вектор.
+     *
+     * @return Номер узла (по порядку добавления, начиная с 0)
+     */
+    public int add(float[] vector) {
+        checkDimensions(vector);
+        float[] normalized = VectorMath.normalize(vector);
+        lock.writeLock().lock();
+        try {
+            int node = size;
+            ensureCapacity(node + 1);
+            System.arraycopy(normalized, 0, vectors, node * dimensions, dimensions);
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            if (level > 0) {
+                upperNeighbors[node] = new int[level * (m + 1)];
+            }
+            size++;
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return node;
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedyClosest(normalized, current, l);
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                NodeHeap candidates = searchLayer(normalized, current, efConstruction, l);
+                int maxConnections = l == 0 ? maxConnections0 : m;
+                while (candidates.size() > m) {
+                    candidates.pop();
+                }
+                int[] selected = new int[candidates.size()];
+                for (int i = selected.length - 1; i >= 0; i--) {
+                    selected[i] = candidates.pop();
+                }
+                // selected отсортирован от самого близкого
+                setNeighbors(node, l, selected, selected.length);
+                for (int neighbor : selected) {
+                    connect(neighbor, node, l, maxConnections);
+                }
+                current = selected[0];
+            }
+            if (level > maxLevel) {
+                entryPoint = node;
+                maxLevel = level;
+            }
+            return node;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Найти ближайшие по косинусной близости векторы.
+     *
+     * @param query Вектор запроса (нормировать не нужно)
+     * @param k     Сколько соседей вернуть
+     * @param ef    Ширина поиска (не меньше k); больше — точнее, но медленнее
+     * @return Найденные узлы от самого близкого
+     */
+    public List<SearchHit> search(float[] query, int k, int ef) {
+        checkDimensions(query);
+        float[] normalized = VectorMath.normalize(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(normalized, current, l);
+            }
+            NodeHeap results = searchLayer(normalized, current, Math.max(ef, k), 0);
+            while (results.size() > k) {
+                results.pop();
+            }
+            SearchHit[] hits = new SearchHit[results.size()];
+            for (int i = hits.length - 1; i >= 0; i--) {
+                float score = results.peekScore();
+                hits[i] = new SearchHit(results.pop(), score);
+            }
+            return Arrays.asList(hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Жадный спуск по уровню: переходить к более близкому соседу, пока такой есть.
+     */
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = similarity(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] list = neighborList(current, level);
+            int base = neighborBase(current, level);
+            for (int i = 1; i <= list[base]; i++) {
+                int candidate = list[base + i];
+                float score = similarity(query, candidate);
+                if (score > best) {
+                    best = score;
+                    current = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Поиск по одному уровню с шириной ef.
+     *
+     * @return Куча найденных узлов (вершина — наименее близкий), не больше ef
+     */
+    private NodeHeap searchLayer(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(size);
+        NodeHeap candidates = new NodeHeap(ef);
+        NodeHeap results = new NodeHeap(ef + 1);
+        float startScore = similarity(query, start);
+        visited.set(start);
+        candidates.push(start, -startScore);
+        results.push(start, startScore);
+
+        while (!candidates.isEmpty()) {
+            float candidateScore = -candidates.peekScore();
+            int candidate = candidates.pop();
+            if (results.size() >= ef && candidateScore < results.peekScore()) {
+                break;
+            }
+            int[] list = neighborList(candidate, level);
+            int base = neighborBase(candidate, level);
+            for (int i = 1; i <= list[base]; i++) {
+                int neighbor = list[base + i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float score = similarity(query, neighbor);
+                if (results.size() < ef || score > results.peekScore()) {
+                    candidates.push(neighbor, -score);
+                    results.push(neighbor, score);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Добавить узлу {@code node} соседа {@code added}; при переполнении оставить самых близких.
+     */
+    private void connect(int node, int added, int level, int maxConnections) {
+        int[] list = neighborList(node, level);
+        int base = neighborBase(node, level);
+        int count = list[base];
+        if (count < maxConnections) {
+            list[base + 1 + count] = added;
+            list[base] = count + 1;
+            return;
+        }
+        NodeHeap closest = new NodeHeap(maxConnections + 1);
+        int offset = node * dimensions;
+        for (int i = 1; i <= count; i++) {
+            int neighbor = list[base + i];
+            closest.push(neighbor, VectorMath.dot(vectors, offset, vectors, neighbor * dimensions, dimensions));
+        }
+        closest.push(added, VectorMath.dot(vectors, offset, vectors, added * dimensions, dimensions));
+        closest.pop();
+        int[] kept = new int[closest.size()];
+        for (int i = kept.length - 1; i >= 0; i--) {
+            kept[i] = closest.pop();
+        }
+        setNeighbors(node, level, kept, kept.length);
+    }
+
+    private void setNeighbors(int node, int level, int[] neighbors, int count) {
+        int[] list = neighborList(node, level);
+        int base = neighborBase(node, level);
+        list[base] = count;
+        System.arraycopy(neighbors, 0, list, base + 1, count);
+    }
+
+    private int[] neighborList(int node, int level) {
+        return level == 0 ? neighbors0 : upperNeighbors[node];
+    }
+
+    private int neighborBase(int node, int level) {
+        return level == 0 ? node * (maxConnections0 + 1) : (level - 1) * (m + 1);
+    }
+
+    private float similarity(float[] query, int node) {
+        return VectorMath.dot(query, 0, vectors, node * dimensions, dimensions);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= upperNeighbors.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, upperNeighbors.length * 2);
+        vectors = Arrays.copyOf(vectors, newCapacity * dimensions);
+        neighbors0 = Arrays.copyOf(neighbors0, newCapacity * (maxConnections0 + 1));
+        upperNeighbors = Arrays.copyOf(upperNeighbors, newCapacity);
+    }
+
+    private void checkDimensions(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException(
+                    "Vector has " + vector.length + " dimensions, index expects " + dimensions);
+        }
+    }
+
+    /**
+     * @param id    Номер узла
+     * @param score Косинусная близость к запросу
+     */
+    public record SearchHit(int id, float score) {
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.proxyapi.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Индекс HNSW векторов одной модели embeddings с идентификаторами клиента.
+ * <p>
+ * Идентификатор узла {@code i} хранится в {@code ids[i]}. Повторно добавленный
+ * идентификатор пропускается: удаления из HNSW нет, а у той же модели для того же
+ * текста вектор тот же.
+ */
+public class NamedVectorIndex {
+
+    private final String name;
+    private final String model;
+    private final int maxSize;
+    private final HnswIndex index;
+    private final Map<String, Integer> nodes = new HashMap<>();
+    private volatile String[] ids = new String[64];
+
+    /**
+     * @param name           Имя индекса
+     * @param model          Модель embeddings, векторы которой хранятся
+     * @param dimensions     Размерность векторов
+     * @param maxSize        Максимум векторов
+     * @param m              Число связей узла HNSW
+     * @param efConstruction Ширина поиска при добавлении
+     */
+    public NamedVectorIndex(String name, String model, int dimensions, int maxSize, int m, int efConstruction) {
+        this.name = name;
+        this.model = model;
+        this.maxSize = maxSize;
+        this.index = new HnswIndex(dimensions, m, efConstruction, 64);
+    }
+
+    /**
+     * Сколько векторов из запроса не поместится в индекс.
+     *
+     * @param ids Идентификаторы векторов, которые предстоит добавить
+     * @return Число новых идентификаторов сверх свободного места или 0
+     */
+    public synchronized int overflow(List<String> ids) {
+        long fresh = ids.stream().distinct().filter(id -> !nodes.containsKey(id)).count();
+        return (int) Math.max(0, fresh - (maxSize - index.size()));
+    }
+
+    /**
+     * Добавить векторы. Векторы сверх {@code maxSize} не добавляются: векторизация уже
+     * оплачена, поэтому запрос не проваливается, а число добавленных возвращается.
+     *
+     * @param ids     Идентификаторы
+     * @param vectors Векторы в том же порядке
+     * @return Сколько векторов добавлено (без уже известных идентификаторов и не поместившихся)
+     * @throws IllegalArgumentException если размерность не совпадает
+     */
+    public synchronized int addAll(List<String> ids, List<float[]> vectors) {
+        for (float[] vector : vectors) {
+            if (vector.length != index.dimensions()) {
+                throw new IllegalArgumentException("Vector has " + vector.length + " dimensions, index "
+                        + name + " expects " + index.dimensions());
+            }
+        }
+        int added = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            String id = ids.get(i);
+            if (nodes.containsKey(id)) {
+                continue;
+            }
+            if (index.size() >= maxSize) {
+                break;
+            }
+            // Единственный писатель: номер узла известен заранее, id публикуется раньше узла
+            int node = index.size();
+            String[] current = this.ids;
+            if (node == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                this.ids = current;
+            }
+            current[node] = id;
+            index.add(vectors.get(i));
+            nodes.put(id, node);
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * Найти ближайшие векторы.
+     *
+     * @param query Вектор запроса
+     * @param k     Сколько результатов вернуть
+     * @param ef    Ширина поиска
+     * @return Результаты от самого близкого
+     */
+    public List<Match> search(float[] query, int k, int ef) {
+        List<HnswIndex.SearchHit> hits = index.search(query, k, ef);
+        String[] current = ids;
+        List<Match> matches = new ArrayList<>(hits.size());
+        for (HnswIndex.SearchHit hit : hits) {
+            matches.add(new Match(current[hit.id()], hit.score()));
+        }
+        return matches;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String model() {
+        return model;
+    }
+
+    public int dimensions() {
+        return index.dimensions();
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @param id    Идентификатор вектора
+     * @param score Косинусная близость к запросу
+     */
+    public record Match(String id, float score) {
+    }
+}
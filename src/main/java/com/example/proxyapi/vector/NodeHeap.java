@@ -0,0 +1,87 @@
+package com.example.proxyapi.vector;
+
+import java.util.Arrays;
+
+/**
+ * Двоичная куча узлов графа по возрастанию оценки на примитивных массивах
+ * (без упаковки в объекты при поиске). Для кучи «лучший первым» оценки кладутся со знаком минус.
+ */
+final class NodeHeap {
+
+    private int[] nodes;
+    private float[] scores;
+    private int size;
+
+    NodeHeap(int capacity) {
+        nodes = new int[Math.max(capacity, 4)];
+        scores = new float[nodes.length];
+    }
+
+    void push(int node, float score) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= score) {
+                break;
+            }
+            nodes[i] = nodes[parent];
+            scores[i] = scores[parent];
+            i = parent;
+        }
+        nodes[i] = node;
+        scores[i] = score;
+    }
+
+    /**
+     * Удалить вершину кучи (узел с наименьшей оценкой).
+     *
+     * @return Удалённый узел
+     */
+    int pop() {
+        int top = nodes[0];
+        size--;
+        if (size > 0) {
+            int node = nodes[size];
+            float score = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && scores[child + 1] < scores[child]) {
+                    child++;
+                }
+                if (scores[child] >= score) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+        return top;
+    }
+
+    int peekNode() {
+        return nodes[0];
+    }
+
+    float peekScore() {
+        return scores[0];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.proxyapi.vector;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Ядра {@link VectorMath} на Vector API ({@code jdk.incubator.vector}): сразу столько
+ * float, сколько помещается в регистр SIMD процессора (8 для AVX2, 16 для AVX-512).
+ * <p>
+ * Класс загружается, только если модуль подключён ({@code --add-modules jdk.incubator.vector}),
+ * иначе используется скалярная реализация.
+ */
+final class SimdVectorMath {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private SimdVectorMath() {
+    }
+
+    static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            sum = va.fma(vb, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[aOffset + i] * b[bOffset + i];
+        }
+        return result;
+    }
+
+    /**
+     * @return Число float в регистре
+     */
+    static int lanes() {
+        return SPECIES.length();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.proxyapi.vector;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+
+/**
+ * Кодирование векторов в формат {@code encoding_format=base64} OpenAI: float32
+ * в порядке little-endian, закодированные base64. Вчетверо компактнее десятичной
+ * записи в JSON и не требует разбора чисел.
+ */
+public final class VectorCodec {
+
+    private VectorCodec() {
+    }
+
+    /**
+     * @param vector Вектор
+     * @return Строка base64 с float32 little-endian
+     */
+    public static String encodeBase64(float[] vector) {
+        ByteBuffer bytes = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asFloatBuffer().put(vector);
+        return Base64.getEncoder().encodeToString(bytes.array());
+    }
+
+    /**
+     * @param base64 Строка base64 с float32 little-endian
+     * @return Вектор
+     * @throws IllegalArgumentException если строка — не base64 или её длина не кратна 4 байтам
+     */
+    public static float[] decodeBase64(String base64) {
+        byte[] bytes = Base64.getDecoder().decode(base64);
+        if (bytes.length % Float.BYTES != 0) {
+            throw new IllegalArgumentException("Embedding of " + bytes.length + " bytes is not a float32 array");
+        }
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
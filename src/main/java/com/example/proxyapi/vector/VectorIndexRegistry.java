@@ -0,0 +1,168 @@
+package com.example.proxyapi.vector;
+
+import com.example.proxyapi.config.VectorIndexProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Именованные индексы поиска по embeddings в памяти прокси.
+ * <p>
+ * Индекс создаётся при первом добавлении: модель и размерность берутся из первых
+ * векторов, и дальше в него принимаются только векторы той же модели (векторы разных
+ * моделей несравнимы). Число индексов и векторов в индексе ограничено настройками
+ * {@code api.vector-index.*}.
+ * <p>
+ * Метрики: {@code proxyapi.vector-index.indexes}, {@code proxyapi.vector-index.vectors},
+ * {@code proxyapi.vector-index.search} (время поиска без векторизации запроса).
+ */
+@Slf4j
+@Component
+public class VectorIndexRegistry {
+
+    private final VectorIndexProperties properties;
+    private final Map<String, NamedVectorIndex> indexes = new ConcurrentHashMap<>();
+    private final Timer searchTimer;
+
+    public VectorIndexRegistry(VectorIndexProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        Gauge.builder("proxyapi.vector-index.indexes", indexes, Map::size)
+                .register(meterRegistry);
+        Gauge.builder("proxyapi.vector-index.vectors", indexes,
+                        all -> all.values().stream().mapToInt(NamedVectorIndex::size).sum())
+                .register(meterRegistry);
+        this.searchTimer = Timer.builder("proxyapi.vector-index.search")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Проверить, что в индекс можно добавлять векторы модели (до обращения к ProxyAPI):
+     * векторизация платная, поэтому запрос, векторы которого индекс не примет, отклоняется заранее.
+     *
+     * @param ids Идентификаторы векторов, которые предстоит добавить
+     * @throws IllegalArgumentException если индексы выключены, индекс хранит векторы другой модели,
+     *                                  новые векторы не поместятся или новый индекс превысит {@code max-indexes}
+     */
+    public void checkWritable(String name, String model, List<String> ids) {
+        if (!properties.isEnabled()) {
+            throw new IllegalArgumentException("Vector indexes are disabled (api.vector-index.enabled)");
+        }
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Vector index name must not be blank");
+        }
+        NamedVectorIndex index = indexes.get(name);
+        if (index == null) {
+            if (indexes.size() >= properties.getMaxIndexes()) {
+                throw new IllegalArgumentException("Too many vector indexes (" + properties.getMaxIndexes() + ")");
+            }
+            long fresh = ids.stream().distinct().count();
+            if (fresh > properties.getMaxVectorsPerIndex()) {
+                throw new IllegalArgumentException("Vector index " + name + " holds at most "
+                        + properties.getMaxVectorsPerIndex() + " vectors, request adds " + fresh);
+            }
+            return;
+        }
+        if (!index.model().equals(model)) {
+            throw new IllegalArgumentException(
+                    "Vector index " + name + " holds vectors of model " + index.model() + ", not " + model);
+        }
+        int overflow = index.overflow(ids);
+        if (overflow > 0) {
+            throw new IllegalArgumentException("Vector index " + name + " is full: " + overflow
+                    + " of the new vectors do not fit (" + properties.getMaxVectorsPerIndex() + " vectors)");
+        }
+    }
+
+    /**
+     * Добавить векторы в индекс, создав его при необходимости. Вызывается после векторизации,
+     * поэтому не проваливает запрос из-за лимитов: их проверяет {@link #checkWritable}, а если
+     * место заняли одновременные запросы, не поместившиеся векторы пропускаются с предупреждением.
+     *
+     * @param name    Имя индекса
+     * @param model   Модель embeddings
+     * @param ids     Идентификаторы векторов
+     * @param vectors Векторы
+     * @return Сколько векторов добавлено
+     */
+    public int add(String name, String model, List<String> ids, List<float[]> vectors) {
+        NamedVectorIndex index = indexes.computeIfAbsent(name, n -> {
+            if (indexes.size() >= properties.getMaxIndexes()) {
+                return null;
+            }
+            log.info("Vector index {} created for model {} ({} dimensions)", n, model, vectors.get(0).length);
+            return new NamedVectorIndex(n, model, vectors.get(0).length, properties.getMaxVectorsPerIndex(),
+                    properties.getHnswM(), properties.getHnswEfConstruction());
+        });
+        if (index == null) {
+            log.warn("Vector index {} not created: too many vector indexes ({}), {} vectors not added",
+                    name, properties.getMaxIndexes(), ids.size());
+            return 0;
+        }
+        if (!index.model().equals(model)) {
+            throw new IllegalArgumentException(
+                    "Vector index " + name + " holds vectors of model " + index.model() + ", not " + model);
+        }
+        int overflow;
+        int added;
+        synchronized (index) {
+            overflow = index.overflow(ids);
+            added = index.addAll(ids, vectors);
+        }
+        if (overflow > 0) {
+            log.warn("Vector index {} is full ({} vectors): {} new vectors not added",
+                    name, properties.getMaxVectorsPerIndex(), overflow);
+        }
+        log.debug("Vector index {}: {} of {} vectors added, {} total", name, added, ids.size(), index.size());
+        return added;
+    }
+
+    /**
+     * Найти ближайшие векторы.
+     *
+     * @param index Индекс
+     * @param query Вектор запроса
+     * @param k     Сколько результатов вернуть (не больше {@code max-k})
+     * @param ef    Ширина поиска или null — по умолчанию
+     * @return Результаты от самого близкого
+     */
+    public List<NamedVectorIndex.Match> search(NamedVectorIndex index, float[] query, int k, Integer ef) {
+        if (query.length != index.dimensions()) {
+            throw new IllegalArgumentException("Query vector has " + query.length + " dimensions, index "
+                    + index.name() + " expects " + index.dimensions());
+        }
+        int limit = Math.max(1, Math.min(k, properties.getMaxK()));
+        int width = ef != null ? Math.max(ef, limit) : Math.max(properties.getHnswEfSearch(), limit);
+        return searchTimer.record(() -> index.search(query, limit, width));
+    }
+
+    /**
+     * @return Индекс или null, если такого нет
+     */
+    public NamedVectorIndex get(String name) {
+        return indexes.get(name);
+    }
+
+    public Collection<NamedVectorIndex> list() {
+        return indexes.values();
+    }
+
+    /**
+     * Удалить индекс.
+     *
+     * @return Был ли такой индекс
+     */
+    public boolean remove(String name) {
+        return indexes.remove(name) != null;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.proxyapi.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Операции над векторами, хранящимися в плоских массивах {@code float[]}.
+ * <p>
+ * Если JVM запущена с {@code --add-modules jdk.incubator.vector}, скалярное произведение
+ * считается инструкциями SIMD ({@link SimdVectorMath}), иначе — скалярным циклом.
+ */
+@Slf4j
+public final class VectorMath {
+
+    private static final boolean SIMD = simdAvailable();
+
+    private VectorMath() {
+    }
+
+    /**
+     * @return Используются ли инструкции SIMD
+     */
+    public static boolean isSimd() {
+        return SIMD;
+    }
+
+    /**
+     * Скалярное произведение {@code a[aOffset..aOffset+length)} и {@code b[bOffset..bOffset+length)}.
+     */
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        return SIMD ? SimdVectorMath.dot(a, aOffset, b, bOffset, length) : scalarDot(a, aOffset, b, bOffset, length);
+    }
+
+    static float scalarDot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        // Четыре независимых суммы, чтобы JIT мог конвейеризовать сложения
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * @return Копия вектора единичной длины (нулевой вектор возвращается как есть)
+     */
+    public static float[] normalize(float[] vector) {
+        float norm = (float) Math.sqrt(dot(vector, 0, vector, 0, vector.length));
+        float[] normalized = vector.clone();
+        if (norm > 0) {
+            for (int i = 0; i < normalized.length; i++) {
+                normalized[i] /= norm;
+            }
+        }
+        return normalized;
+    }
+
+    private static boolean simdAvailable() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            log.info("Vector API is not available, vector kernels are scalar (add --add-modules jdk.incubator.vector)");
+            return false;
+        }
+        try {
+            int lanes = SimdVectorMath.lanes();
+            // Без регистров хотя бы на 4 float векторные операции медленнее скалярного цикла
+            if (lanes < 4) {
+                log.info("Vector API offers only {} float lanes, vector kernels are scalar", lanes);
+                return false;
+            }
+            log.info("Vector kernels use Vector API with {} float lanes", lanes);
+            return true;
+        } catch (LinkageError e) {
+            log.warn("Vector API failed to initialize, vector kernels are scalar: {}", e.toString());
+            return false;
+        }
+    }
+}
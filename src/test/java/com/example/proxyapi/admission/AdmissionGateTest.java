@@ -0,0 +1,185 @@
+package com.example.proxyapi.admission;
+
+import com.example.proxyapi.config.AdmissionProperties;
+import com.example.proxyapi.exception.RateLimitExceededException;
+import com.example.proxyapi.utils.ProxyApiEndpoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты AdmissionGate: лимиты эндпоинтов и клиентов, очередь и определение клиента.
+ */
+class AdmissionGateTest {
+
+    private static final ProxyApiEndpoint CHAT = ProxyApiEndpoint.CHAT_COMPLETIONS;
+
+    @AfterEach
+    void resetRequestContext() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private static AdmissionProperties.Limit limit(double requestsPerSecond, int burst) {
+        AdmissionProperties.Limit limit = new AdmissionProperties.Limit();
+        limit.setRequestsPerSecond(requestsPerSecond);
+        limit.setBurst(burst);
+        return limit;
+    }
+
+    private static AdmissionProperties properties(Duration maxQueueDelay) {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setMaxQueueDelay(maxQueueDelay);
+        return properties;
+    }
+
+    private static void request(String remoteAddress, String clientId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddress);
+        if (clientId != null) {
+            request.addHeader("X-Client-Id", clientId);
+        }
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private static boolean rejected(CompletableFuture<Void> admission) {
+        return admission.isCompletedExceptionally();
+    }
+
+    @Test
+    @DisplayName("Выключенный контроль допускает всё сразу")
+    void disabledAdmitsEverything() {
+        AdmissionProperties properties = properties(Duration.ZERO);
+        properties.setEnabled(false);
+        properties.getRoutes().put(CHAT, limit(1, 1));
+        AdmissionGate gate = new AdmissionGate(properties);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(gate.admit(CHAT, 0)).isCompleted();
+        }
+    }
+
+    @Test
+    @DisplayName("Сверх лимита эндпоинта запрос ждёт в очереди и допускается позже")
+    void queuesRequestsAboveRouteLimit() throws Exception {
+        AdmissionProperties properties = properties(Duration.ofSeconds(2));
+        properties.getRoutes().put(CHAT, limit(20, 1));
+        AdmissionGate gate = new AdmissionGate(properties);
+
+        assertThat(gate.admit(CHAT, 0)).isCompleted();
+        CompletableFuture<Void> queued = gate.admit(CHAT, 0);
+
+        assertThat(queued).isNotDone();
+        queued.get(2, TimeUnit.SECONDS);
+        // Лимит другого эндпоинта не задан
+        assertThat(gate.admit(ProxyApiEndpoint.EMBEDDINGS, 0)).isCompleted();
+    }
+
+    @Test
+    @DisplayName("Если ждать дольше max-queue-delay, запрос сразу отклоняется с Retry-After")
+    void rejectsWhenWaitIsTooLong() {
+        AdmissionProperties properties = properties(Duration.ofMillis(10));
+        properties.getRoutes().put(CHAT, limit(1, 1));
+        AdmissionGate gate = new AdmissionGate(properties);
+
+        assertThat(gate.admit(CHAT, 0)).isCompleted();
+        CompletableFuture<Void> second = gate.admit(CHAT, 0);
+
+        assertThatThrownBy(second::get)
+                .isInstanceOf(ExecutionException.class)
+                .cause()
+                .isInstanceOf(RateLimitExceededException.class)
+                .satisfies(e -> assertThat(((RateLimitExceededException) e).getRetryAfter())
+                        .isGreaterThan(Duration.ofMillis(900)));
+    }
+
+    @Test
+    @DisplayName("При заполненной очереди запрос отклоняется")
+    void rejectsWhenQueueIsFull() {
+        AdmissionProperties properties = properties(Duration.ofSeconds(10));
+        properties.setMaxQueueSize(1);
+        properties.getRoutes().put(CHAT, limit(1, 1));
+        AdmissionGate gate = new AdmissionGate(properties);
+
+        assertThat(gate.admit(CHAT, 0)).isCompleted();
+        assertThat(gate.admit(CHAT, 0)).isNotDone();
+        assertThat(rejected(gate.admit(CHAT, 0))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Лимит токенов в минуту учитывает оценку запроса")
+    void limitsEstimatedTokens() {
+        AdmissionProperties properties = properties(Duration.ofMillis(10));
+        AdmissionProperties.Limit limit = new AdmissionProperties.Limit();
+        limit.setTokensPerMinute(6_000);
+        properties.getRoutes().put(CHAT, limit);
+        AdmissionGate gate = new AdmissionGate(properties);
+
+        assertThat(gate.admit(CHAT, 5_000)).isCompleted();
+        assertThat(gate.admit(CHAT, 0)).isCompleted();
+        assertThat(rejected(gate.admit(CHAT, 5_000))).isTrue();
+    }
+
+    @Test
+    @DisplayName("По умолчанию клиент определяется по IP-адресу, заголовок игнорируется")
+    void keysCallersByRemoteAddressByDefault() {
+        AdmissionProperties properties = properties(Duration.ofMillis(10));
+        properties.setPerCaller(limit(1, 1));
+        AdmissionGate gate = new AdmissionGate(properties);
+
+        request("10.0.0.1", "a");
+        assertThat(gate.admit(CHAT, 0)).isCompleted();
+        request("10.0.0.1", "b");
+        assertThat(rejected(gate.admit(CHAT, 0))).isTrue();
+        request("10.0.0.2", "b");
+        assertThat(gate.admit(CHAT, 0)).isCompleted();
+    }
+
+    @Test
+    @DisplayName("Настроенному заголовку клиента доверяется")
+    void keysCallersByConfiguredHeader() {
+        AdmissionProperties properties = properties(Duration.ofMillis(10));
+        properties.setCallerHeader("X-Client-Id");
+        properties.setPerCaller(limit(1, 1));
+        AdmissionGate gate = new AdmissionGate(properties);
+
+        request("10.0.0.1", "a");
+        assertThat(gate.admit(CHAT, 0)).isCompleted();
+        request("10.0.0.1", "b");
+        assertThat(gate.admit(CHAT, 0)).isCompleted();
+        request("10.0.0.2", "a");
+        assertThat(rejected(gate.admit(CHAT, 0))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Клиенты сверх max-callers делят одно ведро")
+    void callersAboveLimitShareOverflowBucket() {
+        AdmissionProperties properties = properties(Duration.ofMillis(10));
+        properties.setCallerHeader("X-Client-Id");
+        properties.setMaxCallers(2);
+        properties.setPerCaller(limit(1, 1));
+        AdmissionGate gate = new AdmissionGate(properties);
+
+        request("10.0.0.1", "a");
+        assertThat(gate.admit(CHAT, 0)).isCompleted();
+        request("10.0.0.1", "b");
+        assertThat(gate.admit(CHAT, 0)).isCompleted();
+        request("10.0.0.1", "c");
+        assertThat(gate.admit(CHAT, 0)).isCompleted();
+        // Новые идентификаторы попадают в то же общее ведро
+        request("10.0.0.1", "d");
+        assertThat(rejected(gate.admit(CHAT, 0))).isTrue();
+        request("10.0.0.1", "e");
+        assertThat(rejected(gate.admit(CHAT, 0))).isTrue();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.proxyapi.admission;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты TokenBucket: время задаётся явно, поэтому тесты не зависят от часов.
+ */
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("Полное ведро пропускает всплеск размером с ёмкость")
+    void allowsBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(3, 1, 0);
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.waitNanos(1, 0)).isZero();
+            bucket.reserve(1, 0);
+        }
+        assertThat(bucket.waitNanos(1, 0)).isEqualTo(SECOND);
+    }
+
+    @Test
+    @DisplayName("Ведро пополняется со временем, но не выше ёмкости")
+    void refillsUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 2, 0);
+        bucket.reserve(2, 0);
+        assertThat(bucket.waitNanos(1, SECOND / 4)).isEqualTo(SECOND / 4);
+        assertThat(bucket.waitNanos(1, SECOND / 2)).isZero();
+        assertThat(bucket.isFull(SECOND)).isTrue();
+        assertThat(bucket.isFull(100 * SECOND)).isTrue();
+        bucket.reserve(2, 100 * SECOND);
+        assertThat(bucket.isFull(100 * SECOND)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Резерв уводит баланс в минус: каждый следующий в очереди ждёт дольше")
+    void reservationsQueueUp() {
+        TokenBucket bucket = new TokenBucket(1, 1, 0);
+        bucket.reserve(1, 0);
+        long first = bucket.waitNanos(1, 0);
+        bucket.reserve(1, 0);
+        long second = bucket.waitNanos(1, 0);
+
+        assertThat(first).isEqualTo(SECOND);
+        assertThat(second).isEqualTo(2 * SECOND);
+    }
+
+    @Test
+    @DisplayName("Запрос больше ёмкости ограничивается ёмкостью и не ждёт вечно")
+    void amountAboveCapacityIsCapped() {
+        TokenBucket bucket = new TokenBucket(100, 10, 0);
+        assertThat(bucket.waitNanos(1_000, 0)).isZero();
+        bucket.reserve(1_000, 0);
+        assertThat(bucket.waitNanos(1_000, 0)).isEqualTo(10 * SECOND);
+    }
+}
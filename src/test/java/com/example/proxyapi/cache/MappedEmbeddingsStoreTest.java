@@ -0,0 +1,384 @@
+package com.example.proxyapi.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты MappedEmbeddingsStore: восстановление после перезапуска и сбоя, повреждённые
+ * данные и индекс, переход записей через границу фрагмента.
+ */
+class MappedEmbeddingsStoreTest {
+
+    private static final long SEGMENT = 4096;
+    private static final long MAX_SIZE = 1 << 20;
+    private static final int DIMENSIONS = 8;
+    /**
+     * Заголовок файла и размер записи модели "m" с 8 измерениями: 36 байт до вектора + 32, с выравниванием.
+     */
+    private static final int HEADER = 64;
+    private static final int RECORD = 72;
+
+    @TempDir
+    Path directory;
+
+    private static long high(int i) {
+        return 0x1000L + i;
+    }
+
+    private static long low(int i) {
+        return i * 0x9E3779B97F4A7C15L + 7;
+    }
+
+    private static float[] vector(int i, int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            vector[d] = i + d / 100f;
+        }
+        return vector;
+    }
+
+    private static void put(MappedEmbeddingsStore store, int from, int to) {
+        for (int i = from; i < to; i++) {
+            store.put(high(i), low(i), "m", vector(i, DIMENSIONS), i);
+        }
+    }
+
+    private static float[] toArray(FloatBuffer buffer) {
+        float[] array = new float[buffer.remaining()];
+        buffer.duplicate().get(array);
+        return array;
+    }
+
+    /**
+     * Проверить, что в хранилище ровно записи {@code [0, count)} из {@code [0, written)}.
+     */
+    private static void assertRecovered(MappedEmbeddingsStore store, int count, int written) {
+        assertThat(store.size()).isEqualTo(count);
+        for (int i = 0; i < written; i++) {
+            MappedEmbeddingsStore.StoredEmbedding stored = store.get(high(i), low(i));
+            if (i < count) {
+                assertThat(stored).as("record %d", i).isNotNull();
+                assertThat(stored.model()).isEqualTo("m");
+                assertThat(stored.promptTokens()).isEqualTo(i);
+                assertThat(toArray(stored.vector())).containsExactly(vector(i, DIMENSIONS));
+            } else {
+                assertThat(stored).as("record %d", i).isNull();
+            }
+        }
+    }
+
+    /**
+     * Снимок файлов открытого хранилища — как после сбоя процесса без {@link MappedEmbeddingsStore#close()}.
+     */
+    private Path crashImage(String name) throws IOException {
+        Path image = Files.createDirectory(directory.resolveSibling(directory.getFileName() + "-" + name));
+        for (String file : new String[]{"embeddings.dat", "embeddings.idx"}) {
+            if (Files.exists(directory.resolve(file))) {
+                Files.copy(directory.resolve(file), image.resolve(file));
+            }
+        }
+        return image;
+    }
+
+    private static void patch(Path file, long position, byte... bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+
+    private static int readInt(Path file, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.read(buffer, position);
+        }
+        return buffer.getInt(0);
+    }
+
+    @Test
+    @DisplayName("Записи доступны сразу и после перезапуска по сохранённому индексу")
+    void reopensFromCheckpoint() throws IOException {
+        long bytes;
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            put(store, 0, 100);
+            assertRecovered(store, 100, 100);
+            bytes = store.bytes();
+        }
+        assertThat(directory.resolve("embeddings.idx")).exists();
+
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            assertRecovered(store, 100, 100);
+            assertThat(store.bytes()).isEqualTo(bytes);
+        }
+    }
+
+    @Test
+    @DisplayName("Без файла индекса он восстанавливается чтением всего файла данных")
+    void rebuildsWithoutCheckpoint() throws IOException {
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            put(store, 0, 100);
+        }
+        Files.delete(directory.resolve("embeddings.idx"));
+
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            assertRecovered(store, 100, 100);
+            put(store, 100, 110);
+            assertRecovered(store, 110, 110);
+        }
+    }
+
+    @Test
+    @DisplayName("После сбоя дочитываются записи, дописанные после контрольной точки")
+    void replaysRecordsAfterCheckpoint() throws IOException {
+        Path image;
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            put(store, 0, 30);
+            store.checkpoint();
+            put(store, 30, 60);
+            image = crashImage("crash");
+        }
+
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(image, SEGMENT, MAX_SIZE)) {
+            assertRecovered(store, 60, 60);
+        }
+    }
+
+    @Test
+    @DisplayName("Недописанный хвост отбрасывается, запись продолжается с его места")
+    void dropsTruncatedTail() throws IOException {
+        Path image;
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            put(store, 0, 5);
+            store.checkpoint();
+            put(store, 5, 10);
+            image = crashImage("truncated");
+        }
+        // Последняя запись оборвана посередине
+        try (FileChannel channel = FileChannel.open(image.resolve("embeddings.dat"), StandardOpenOption.WRITE)) {
+            channel.truncate(HEADER + 9L * RECORD + RECORD / 2);
+        }
+
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(image, SEGMENT, MAX_SIZE)) {
+            assertRecovered(store, 9, 10);
+            assertThat(store.bytes()).isEqualTo(HEADER + 9L * RECORD);
+            put(store, 9, 12);
+        }
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(image, SEGMENT, MAX_SIZE)) {
+            assertRecovered(store, 12, 12);
+        }
+    }
+
+    @Test
+    @DisplayName("Запись с неверной CRC отбрасывается вместе со всем, что после неё")
+    void dropsRecordsFromCorruptedOne() throws IOException {
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            put(store, 0, 10);
+        }
+        Files.delete(directory.resolve("embeddings.idx"));
+        // Байт вектора восьмой записи: магическое число на месте, CRC не сходится
+        patch(directory.resolve("embeddings.dat"), HEADER + 7L * RECORD + 50, (byte) 0x7F);
+
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            assertRecovered(store, 7, 10);
+        }
+    }
+
+    @Test
+    @DisplayName("Запись с верной CRC, но без магического числа (оно пишется последним) не принимается")
+    void requiresMagicWrittenLast() throws IOException {
+        Path data = directory.resolve("embeddings.dat");
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            put(store, 0, 10);
+        }
+        Files.delete(directory.resolve("embeddings.idx"));
+        long fifth = HEADER + 5L * RECORD;
+        assertThat(readInt(data, fifth)).isEqualTo(0x454D4231);
+        patch(data, fifth, new byte[4]);
+
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            assertRecovered(store, 5, 10);
+        }
+    }
+
+    @Test
+    @DisplayName("Повреждённый или обрезанный индекс игнорируется и строится заново")
+    void ignoresCorruptedIndex() throws IOException {
+        Path index = directory.resolve("embeddings.idx");
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            put(store, 0, 50);
+        }
+        byte[] original = Files.readAllBytes(index);
+
+        byte[] flipped = original.clone();
+        flipped[flipped.length / 2] ^= 0x01;
+        Files.write(index, flipped);
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            assertRecovered(store, 50, 50);
+        }
+
+        Files.write(index, Arrays.copyOf(original, original.length - 9));
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            assertRecovered(store, 50, 50);
+        }
+
+        Files.write(index, new byte[]{1, 2, 3});
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            assertRecovered(store, 50, 50);
+        }
+    }
+
+    @Test
+    @DisplayName("Индекс с ёмкостью больше, чем вмещает файл данных, отклоняется до выделения памяти")
+    void rejectsOversizedIndexBeforeAllocating() throws IOException {
+        Path index = directory.resolve("embeddings.idx");
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            put(store, 0, 50);
+        }
+        // Заголовок индекса: magic, версия, размер фрагмента, id хранилища, смещение, затем ёмкость
+        ByteBuffer damaged = ByteBuffer.wrap(Files.readAllBytes(index));
+        damaged.putInt(32, 1 << 30);
+        Files.write(index, damaged.array());
+
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            assertRecovered(store, 50, 50);
+        }
+    }
+
+    @Test
+    @DisplayName("Индекс от другого файла данных не загружается")
+    void ignoresForeignIndex() throws IOException {
+        Path other = Files.createDirectory(directory.resolve("other"));
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(other, SEGMENT, MAX_SIZE)) {
+            put(store, 1000, 1050);
+        }
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            put(store, 0, 50);
+        }
+        // Тот же размер фрагмента, целая CRC и смещение в пределах файла — но ключи чужие
+        Files.copy(other.resolve("embeddings.idx"), directory.resolve("embeddings.idx"), StandardCopyOption.REPLACE_EXISTING);
+
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            assertRecovered(store, 50, 50);
+            assertThat(store.get(high(1000), low(1000))).isNull();
+        }
+    }
+
+    @Test
+    @DisplayName("Индекс с другим размером фрагмента не загружается, размер берётся из заголовка файла")
+    void keepsSegmentSizeFromHeader() throws IOException {
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, 256, MAX_SIZE)) {
+            put(store, 0, 20);
+        }
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            assertRecovered(store, 20, 20);
+            put(store, 20, 30);
+        }
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            assertRecovered(store, 30, 30);
+        }
+    }
+
+    @Test
+    @DisplayName("Запись не пересекает границу фрагмента: остаток помечается и пропускается при чтении")
+    void padsAcrossSegmentBoundaries() throws IOException {
+        long segment = 256;
+        Path data = directory.resolve("embeddings.dat");
+        Path image;
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, segment, MAX_SIZE)) {
+            // Во фрагмент 0 после заголовка помещаются две записи, в следующие — по три
+            put(store, 0, 2);
+            assertThat(store.bytes()).isEqualTo(HEADER + 2L * RECORD);
+            put(store, 2, 3);
+            assertThat(store.bytes()).isEqualTo(segment + RECORD);
+            store.checkpoint();
+            put(store, 3, 10);
+            assertThat(store.bytes()).isEqualTo(3 * segment + 2L * RECORD);
+            image = crashImage("padded");
+        }
+        assertThat(readInt(data, HEADER + 2L * RECORD)).isEqualTo(0x50414421);
+        assertThat(readInt(data, segment + 3L * RECORD)).isEqualTo(0x50414421);
+
+        // Дочитывание после контрольной точки проходит через метки в конце фрагментов
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(image, segment, MAX_SIZE)) {
+            assertRecovered(store, 10, 10);
+        }
+        Files.delete(directory.resolve("embeddings.idx"));
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, segment, MAX_SIZE)) {
+            assertRecovered(store, 10, 10);
+        }
+    }
+
+    @Test
+    @DisplayName("Запись, заполняющая фрагмент до конца, и следующая за ней читаются без метки")
+    void handlesRecordEndingExactlyAtBoundary() throws IOException {
+        long segment = 256;
+        // 36 байт до вектора + 39 * 4 = 192 = остаток фрагмента 0 после заголовка
+        float[] exact = vector(-1, 39);
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, segment, MAX_SIZE)) {
+            store.put(1, 1, "m", exact, 3);
+            assertThat(store.bytes()).isEqualTo(segment);
+            put(store, 0, 3);
+        }
+        Files.delete(directory.resolve("embeddings.idx"));
+
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, segment, MAX_SIZE)) {
+            assertThat(store.size()).isEqualTo(4);
+            assertThat(toArray(store.get(1, 1).vector())).containsExactly(exact);
+            for (int i = 0; i < 3; i++) {
+                assertThat(toArray(store.get(high(i), low(i)).vector())).containsExactly(vector(i, DIMENSIONS));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Сверх максимального размера и не помещающиеся во фрагмент записи не сохраняются")
+    void respectsSizeLimits() throws IOException {
+        long segment = 256;
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, segment, 2 * segment)) {
+            put(store, 0, 10);
+            // Два фрагмента: 2 + 3 записи
+            assertRecovered(store, 5, 10);
+            store.put(1, 1, "m", new float[64], 1);
+            assertThat(store.get(1, 1)).isNull();
+        }
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, segment, 2 * segment)) {
+            assertRecovered(store, 5, 10);
+        }
+    }
+
+    @Test
+    @DisplayName("Повторный ключ не дописывается")
+    void ignoresDuplicateKeys() throws IOException {
+        try (MappedEmbeddingsStore store = new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE)) {
+            put(store, 0, 3);
+            long bytes = store.bytes();
+            store.put(high(1), low(1), "other", vector(99, DIMENSIONS), 99);
+            assertThat(store.bytes()).isEqualTo(bytes);
+            assertRecovered(store, 3, 3);
+        }
+    }
+
+    @Test
+    @DisplayName("Чужой файл данных не открывается")
+    void rejectsForeignDataFile() throws IOException {
+        Files.write(directory.resolve("embeddings.dat"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        assertThatThrownBy(() -> new MappedEmbeddingsStore(directory, SEGMENT, MAX_SIZE))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not an embeddings store file");
+    }
+}
@@ -179,6 +179,40 @@ class OpenAiControllerIntegrationTest {
         void testCreateChatCompletionWithGpt35Turbo() {
             performPostTest("gpt-3.5-turbo");
         }
+
+        @Test
+        @DisplayName("POST /v1/chat/completions - Потоковый ответ (stream=true)")
+        void testCreateChatCompletionStream() {
+            String url = getBaseUrl() + "/chat/completions";
+
+            // Подготовка потокового запроса
+            ChatCompletionRequestInputDTO requestInputDTO = new ChatCompletionRequestInputDTO(
+                    "gpt-4o-mini",
+                    List.of(
+                            new MessageDTO("user", "Say this is a test!")
+                    ),
+                    100, // maxTokens
+                    0.7, // temperature
+                    true // stream
+            );
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setBearerAuth(apiKey);
+            HttpEntity<ChatCompletionRequestInputDTO> requestEntity = new HttpEntity<>(requestInputDTO, headers);
+
+            ResponseEntity<String> response = restTemplate.postForEntity(url, requestEntity, String.class);
+
+            // Проверка статуса и типа контента
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getHeaders().getContentType()).isNotNull();
+            assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.TEXT_EVENT_STREAM)).isTrue();
+
+            // Поток должен состоять из событий data: и завершаться маркером [DONE]
+            assertThat(response.getBody()).isNotNull();
+            assertThat(response.getBody()).startsWith("data:");
+            assertThat(response.getBody()).contains("data: [DONE]");
+        }
     }
 
     /**
@@ -0,0 +1,190 @@
+package com.example.proxyapi.resilience;
+
+import com.example.proxyapi.config.CircuitBreakerProperties.EndpointPolicy;
+import com.example.proxyapi.exception.CallNotPermittedException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты переходов состояний CircuitBreaker.
+ */
+class CircuitBreakerTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+    private static EndpointPolicy policy(Duration waitInOpenState) {
+        EndpointPolicy policy = new EndpointPolicy();
+        policy.setSlidingWindowSize(4);
+        policy.setMinimumNumberOfCalls(4);
+        policy.setFailureRateThreshold(50f);
+        policy.setSlowCallDurationThreshold(Duration.ofSeconds(1));
+        policy.setSlowCallRateThreshold(75f);
+        policy.setWaitDurationInOpenState(waitInOpenState);
+        policy.setPermittedCallsInHalfOpenState(2);
+        policy.setMaxConcurrentCalls(0);
+        return policy;
+    }
+
+    private static void call(CircuitBreaker breaker, long durationNanos, boolean failed) {
+        breaker.onResult(breaker.acquirePermission(), durationNanos, failed);
+    }
+
+    @Test
+    @DisplayName("Размыкается, когда доля ошибок в окне достигает порога")
+    void opensOnFailureRate() {
+        CircuitBreaker breaker = new CircuitBreaker("test", policy(Duration.ofMinutes(1)));
+        call(breaker, FAST, false);
+        call(breaker, FAST, true);
+        call(breaker, FAST, false);
+        assertThat(breaker.snapshot().state()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        call(breaker, FAST, true);
+
+        assertThat(breaker.snapshot().state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(breaker::acquirePermission)
+                .isInstanceOf(CallNotPermittedException.class)
+                .satisfies(e -> assertThat(((CallNotPermittedException) e).getRetryAfter()).isPositive());
+        assertThat(breaker.snapshot().notPermittedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("До минимального числа вызовов не размыкается")
+    void staysClosedBelowMinimumNumberOfCalls() {
+        CircuitBreaker breaker = new CircuitBreaker("test", policy(Duration.ofMinutes(1)));
+        call(breaker, FAST, true);
+        call(breaker, FAST, true);
+        call(breaker, FAST, true);
+
+        assertThat(breaker.snapshot().state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Размыкается по доле медленных вызовов")
+    void opensOnSlowCallRate() {
+        CircuitBreaker breaker = new CircuitBreaker("test", policy(Duration.ofMinutes(1)));
+        call(breaker, SLOW, false);
+        call(breaker, SLOW, false);
+        call(breaker, FAST, false);
+        call(breaker, SLOW, false);
+
+        assertThat(breaker.snapshot().state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    @DisplayName("После ожидания пропускает пробные вызовы и замыкается, если они успешны")
+    void closesAfterSuccessfulProbes() {
+        CircuitBreaker breaker = opened(Duration.ZERO);
+
+        long first = breaker.acquirePermission();
+        long second = breaker.acquirePermission();
+        assertThat(breaker.snapshot().state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThatThrownBy(breaker::acquirePermission).isInstanceOf(CallNotPermittedException.class);
+
+        breaker.onResult(first, FAST, false);
+        breaker.onResult(second, FAST, false);
+
+        CircuitBreaker.Snapshot snapshot = breaker.snapshot();
+        assertThat(snapshot.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(snapshot.bufferedCalls()).isZero();
+        assertThat(snapshot.concurrentCalls()).isZero();
+    }
+
+    @Test
+    @DisplayName("Снова размыкается, если пробный вызов неудачен")
+    void reopensAfterFailedProbe() {
+        CircuitBreaker breaker = opened(Duration.ZERO);
+
+        long first = breaker.acquirePermission();
+        long second = breaker.acquirePermission();
+        breaker.onResult(first, FAST, true);
+        breaker.onResult(second, FAST, false);
+
+        // Ожидание нулевое: OPEN сразу сменяется HALF_OPEN при следующем обращении
+        assertThat(breaker.snapshot().state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.snapshot().concurrentCalls()).isZero();
+    }
+
+    @Test
+    @DisplayName("Исход вызова, начатого до размыкания, не засчитывается как пробный")
+    void ignoresCallsFromEarlierState() {
+        CircuitBreaker breaker = new CircuitBreaker("test", policy(Duration.ZERO));
+        long stale = breaker.acquirePermission();
+        for (int i = 0; i < 4; i++) {
+            call(breaker, FAST, true);
+        }
+
+        long first = breaker.acquirePermission();
+        long second = breaker.acquirePermission();
+        assertThat(breaker.snapshot().state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        // Медленный вызов из CLOSED завершается во время пробных — без влияния на их итог
+        breaker.onResult(stale, SLOW, true);
+        assertThat(breaker.snapshot().state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        breaker.onResult(first, FAST, false);
+        breaker.onResult(second, FAST, false);
+        assertThat(breaker.snapshot().state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.snapshot().concurrentCalls()).isZero();
+    }
+
+    @Test
+    @DisplayName("Отмена устаревшего разрешения не освобождает место пробного вызова")
+    void staleReleaseKeepsProbeSlots() {
+        CircuitBreaker breaker = new CircuitBreaker("test", policy(Duration.ZERO));
+        long stale = breaker.acquirePermission();
+        for (int i = 0; i < 4; i++) {
+            call(breaker, FAST, true);
+        }
+        breaker.acquirePermission();
+        breaker.acquirePermission();
+
+        breaker.releasePermission(stale);
+
+        assertThatThrownBy(breaker::acquirePermission).isInstanceOf(CallNotPermittedException.class);
+        assertThat(breaker.snapshot().concurrentCalls()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Отменённый пробный вызов освобождает место для другого")
+    void releasedProbeFreesSlot() {
+        CircuitBreaker breaker = opened(Duration.ZERO);
+        long first = breaker.acquirePermission();
+        breaker.acquirePermission();
+
+        breaker.releasePermission(first);
+
+        breaker.acquirePermission();
+        assertThat(breaker.snapshot().concurrentCalls()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Ограничивает число одновременных вызовов")
+    void limitsConcurrentCalls() {
+        EndpointPolicy policy = policy(Duration.ofMinutes(1));
+        policy.setMaxConcurrentCalls(2);
+        CircuitBreaker breaker = new CircuitBreaker("test", policy);
+        long first = breaker.acquirePermission();
+        breaker.acquirePermission();
+
+        assertThatThrownBy(breaker::acquirePermission)
+                .isInstanceOf(CallNotPermittedException.class)
+                .hasMessageContaining("concurrent");
+
+        breaker.onResult(first, FAST, false);
+        breaker.acquirePermission();
+    }
+
+    private static CircuitBreaker opened(Duration waitInOpenState) {
+        CircuitBreaker breaker = new CircuitBreaker("test", policy(waitInOpenState));
+        for (int i = 0; i < 4; i++) {
+            call(breaker, FAST, true);
+        }
+        return breaker;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.proxyapi.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты ChatRequestRewriter: переписывание полей под модель, сохранение остальных полей
+ * без изменений и отказ на некорректных телах.
+ */
+class ChatRequestRewriterTest {
+
+    private final ChatRequestRewriter rewriter = new ChatRequestRewriter(Set.of("o1", "o1-mini"));
+
+    private ChatRequestRewriter.Rewritten rewrite(String json) {
+        return rewriter.rewrite(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String body(ChatRequestRewriter.Rewritten rewritten) {
+        return new String(rewritten.body(), 0, rewritten.bodyLength(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Для o1 max_tokens становится max_completion_tokens, temperature — 1")
+    void rewritesForMaxCompletionTokensModels() {
+        ChatRequestRewriter.Rewritten rewritten = rewrite(
+                "{\"max_tokens\":100,\"temperature\":0.2,\"model\":\"o1\",\"messages\":[{\"role\":\"user\",\"content\":\"hi\"}]}");
+
+        assertThat(body(rewritten)).isEqualTo(
+                "{\"model\":\"o1\",\"messages\":[{\"role\":\"user\",\"content\":\"hi\"}],"
+                        + "\"max_completion_tokens\":100,\"temperature\":1.0}");
+        assertThat(rewritten.model()).isEqualTo("o1");
+        assertThat(rewritten.maxTokens()).isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("Для o1 явный max_completion_tokens сохраняется и не дублируется")
+    void keepsExplicitMaxCompletionTokens() {
+        ChatRequestRewriter.Rewritten rewritten = rewrite(
+                "{\"model\":\"o1-mini\",\"maxTokens\":50,\"max_completion_tokens\":70,\"messages\":[{\"role\":\"user\",\"content\":\"x\"}]}");
+
+        assertThat(body(rewritten)).isEqualTo(
+                "{\"model\":\"o1-mini\",\"max_completion_tokens\":70,\"messages\":[{\"role\":\"user\",\"content\":\"x\"}],"
+                        + "\"temperature\":1.0}");
+        assertThat(rewritten.maxTokens()).isEqualTo(70);
+    }
+
+    @Test
+    @DisplayName("Для остальных моделей maxTokens переименовывается в max_tokens, temperature сохраняется")
+    void renamesMaxTokensForOtherModels() {
+        ChatRequestRewriter.Rewritten rewritten = rewrite(
+                "{\"model\":\"gpt-4o\",\"maxTokens\":256,\"temperature\":0.5,\"messages\":[{\"role\":\"user\",\"content\":\"hi\"}]}");
+
+        assertThat(body(rewritten)).isEqualTo(
+                "{\"model\":\"gpt-4o\",\"messages\":[{\"role\":\"user\",\"content\":\"hi\"}],"
+                        + "\"max_tokens\":256,\"temperature\":0.5}");
+        assertThat(rewritten.maxTokens()).isEqualTo(256);
+    }
+
+    @Test
+    @DisplayName("Неизвестные поля и дробные числа копируются байт в байт")
+    void copiesUnknownFieldsExactly() {
+        String tools = "\"tools\":[{\"type\":\"function\",\"function\":{\"name\":\"f\",\"parameters\":"
+                + "{\"type\":\"object\",\"properties\":{\"x\":{\"type\":\"number\",\"minimum\":1.50}}}}}]";
+        String responseFormat = "\"response_format\":{\"type\":\"json_schema\",\"json_schema\":{\"strict\":true,\"nested\":[1,2.000,null,false]}}";
+        String messages = "\"messages\":[{\"role\":\"user\",\"content\":\"hi\",\"name\":\"bob\",\"extra\":{\"a\":[0.10,1e-7]}}]";
+        String json = "{\"model\":\"gpt-4o\"," + messages + "," + tools + ",\"top_p\":0.90,\"seed\":12345678901234," + responseFormat + "}";
+
+        ChatRequestRewriter.Rewritten rewritten = rewrite(json);
+
+        assertThat(body(rewritten)).isEqualTo(json);
+    }
+
+    @Test
+    @DisplayName("Сводка: stream, суммарная длина content и отсутствие лимита")
+    void reportsSummary() {
+        ChatRequestRewriter.Rewritten rewritten = rewrite(
+                "{\"model\":\"gpt-4o\",\"stream\":true,\"messages\":[{\"role\":\"system\",\"content\":\"abc\"},"
+                        + "{\"role\":\"user\",\"content\":\"de\"},{\"role\":\"user\",\"content\":[{\"type\":\"text\",\"text\":\"ignored\"}]}]}");
+
+        assertThat(rewritten.stream()).isTrue();
+        assertThat(rewritten.contentChars()).isEqualTo(5);
+        assertThat(rewritten.maxTokens()).isNull();
+        assertThat(rewrite("{\"model\":\"gpt-4o\",\"stream\":false,\"messages\":[{\"role\":\"user\",\"content\":\"x\"}]}").stream()).isFalse();
+    }
+
+    @Test
+    @DisplayName("null в maxTokens и temperature отбрасывается")
+    void dropsNullLimits() {
+        ChatRequestRewriter.Rewritten rewritten = rewrite(
+                "{\"model\":\"gpt-4o\",\"maxTokens\":null,\"temperature\":null,\"messages\":[{\"role\":\"user\",\"content\":\"x\"}]}");
+
+        assertThat(body(rewritten)).isEqualTo("{\"model\":\"gpt-4o\",\"messages\":[{\"role\":\"user\",\"content\":\"x\"}]}");
+        assertThat(rewritten.maxTokens()).isNull();
+    }
+
+    @Test
+    @DisplayName("Некорректный JSON отклоняется IllegalArgumentException")
+    void rejectsMalformedJson() {
+        assertThatThrownBy(() -> rewrite("{\"model\":\"gpt-4o\",\"messages\":[{\"role\":"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Malformed JSON request");
+        assertThatThrownBy(() -> rewrite("{\"model\":\"gpt-4o\" \"messages\":[]}"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rewrite(""))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Тело не объект, лишние данные после объекта, нет модели или сообщений — отказ")
+    void rejectsInvalidRequests() {
+        assertThatThrownBy(() -> rewrite("[1,2]"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("JSON object");
+        assertThatThrownBy(() -> rewrite("{\"model\":\"gpt-4o\",\"messages\":[{\"content\":\"x\"}]} {}"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rewrite("{\"messages\":[{\"role\":\"user\",\"content\":\"x\"}]}"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("model");
+        assertThatThrownBy(() -> rewrite("{\"model\":\"gpt-4o\",\"messages\":[]}"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("messages");
+        assertThatThrownBy(() -> rewrite("{\"model\":\"gpt-4o\"}"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("messages");
+        assertThatThrownBy(() -> rewrite("{\"model\":42,\"messages\":[{\"content\":\"x\"}]}"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("model");
+        assertThatThrownBy(() -> rewrite("{\"model\":\"gpt-4o\",\"messages\":[\"x\"]}"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("messages");
+        assertThatThrownBy(() -> rewrite("{\"model\":\"gpt-4o\",\"maxTokens\":1.5,\"messages\":[{\"content\":\"x\"}]}"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("maxTokens");
+        assertThatThrownBy(() -> rewrite("{\"model\":\"gpt-4o\",\"temperature\":\"hot\",\"messages\":[{\"content\":\"x\"}]}"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("temperature");
+    }
+}
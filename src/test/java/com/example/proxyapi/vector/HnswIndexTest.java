@@ -0,0 +1,146 @@
+package com.example.proxyapi.vector;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * Тесты HnswIndex: полнота поиска сравнивается с точным перебором.
+ */
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 64;
+
+    private static float[][] randomVectors(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        float[][] vectors = new float[count][DIMENSIONS];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+
+    private static float cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return (float) (dot / Math.sqrt(normA * normB));
+    }
+
+    private static Set<Integer> bruteForce(float[][] vectors, float[] query, int k) {
+        Integer[] ids = new Integer[vectors.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        Arrays.sort(ids, (x, y) -> Float.compare(cosine(vectors[y], query), cosine(vectors[x], query)));
+        return new HashSet<>(Arrays.asList(ids).subList(0, k));
+    }
+
+    @Test
+    @DisplayName("Полнота top-10 по сравнению с точным перебором не ниже 0.95")
+    void recallMatchesBruteForce() {
+        float[][] vectors = randomVectors(2_000, 1);
+        // Начальная ёмкость меньше числа векторов — индекс растёт по ходу
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100, 16);
+        for (int i = 0; i < vectors.length; i++) {
+            assertThat(index.add(vectors[i])).isEqualTo(i);
+        }
+        assertThat(index.size()).isEqualTo(vectors.length);
+
+        int k = 10;
+        int found = 0;
+        float[][] queries = randomVectors(100, 2);
+        for (float[] query : queries) {
+            Set<Integer> expected = bruteForce(vectors, query, k);
+            List<HnswIndex.SearchHit> hits = index.search(query, k, 64);
+            assertThat(hits).hasSize(k);
+            for (HnswIndex.SearchHit hit : hits) {
+                if (expected.contains(hit.id())) {
+                    found++;
+                }
+            }
+        }
+        double recall = found / (double) (queries.length * k);
+        assertThat(recall).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    @DisplayName("Результаты упорядочены по убыванию близости, близость — косинусная")
+    void hitsAreSortedByCosineSimilarity() {
+        float[][] vectors = randomVectors(300, 3);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 50, 16);
+        for (float[] vector : vectors) {
+            index.add(vector);
+        }
+        float[] query = randomVectors(1, 4)[0];
+
+        List<HnswIndex.SearchHit> hits = index.search(query, 5, 50);
+
+        for (int i = 0; i < hits.size(); i++) {
+            HnswIndex.SearchHit hit = hits.get(i);
+            assertThat(hit.score()).isCloseTo(cosine(vectors[hit.id()], query), offset(1e-4f));
+            if (i > 0) {
+                assertThat(hit.score()).isLessThanOrEqualTo(hits.get(i - 1).score());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Тот же вектор (в другом масштабе) находится с близостью 1")
+    void findsExactVector() {
+        float[][] vectors = randomVectors(500, 5);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100, 16);
+        for (float[] vector : vectors) {
+            index.add(vector);
+        }
+        float[] scaled = vectors[123].clone();
+        for (int i = 0; i < scaled.length; i++) {
+            scaled[i] *= 3;
+        }
+
+        HnswIndex.SearchHit best = index.search(scaled, 1, 32).get(0);
+
+        assertThat(best.id()).isEqualTo(123);
+        assertThat(best.score()).isCloseTo(1f, offset(1e-4f));
+    }
+
+    @Test
+    @DisplayName("Пустой индекс и k=0 дают пустой результат, k больше размера — все узлы")
+    void edgeCases() {
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100, 16);
+        float[] query = randomVectors(1, 6)[0];
+        assertThat(index.search(query, 5, 10)).isEmpty();
+
+        List<Integer> ids = new ArrayList<>();
+        for (float[] vector : randomVectors(3, 7)) {
+            ids.add(index.add(vector));
+        }
+        assertThat(index.search(query, 0, 10)).isEmpty();
+        assertThat(index.search(query, 10, 10)).extracting(HnswIndex.SearchHit::id).containsExactlyInAnyOrderElementsOf(ids);
+    }
+
+    @Test
+    @DisplayName("Вектор другой размерности отклоняется")
+    void rejectsWrongDimensions() {
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100, 16);
+        assertThatThrownBy(() -> index.add(new float[DIMENSIONS + 1])).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.search(new float[1], 1, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+}